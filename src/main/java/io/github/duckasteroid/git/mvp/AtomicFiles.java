@@ -0,0 +1,50 @@
+package io.github.duckasteroid.git.mvp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes the files the plugin keeps (caches, snapshots, manifests) to a temporary file and moves
+ * them in place, so readers (e.g. other builds) never see half a file.
+ */
+public final class AtomicFiles {
+	private AtomicFiles() {
+	}
+
+	/**
+	 * Writes the content of a file
+	 */
+	@FunctionalInterface
+	public interface Content {
+		/**
+		 * Write the content
+		 * @param out where to write it
+		 * @throws IOException If it cannot be written
+		 */
+		void writeTo(Writer out) throws IOException;
+	}
+
+	/**
+	 * Write a file (as UTF-8), replacing it in one step, creating its directory if needed
+	 * @param file the file
+	 * @param content writes the content of the file
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void write(Path file, Content content) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		Files.createDirectories(dir);
+		Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+		try {
+			try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				content.writeTo(out);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+}
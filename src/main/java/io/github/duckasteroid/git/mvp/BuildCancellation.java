@@ -0,0 +1,26 @@
+package io.github.duckasteroid.git.mvp;
+
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.initialization.BuildCancellationToken;
+
+/**
+ * Holds the only use of Gradle's internal build cancellation API. {@link GitVersionBuildService}
+ * loads it reflectively, so a Gradle where that API has moved cannot break the service.
+ */
+final class BuildCancellation {
+	private BuildCancellation() {
+	}
+
+	/**
+	 * Run something when the build is cancelled
+	 * @param gradle the build
+	 * @param onCancel what to run
+	 * @return what to run to stop that
+	 */
+	static Runnable bind(Gradle gradle, Runnable onCancel) {
+		BuildCancellationToken token = ((GradleInternal) gradle).getServices().get(BuildCancellationToken.class);
+		token.addCallback(onCancel);
+		return () -> token.removeCallback(onCancel);
+	}
+}
@@ -0,0 +1,42 @@
+package io.github.duckasteroid.git.mvp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how often a cache had the answer (a hit), and how often it had to ask git (a miss),
+ * for the {@link io.github.duckasteroid.git.mvp.tasks.ExplainVersions} report.
+ */
+public final class CacheStats {
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Count a hit
+	 */
+	public void hit() {
+		hits.incrementAndGet();
+	}
+
+	/**
+	 * Count a miss
+	 */
+	public void miss() {
+		misses.incrementAndGet();
+	}
+
+	/**
+	 * The number of hits so far
+	 * @return the hits
+	 */
+	public long hits() {
+		return hits.get();
+	}
+
+	/**
+	 * The number of misses so far
+	 * @return the misses
+	 */
+	public long misses() {
+		return misses.get();
+	}
+}
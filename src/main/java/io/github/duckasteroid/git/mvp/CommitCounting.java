@@ -0,0 +1,16 @@
+package io.github.duckasteroid.git.mvp;
+
+/**
+ * Which commits since a tag are counted to increment a version.
+ */
+public enum CommitCounting {
+	/**
+	 * Every commit since the tag, including those merged in from other branches
+	 */
+	ALL,
+	/**
+	 * Only the commits on the first-parent chain from HEAD (i.e. on the current branch, with a
+	 * merge counted once), for smaller and steadier increments
+	 */
+	FIRST_PARENT
+}
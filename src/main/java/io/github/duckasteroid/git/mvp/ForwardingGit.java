@@ -0,0 +1,115 @@
+package io.github.duckasteroid.git.mvp;
+
+import io.github.duckasteroid.git.mvp.history.ConventionalCommitScan;
+import io.github.duckasteroid.git.mvp.history.HistoryCommit;
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
+
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * A {@link Git} that forwards every query to another. Subclasses override the queries they can
+ * answer some other (cheaper) way.
+ */
+public abstract class ForwardingGit implements Git {
+	private final Git delegate;
+
+	/**
+	 * Create forwarding to the given git
+	 * @param delegate the git to forward queries to
+	 */
+	protected ForwardingGit(Git delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * The git this forwards queries to
+	 * @return the delegate
+	 */
+	public Git getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public Optional<Path> getRootDir() {
+		return delegate.getRootDir();
+	}
+
+	@Override
+	public Path getWorkingDir() {
+		return delegate.getWorkingDir();
+	}
+
+	@Override
+	public String gitCommitID(boolean shortVersion, String path) {
+		return delegate.gitCommitID(shortVersion, path);
+	}
+
+	@Override
+	public int gitCommitCount(String tag, String path, CommitCounting counting) {
+		return delegate.gitCommitCount(tag, path, counting);
+	}
+
+	@Override
+	public String branchName() {
+		return delegate.branchName();
+	}
+
+	@Override
+	public List<GitTag> gitTags(@Nullable String pattern) {
+		return delegate.gitTags(pattern);
+	}
+
+	@Override
+	public Optional<GitTag> latestTag(@Nullable String pattern) {
+		return delegate.latestTag(pattern);
+	}
+
+	@Override
+	public Optional<GitTag> gitTag(String name) {
+		return delegate.gitTag(name);
+	}
+
+	@Override
+	public boolean gitDirty(@Nullable String pattern, UntrackedFiles untracked) {
+		return delegate.gitDirty(pattern, untracked);
+	}
+
+	@Override
+	public List<GitTag> ancestorTags(String path, @Nullable String leafPattern) {
+		return delegate.ancestorTags(path, leafPattern);
+	}
+
+	@Override
+	public Optional<GitTag> nearestAncestorTag(String path, @Nullable String leafPattern) {
+		return delegate.nearestAncestorTag(path, leafPattern);
+	}
+
+	@Override
+	public void walkHistory(@Nullable String range, @Nullable String path, boolean withPaths, Predicate<HistoryCommit> visitor) {
+		delegate.walkHistory(range, path, withPaths, visitor);
+	}
+
+	@Override
+	public void walkCommits(@Nullable String range, @Nullable String path, Predicate<HistoryCommit> visitor) {
+		delegate.walkCommits(range, path, visitor);
+	}
+
+	@Override
+	public ConventionalCommitScan.Result scan(String tag, @Nullable String path) {
+		return delegate.scan(tag, path);
+	}
+
+	@Override
+	public List<String> changedPaths(String base, String head) {
+		return delegate.changedPaths(base, head);
+	}
+
+	@Override
+	public List<Change> status(@Nullable String pattern, UntrackedFiles untracked) {
+		return delegate.status(pattern, untracked);
+	}
+}
@@ -1,11 +1,15 @@
 package io.github.duckasteroid.git.mvp;
 
+import io.github.duckasteroid.git.mvp.history.ConventionalCommitScan;
+import io.github.duckasteroid.git.mvp.history.HistoryCommit;
 import io.github.duckasteroid.git.mvp.version.source.GitTag;
 
 import javax.annotation.Nullable;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 /**
  * The interface between this plugin and the underlying Git VCS.
@@ -43,7 +47,19 @@ public interface Git {
 	 * @param path the path to check
 	 * @return the number of commits
 	 */
-	int gitCommitCount(String tag, String path);
+	default int gitCommitCount(String tag, String path) {
+		return gitCommitCount(tag, path, CommitCounting.ALL);
+	}
+
+	/**
+	 * Get the number of commits (that "touched" an optional path) since a given tag
+	 *
+	 * @param tag  the tag to start from
+	 * @param path the path to check
+	 * @param counting which commits are counted
+	 * @return the number of commits
+	 */
+	int gitCommitCount(String tag, String path, CommitCounting counting);
 
 	/**
 	 * Gets the current branch name
@@ -58,6 +74,72 @@ public interface Git {
 	 * @return a list of tags most recent commit first
 	 */
 	List<GitTag> gitTags(@Nullable String pattern);
+
+	/**
+	 * Get the most recent git tag in the repo, that optionally matches a given pattern.
+	 * Implementations should avoid listing every tag to find it.
+	 *
+	 * @param pattern (optional) the pattern of the tag (or null)
+	 * @return the most recent tag (if any)
+	 */
+	default Optional<GitTag> latestTag(@Nullable String pattern) {
+		return gitTags(pattern).stream().findFirst();
+	}
+
+	/**
+	 * Get the git tag with a name (not a pattern).
+	 * Implementations should avoid listing every tag to find it.
+	 *
+	 * @param name the name of the tag
+	 * @return the tag (if there is one)
+	 */
+	default Optional<GitTag> gitTag(String name) {
+		return gitTags(name).stream().filter(tag -> tag.value().equals(name)).findFirst();
+	}
+	/**
+	 * Get the git tags in the tag "folders" (namespaces) above a path in the repo, nearest first.
+	 * For example, for the path <code>some/deep/path</code> the tags matching
+	 * <code>some/deep/path/v*</code> come first, then <code>some/deep/v*</code>, and so on up to
+	 * the root <code>v*</code> tags.
+	 *
+	 * @param path a path in the repo (using '/'), blank for the root
+	 * @param leafPattern (optional) the pattern of the tag within its folder (e.g. "v*"), or null
+	 * @return a list of tags nearest folder first, then most recent commit first
+	 */
+	default List<GitTag> ancestorTags(String path, @Nullable String leafPattern) {
+		String leaf = leafPattern == null ? "*" : leafPattern;
+		List<GitTag> tags = new ArrayList<>();
+		String namespace = path.replace('\\', '/').replaceAll("^/+|/+$", "");
+		while (true) {
+			tags.addAll(gitTags(namespace.isEmpty() ? leaf : namespace + "/" + leaf));
+			if (namespace.isEmpty()) {
+				return tags;
+			}
+			namespace = namespace.substring(0, Math.max(0, namespace.lastIndexOf('/')));
+		}
+	}
+
+	/**
+	 * Get the first of the {@link #ancestorTags}: the most recent tag in the nearest tag "folder"
+	 * above a path in the repo. Each folder is asked for its {@link #latestTag}, nearest first, so
+	 * every tag is not listed to find it.
+	 *
+	 * @param path a path in the repo (using '/'), blank for the root
+	 * @param leafPattern (optional) the pattern of the tag within its folder (e.g. "v*"), or null
+	 * @return the nearest tag (if any)
+	 */
+	default Optional<GitTag> nearestAncestorTag(String path, @Nullable String leafPattern) {
+		String leaf = leafPattern == null ? "*" : leafPattern;
+		String namespace = path.replace('\\', '/').replaceAll("^/+|/+$", "");
+		while (true) {
+			Optional<GitTag> tag = latestTag(namespace.isEmpty() ? leaf : namespace + "/" + leaf);
+			if (tag.isPresent() || namespace.isEmpty()) {
+				return tag;
+			}
+			namespace = namespace.substring(0, Math.max(0, namespace.lastIndexOf('/')));
+		}
+	}
+
 	/**
 	 * Is the repository dirty?
 	 * Optionally, check only the given path pattern.
@@ -65,12 +147,80 @@ public interface Git {
 	 * @param pattern (optional) a pattern to restrict the check to, or null
 	 * @return true if dirty (e.g. uncommited stuff in the repo for the given path)
 	 */
-	boolean gitDirty(@Nullable String pattern);
+	default boolean gitDirty(@Nullable String pattern) {
+		return gitDirty(pattern, UntrackedFiles.NORMAL);
+	}
+
+	/**
+	 * Is the repository dirty?
+	 * Optionally, check only the given path pattern.
+	 *
+	 * @param pattern (optional) a pattern to restrict the check to, or null
+	 * @param untracked whether untracked files make the repository dirty
+	 * @return true if dirty (e.g. uncommited stuff in the repo for the given path)
+	 */
+	boolean gitDirty(@Nullable String pattern, UntrackedFiles untracked);
+
+	/**
+	 * Walk the commit history, most recent first (parents after all their children).
+	 * Commits are handed over one at a time as they are read, so walking a long history
+	 * doesn't need memory for all of it.
+	 *
+	 * @param range (optional) a revision range (e.g. "v1.0..HEAD"), or null for all the history of HEAD
+	 * @param path (optional) a path to restrict the walk to commits that touched it, or null
+	 * @param withPaths whether to list the paths each commit changed (which costs a diff of every commit)
+	 * @param visitor receives each commit, and returns false to stop the walk
+	 */
+	void walkHistory(@Nullable String range, @Nullable String path, boolean withPaths, Predicate<HistoryCommit> visitor);
+
+	/**
+	 * Walk the commits in git's default order (by commit date, so not always parents after all
+	 * their children), which lets git hand over the first commit without reading the whole range
+	 * (unlike {@link #walkHistory}, without a commit-graph).
+	 *
+	 * @param range (optional) a revision range (e.g. "v1.0..HEAD"), or null for all the history of HEAD
+	 * @param path (optional) a path to restrict the walk to commits that touched it, or null
+	 * @param visitor receives each commit, and returns false to stop the walk
+	 */
+	default void walkCommits(@Nullable String range, @Nullable String path, Predicate<HistoryCommit> visitor) {
+		walkHistory(range, path, false, visitor);
+	}
+
+	/**
+	 * Scan the commits since a tag for conventional commit messages (see {@link ConventionalCommitScan})
+	 *
+	 * @param tag the tag to start from
+	 * @param path (optional) only scan commits that touched this path, or null
+	 * @return the result of the scan
+	 */
+	default ConventionalCommitScan.Result scan(String tag, @Nullable String path) {
+		return ConventionalCommitScan.scan(this, tag, path);
+	}
+
+	/**
+	 * The paths changed between two revisions (by comparing their trees, as
+	 * <code>git diff-tree</code>). A rename is reported as both of its paths.
+	 *
+	 * @param base the revision to compare from (e.g. "origin/main")
+	 * @param head the revision to compare to (e.g. "HEAD")
+	 * @return the changed paths (from the repository root, using '/')
+	 */
+	List<String> changedPaths(String base, String head);
+
+	/**
+	 * Pending changes in the git repo (from git status)
+	 * @param pattern (optional) a pattern to restrict the check to, or null
+	 * @return a list of changes (maybe empty, never null)
+	 */
+	default List<Change> status(@Nullable String pattern) {
+		return status(pattern, UntrackedFiles.NORMAL);
+	}
 
 	/**
 	 * Pending changes in the git repo (from git status)
 	 * @param pattern (optional) a pattern to restrict the check to, or null
+	 * @param untracked which untracked files are listed
 	 * @return a list of changes (maybe empty, never null)
 	 */
-	List<Change> status(@Nullable String pattern);
+	List<Change> status(@Nullable String pattern, UntrackedFiles untracked);
 }
@@ -1,7 +1,9 @@
 package io.github.duckasteroid.git.mvp;
 
 import io.github.duckasteroid.git.mvp.cmd.ProcessResult;
+import org.gradle.api.BuildCancelledException;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -35,6 +37,23 @@ public class GitException extends RuntimeException {
 	 * @param result the result to check
 	 */
 	public static void check(List<String> command, ProcessResult result) {
+		check(command, result, ProcessResult.DEFAULT_TIMEOUT);
+	}
+
+	/**
+	 * Check the process result and throw an instance of this exception if required
+	 * @param command the command that generated the result
+	 * @param result the result to check
+	 * @param timeout the timeout the command was run with
+	 * @throws GitTimeoutException If the command was killed for running past the timeout
+	 * @throws BuildCancelledException If the command was killed because the build was cancelled
+	 */
+	public static void check(List<String> command, ProcessResult result, Duration timeout) {
+		switch (result.getTermination()) {
+			case TIMED_OUT -> throw new GitTimeoutException(command, timeout);
+			case CANCELLED -> throw new BuildCancelledException("Build cancelled while running: " + String.join(" ", command));
+			default -> {}
+		}
 		if (result.getExitCode() != 0) {
 			throw new GitException(command, result.getExitCode(), result.getErrorOutput());
 		}
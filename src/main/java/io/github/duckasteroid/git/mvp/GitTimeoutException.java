@@ -0,0 +1,34 @@
+package io.github.duckasteroid.git.mvp;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Thrown when a git process is killed for running past its timeout.
+ * Callers can catch this where a conservative answer is safe (e.g. treating a project as dirty),
+ * but not to fall back to another source of the version.
+ */
+public class GitTimeoutException extends GitException {
+	/**
+	 * The timeout that was exceeded
+	 */
+	private final Duration timeout;
+
+	/**
+	 * Create an exception for a command that timed out
+	 * @param command the command that timed out
+	 * @param timeout the timeout it exceeded
+	 */
+	public GitTimeoutException(List<String> command, Duration timeout) {
+		super(command, -1, "timed out after " + timeout);
+		this.timeout = timeout;
+	}
+
+	/**
+	 * The timeout that was exceeded
+	 * @return the timeout
+	 */
+	public Duration getTimeout() {
+		return timeout;
+	}
+}
@@ -0,0 +1,326 @@
+package io.github.duckasteroid.git.mvp;
+
+import io.github.duckasteroid.git.mvp.cmd.ProcessWatchdog;
+import io.github.duckasteroid.git.mvp.dirty.FileDigestCache;
+import io.github.duckasteroid.git.mvp.history.CommitCountCache;
+import io.github.duckasteroid.git.mvp.history.FirstParentChainCache;
+import io.github.duckasteroid.git.mvp.notes.VersionNotes;
+import io.github.duckasteroid.git.mvp.repo.RepositoryLocator;
+import io.github.duckasteroid.git.mvp.snapshot.GitSnapshot;
+import io.github.duckasteroid.git.mvp.tags.TagTableCache;
+import org.gradle.api.Project;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * A Gradle build service that holds state shared by all the projects in a build.
+ * Anything cached here lives only as long as the build.
+ * <p>
+ * One service is registered for the whole build tree (with the root build), so every build in a
+ * composite build (e.g. with <code>includeBuild</code>) shares it: what is cached here is keyed by
+ * repository, so included builds in the same repository share the tags, history and commit
+ * counts, rather than each asking git again.
+ */
+public abstract class GitVersionBuildService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+	private static final Logger log = Logging.getLogger(GitVersionBuildService.class);
+
+	/**
+	 * The name the service is registered with
+	 */
+	public static final String NAME = "gitVersioning";
+
+	private final RepositoryLocator repositoryLocator = new RepositoryLocator();
+
+	private final TagTableCache tagTables = new TagTableCache();
+
+	private final FileDigestCache fileDigests = new FileDigestCache();
+
+	private final FirstParentChainCache firstParentChains = new FirstParentChainCache();
+
+	private final CommitCountCache commitCounts = new CommitCountCache();
+
+	private final VersionNotes versionNotes = new VersionNotes();
+
+	// git snapshots (or none) by root project directory, read once
+	private final Map<Path, Optional<GitSnapshot>> snapshots = new ConcurrentHashMap<>();
+
+	// the git processes run for this build, killed when (only) this build is cancelled
+	private final ProcessWatchdog.Scope processes = ProcessWatchdog.INSTANCE.newScope();
+	private final Runnable onCancel = processes::cancel;
+	private final AtomicReference<Runnable> unbindCancellation = new AtomicReference<>();
+
+	// versions being resolved in the background, by project directory (project paths are only
+	// unique in one build of the tree)
+	private final Map<Path, Prefetch> prefetched = new ConcurrentHashMap<>();
+	private ExecutorService prefetchExecutor;
+
+	private record Prefetch(String projectPath, GitVersionProjectWrapper.VersionConfiguration configuration, CompletableFuture<String> version) {}
+
+	// looks up the environment variables CI facts are read from
+	private volatile Function<String, String> environment = System::getenv;
+
+	// the projects applying the plugin, by root project directory (prefetched in the next build)
+	private final Map<Path, Set<String>> prefetchCandidates = new ConcurrentHashMap<>();
+
+	/**
+	 * Get (registering if required) the service for the build containing the given project
+	 * @param project a Gradle project
+	 * @return the shared service
+	 */
+	public static GitVersionBuildService obtain(Project project) {
+		return obtain(project.getGradle());
+	}
+
+	/**
+	 * Get (registering if required) the service for the build tree containing the given build
+	 * @param gradle the build (or any build included in it)
+	 * @return the shared service
+	 */
+	public static GitVersionBuildService obtain(Gradle gradle) {
+		Gradle root = rootBuild(gradle);
+		GitVersionBuildService service = root.getSharedServices()
+						.registerIfAbsent(NAME, GitVersionBuildService.class, spec -> {})
+						.get();
+		service.bindCancellation(root);
+		return service;
+	}
+
+	/**
+	 * The root build of the build tree containing a build
+	 * @param gradle the build
+	 * @return the root build (the build itself, if it is not included in another)
+	 */
+	static Gradle rootBuild(Gradle gradle) {
+		Gradle root = gradle;
+		while (root.getParent() != null) {
+			root = root.getParent();
+		}
+		return root;
+	}
+
+	/**
+	 * Start resolving the version of a project in the background, so it is (usually) ready by the
+	 * time the project is configured. The extension conventions are used (the project is not
+	 * configured yet), so the version is only taken if the project keeps them.
+	 * Many projects do, and the git queries warm the caches the build shares even for those
+	 * that do not.
+	 * @param projectPath the Gradle path of the project
+	 * @param projectDir the project directory
+	 * @param rootDir the root project directory
+	 */
+	public void prefetch(String projectPath, Path projectDir, Path rootDir) {
+		GitVersionProjectWrapper wrapper = new GitVersionProjectWrapper(this, projectPath, projectDir, rootDir);
+		prefetched.computeIfAbsent(projectDir, dir -> new Prefetch(projectPath, wrapper.versionConfiguration(),
+						CompletableFuture.supplyAsync(wrapper::gitVersion, prefetchExecutor())));
+	}
+
+	/**
+	 * Note that a project applied the plugin, so the {@link GitVersioningSettingsPlugin} prefetches
+	 * its version in the next build (see {@link PrefetchCandidates})
+	 * @param rootDir the root project directory
+	 * @param projectPath the Gradle path of the project
+	 */
+	public void addPrefetchCandidate(Path rootDir, String projectPath) {
+		prefetchCandidates.computeIfAbsent(rootDir, dir -> ConcurrentHashMap.newKeySet()).add(projectPath);
+	}
+
+	/**
+	 * The version of a project being resolved in the background (if {@link #prefetch} was called)
+	 * @param projectPath the Gradle path of the project (which must match the prefetched one)
+	 * @param projectDir the project directory
+	 * @return the future version (if any)
+	 */
+	public Optional<CompletableFuture<String>> prefetchedVersion(String projectPath, Path projectDir) {
+		return Optional.ofNullable(prefetched.get(projectDir))
+						.filter(prefetch -> prefetch.projectPath().equals(projectPath))
+						.map(Prefetch::version);
+	}
+
+	/**
+	 * Take the version of a project being resolved in the background (so it is only used once)
+	 * @param projectPath the Gradle path of the project (which must match the prefetched one)
+	 * @param projectDir the project directory
+	 * @param configuration the configuration of the project (which must match the prefetched one)
+	 * @return the future version (if any)
+	 */
+	Optional<CompletableFuture<String>> takePrefetchedVersion(String projectPath, Path projectDir,
+					GitVersionProjectWrapper.VersionConfiguration configuration) {
+		Prefetch prefetch = prefetched.get(projectDir);
+		if (prefetch == null || !prefetch.projectPath().equals(projectPath)) {
+			return Optional.empty();
+		}
+		prefetched.remove(projectDir);
+		if (!prefetch.configuration().equals(configuration)) {
+			log.info("Not using the prefetched version of {}, it is not versioned by the conventions", projectPath);
+			return Optional.empty();
+		}
+		return Optional.of(prefetch.version());
+	}
+
+	private ExecutorService prefetchExecutor() {
+		synchronized (prefetched) {
+			if (prefetchExecutor == null) {
+				AtomicInteger count = new AtomicInteger();
+				prefetchExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+					Thread thread = new Thread(r, "git-mvp-prefetch-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			return prefetchExecutor;
+		}
+	}
+
+	/**
+	 * Tie the git processes we run to the build's cancellation, so cancelling the build kills them.
+	 * Gradle only offers this through internal API (used only by {@link BuildCancellation}, loaded
+	 * reflectively), so if that is not available this does nothing.
+	 * @param gradle the build
+	 */
+	private void bindCancellation(Gradle gradle) {
+		if (unbindCancellation.get() != null) {
+			return;
+		}
+		try {
+			Method bind = Class.forName(GitVersionBuildService.class.getPackageName() + ".BuildCancellation")
+							.getDeclaredMethod("bind", Gradle.class, Runnable.class);
+			Runnable unbind = (Runnable) bind.invoke(null, gradle, onCancel);
+			if (!unbindCancellation.compareAndSet(null, unbind)) {
+				// bound by another project meanwhile
+				unbind.run();
+			}
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			log.debug("Build cancellation not available, git processes will only be killed on timeout", e);
+		}
+	}
+
+	@Override
+	public void close() {
+		// remember the counts for the next build
+		commitCounts.save();
+		versionNotes.save();
+		prefetchCandidates.forEach(PrefetchCandidates::save);
+		synchronized (prefetched) {
+			if (prefetchExecutor != null) {
+				prefetchExecutor.shutdownNow();
+			}
+		}
+		Runnable unbind = unbindCancellation.getAndSet(null);
+		if (unbind != null) {
+			unbind.run();
+		}
+	}
+
+	/**
+	 * Looks up the environment variables git facts are read from on CI (see
+	 * {@link io.github.duckasteroid.git.mvp.facts.EnvironmentFacts})
+	 * @return the environment (normally {@link System#getenv(String)})
+	 */
+	public Function<String, String> getEnvironment() {
+		return environment;
+	}
+
+	/**
+	 * Replace the environment git facts are read from (e.g. so tests only see their repository)
+	 * @param environment looks up environment variables
+	 */
+	public void setEnvironment(Function<String, String> environment) {
+		this.environment = environment;
+	}
+
+	/**
+	 * The (caching) repository locator for this build
+	 * @return the repository locator
+	 */
+	public RepositoryLocator getRepositoryLocator() {
+		return repositoryLocator;
+	}
+
+	/**
+	 * The tag tables shared by all projects in this build
+	 * @return the tag table cache
+	 */
+	public TagTableCache getTagTables() {
+		return tagTables;
+	}
+
+	/**
+	 * The digests of (dirty) files shared by all projects in this build
+	 * @return the file digest cache
+	 */
+	public FileDigestCache getFileDigests() {
+		return fileDigests;
+	}
+
+	/**
+	 * The first-parent chains (for counting commits) shared by all projects in this build
+	 * @return the first-parent chain cache
+	 */
+	public FirstParentChainCache getFirstParentChains() {
+		return firstParentChains;
+	}
+
+	/**
+	 * The git processes run for this build, killed if the build is cancelled
+	 * @return the process scope
+	 */
+	public ProcessWatchdog.Scope getProcesses() {
+		return processes;
+	}
+
+	/**
+	 * The commit counts remembered between builds
+	 * @return the commit count cache
+	 */
+	public CommitCountCache getCommitCounts() {
+		return commitCounts;
+	}
+
+	/**
+	 * The statistics of the caches shared by the build tree, by cache name
+	 * @return the cache statistics
+	 */
+	public Map<String, CacheStats> getCacheStats() {
+		Map<String, CacheStats> stats = new LinkedHashMap<>();
+		stats.put("tags", tagTables.stats());
+		stats.put("firstParentChains", firstParentChains.stats());
+		stats.put("commitCounts", commitCounts.stats());
+		stats.put("versionNotes", versionNotes.stats());
+		return stats;
+	}
+
+	/**
+	 * The history facts shared through git notes
+	 * @return the version notes
+	 */
+	public VersionNotes getVersionNotes() {
+		return versionNotes;
+	}
+
+	/**
+	 * The git snapshot in a root project directory (read once for the build), used when there is
+	 * no repository
+	 * @param rootDir the root project directory
+	 * @return the snapshot, if there is a {@link GitSnapshot#DEFAULT_FILE} there
+	 */
+	public Optional<GitSnapshot> getSnapshot(Path rootDir) {
+		return snapshots.computeIfAbsent(rootDir, dir -> GitSnapshot.read(dir.resolve(GitSnapshot.DEFAULT_FILE)));
+	}
+}
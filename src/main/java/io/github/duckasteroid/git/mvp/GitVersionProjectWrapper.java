@@ -2,38 +2,174 @@ package io.github.duckasteroid.git.mvp;
 
 import io.github.duckasteroid.git.mvp.branch.BranchRule;
 import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import io.github.duckasteroid.git.mvp.dirty.DirtyContentHash;
 import io.github.duckasteroid.git.mvp.ext.GitVersionExtension;
 import io.github.duckasteroid.git.mvp.ext.PatternSet;
+import io.github.duckasteroid.git.mvp.facts.EnvironmentFacts;
+import io.github.duckasteroid.git.mvp.facts.EnvironmentFactsGit;
+import io.github.duckasteroid.git.mvp.history.ConventionalCommitScan;
+import io.github.duckasteroid.git.mvp.notes.NotesGit;
+import io.github.duckasteroid.git.mvp.notes.VersionNotes;
+import io.github.duckasteroid.git.mvp.release.ReleaseTag;
+import io.github.duckasteroid.git.mvp.repo.RepositoryTopology;
+import io.github.duckasteroid.git.mvp.snapshot.GitSnapshot;
+import io.github.duckasteroid.git.mvp.snapshot.SnapshotGit;
 import io.github.duckasteroid.git.mvp.version.Version;
-import io.github.duckasteroid.git.mvp.version.source.Commit;
+import io.github.duckasteroid.git.mvp.version.source.BuiltInVersionSources;
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
 import io.github.duckasteroid.git.mvp.version.source.VersionSource;
+import io.github.duckasteroid.git.mvp.version.source.VersionSourceChain;
+import io.github.duckasteroid.git.mvp.version.source.VersionSourceProvider;
+import io.github.duckasteroid.git.mvp.version.source.VersionSourceProviderFactory;
+import org.gradle.api.GradleException;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 
+import javax.annotation.Nullable;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * A wrapper for a Gradle {@link Project} that provides git version utilities
+ * A wrapper for a Gradle {@link Project} that provides git version utilities.
+ * A wrapper can also be created from just the location of a project (e.g. from settings, before
+ * the project exists), in which case the extension conventions are used.
+ * If the project is not in a git repository, but there is a {@link GitSnapshot} in the root
+ * project directory, git queries are answered from that instead. A project in a repository of its
+ * own (e.g. a submodule) is versioned from that repository.
+ * <p>
+ * The configuration is read from the extension as it is used, unless it has been
+ * {@link #readConfiguration() read} up front (so the wrapper can query git off the task thread).
  */
 public class GitVersionProjectWrapper {
-	// the Gradle project
+	private static final Logger log = Logging.getLogger(GitVersionProjectWrapper.class);
+	// the Gradle project (or null, if created from the project location)
 	private final Project project;
+	// the Gradle path of the project (e.g. ':some:child')
+	private final String projectPath;
+	// the project directory
+	private final Path projectDir;
+	// the root project directory
+	private final Path rootDir;
+	// state shared by all projects in the build
+	private final GitVersionBuildService service;
 	// a git command line - working in the root project directory
-	private final GitCommandLine git;
+	private final GitCommandLine commandLine;
+	// a snapshot of the repository, used only if there is no repository
+	private final GitSnapshot snapshot;
+	// history facts from git notes (if enabled), or null if there is no repository
+	private final NotesGit notes;
+	// git facts - from the environment where possible, otherwise the command line (or snapshot)
+	private final Git git;
+	// the layout of the git repository (located lazily, without running git)
+	private RepositoryTopology topology;
+	// the configuration read up front, or null to read it from the extension as it is used
+	private Settings settings;
+
+	/**
+	 * The configuration of a project that is used once its version sources are created
+	 */
+	private record Settings(Optional<Duration> commandTimeout, boolean conventionalCommits, CommitCounting commitCounting,
+													boolean versionNotes, String dirtyQualifier, boolean dirtyContentHash, UntrackedFiles untrackedFiles,
+													List<BranchRule> branchRules, List<String> branchVariables, List<String> commitVariables) {}
+
+	/**
+	 * The configuration that decides the version of a project: projects with equal configurations
+	 * (and the same repository state) have the same version
+	 * @param versionSources the version source factories, in configured order
+	 * @param sourceSettings the environment variable, file and manifest read by the version sources
+	 * @param conventionalCommits whether versions are incremented following conventional commits
+	 * @param commitCounting which commits are counted to increment a version
+	 * @param dirtyQualifier the qualifier of a dirty version
+	 * @param dirtyContentHash whether a dirty version has a hash of the changes
+	 * @param untrackedFiles how untracked files make a project dirty
+	 * @param autoIncrementBranches the included and excluded auto incremented branches
+	 * @param environmentVariables the variables the branch and commit are read from
+	 */
+	record VersionConfiguration(List<VersionSourceProviderFactory> versionSources, List<String> sourceSettings,
+															boolean conventionalCommits, CommitCounting commitCounting, String dirtyQualifier, boolean dirtyContentHash,
+															UntrackedFiles untrackedFiles, List<List<String>> autoIncrementBranches, List<List<String>> environmentVariables) {}
 
 	/**
 	 * Create a wrapper for the given Gradle project
 	 * @param project a Gradle project
 	 */
 	public GitVersionProjectWrapper(final Project project) {
+		this(project, GitVersionBuildService.obtain(project), project.getPath(),
+						project.getProjectDir().toPath(), project.getRootProject().getProjectDir().toPath());
+	}
+
+	/**
+	 * Create a wrapper for a project that does not exist yet (no extension is available)
+	 * @param service state shared by all projects in the build
+	 * @param projectPath the Gradle path of the project (e.g. ':some:child')
+	 * @param projectDir the project directory
+	 * @param rootDir the root project directory
+	 */
+	public GitVersionProjectWrapper(GitVersionBuildService service, String projectPath, Path projectDir, Path rootDir) {
+		this(null, service, projectPath, projectDir, rootDir);
+	}
+
+	private GitVersionProjectWrapper(@Nullable Project project, GitVersionBuildService service, String projectPath, Path projectDir, Path rootDir) {
 		this.project = project;
-		this.git = new GitCommandLine(project.getRootProject().getProjectDir().toPath());
+		this.projectPath = projectPath;
+		this.projectDir = projectDir;
+		this.rootDir = rootDir;
+		this.service = service;
+		Optional<RepositoryTopology> rootRepository = service.getRepositoryLocator().topology(rootDir);
+		this.commandLine = new GitCommandLine(gitWorkingDir(rootRepository), service.getTagTables(), service.getFirstParentChains(), service.getCommitCounts());
+		this.commandLine.setScope(service.getProcesses());
+		this.snapshot = rootRepository.isPresent() ? null : service.getSnapshot(rootDir).orElse(null);
+		Git source = snapshot == null ? commandLine : new SnapshotGit(snapshot, snapshotWorkTree());
+		Git facts = new EnvironmentFactsGit(source, this::environmentFacts);
+		if (snapshot == null) {
+			VersionNotes.Store store = new VersionNotes.Store() {
+				@Override
+				public Optional<String> read(String commit) {
+					return commandLine.readNote(VersionNotes.REF, commit);
+				}
+
+				@Override
+				public void write(String commit, String note) {
+					commandLine.writeNote(VersionNotes.REF, commit, note);
+				}
+			};
+			this.notes = new NotesGit(facts, service.getVersionNotes(), store, this::useVersionNotes);
+			this.git = notes;
+		} else {
+			this.notes = null;
+			this.git = facts;
+		}
+	}
+
+	/**
+	 * Where git is run for this project: the root project directory, unless the project is in a
+	 * repository of its own (e.g. a submodule of the root project's repository), when git is run
+	 * in that. Both are found without running git.
+	 * @param rootRepository the repository of the root project (if any)
+	 * @return the working directory for git
+	 */
+	private Path gitWorkingDir(Optional<RepositoryTopology> rootRepository) {
+		if (rootRepository.isEmpty() || projectDir.equals(rootDir)) {
+			return rootDir;
+		}
+		return service.getRepositoryLocator().topology(projectDir)
+						.map(RepositoryTopology::workTree)
+						.filter(workTree -> !workTree.equals(rootRepository.get().workTree()))
+						.orElse(rootDir);
 	}
 
 	/**
@@ -41,7 +177,33 @@ public class GitVersionProjectWrapper {
 	 * @return the path of the git repository
 	 */
 	public Path gitRootDir() {
-		return git.getRootDir().orElseThrow();
+		return snapshot == null ? topology().workTree() : snapshotWorkTree();
+	}
+
+	/**
+	 * Where the work tree of the snapshot repository is, relative to the root project
+	 */
+	private Path snapshotWorkTree() {
+		// the root project is this many directories down the work tree
+		int depth = snapshot.root().toString().isEmpty() ? 0 : snapshot.root().getNameCount();
+		Path workTree = rootDir;
+		for (int i = 0; i < depth; i++) {
+			workTree = workTree.getParent();
+		}
+		return workTree;
+	}
+
+	/**
+	 * The layout of the git repository that contains this project (cached for the build)
+	 * @return the repository topology
+	 */
+	public RepositoryTopology topology() {
+		if (topology == null) {
+			topology = service.getRepositoryLocator()
+							.topology(commandLine.getWorkingDir())
+							.orElseThrow(() -> new IllegalStateException("No git repository found for " + rootDir));
+		}
+		return topology;
 	}
 
 	/**
@@ -49,40 +211,124 @@ public class GitVersionProjectWrapper {
 	 * @return a {@link GitVersionExtension}, if declared
 	 */
 	public Optional<GitVersionExtension> extension() {
+		if (project == null) {
+			return Optional.empty();
+		}
 		GitVersionExtension ext = project.getExtensions().findByType(GitVersionExtension.class);
 		return Optional.ofNullable(ext);
 	}
 
 	/**
-	 * Retrieve the candidate sources of git based version information for a project.
-	 * The following are returned in order of preference:
+	 * Read the configuration of this project now, rather than as it is used. Once read, the version
+	 * sources (created beforehand) and amendments only query git, not the project, so they can be
+	 * worked out on other threads.
+	 */
+	public void readConfiguration() {
+		settings = null;
+		settings = settings();
+		applyTimeout();
+	}
+
+	/**
+	 * The configuration of this project (as read up front, or from the extension now)
+	 * @return the configuration
+	 */
+	private Settings settings() {
+		if (settings != null) {
+			return settings;
+		}
+		return new Settings(
+						setting(GitVersionExtension::getCommandTimeout),
+						setting(GitVersionExtension::getConventionalCommits).orElse(false),
+						setting(GitVersionExtension::getCommitCounting).orElse(CommitCounting.ALL),
+						setting(GitVersionExtension::getVersionNotes).orElse(false),
+						setting(GitVersionExtension::getDirtyQualifier).orElse("dirty"),
+						setting(GitVersionExtension::getDirtyContentHash).orElse(false),
+						setting(GitVersionExtension::getUntrackedFiles).orElse(UntrackedFiles.NORMAL),
+						readBranchRules(),
+						extension().map(GitVersionExtension::getBranchEnvironmentVariables).map(ListProperty::get)
+										.orElse(EnvironmentFacts.DEFAULT_BRANCH_VARIABLES),
+						extension().map(GitVersionExtension::getCommitEnvironmentVariables).map(ListProperty::get)
+										.orElse(EnvironmentFacts.DEFAULT_COMMIT_VARIABLES));
+	}
+
+	private <T> Optional<T> setting(Function<GitVersionExtension, Property<T>> property) {
+		return extension().map(property).map(Property::get);
+	}
+
+	/**
+	 * The configuration that decides the version of this project (as configured by the extension, if
+	 * any), so a version worked out before the project was configured is only used if it still applies
+	 * @return the configuration
+	 */
+	VersionConfiguration versionConfiguration() {
+		Settings settings = settings();
+		// without the extension, the default branch rule is the convention of the extension
+		List<List<String>> branches = extension()
+						.map(GitVersionExtension::getAutoIncrementBranches)
+						.map(patterns -> List.of(patterns.getIncludes().get(), patterns.getExcludes().get()))
+						.orElse(List.of(List.of(), List.of("main", "master")));
+		return new VersionConfiguration(versionSourceFactories(),
+						List.of(setting(GitVersionExtension::getVersionEnvironmentVariable).orElse(BuiltInVersionSources.DEFAULT_ENVIRONMENT_VARIABLE),
+										setting(GitVersionExtension::getVersionFile).orElse(BuiltInVersionSources.DEFAULT_VERSION_FILE),
+										setting(GitVersionExtension::getVersionManifest).orElse(BuiltInVersionSources.DEFAULT_VERSION_MANIFEST)),
+						settings.conventionalCommits(), settings.commitCounting(), settings.dirtyQualifier(), settings.dirtyContentHash(),
+						settings.untrackedFiles(), branches, List.of(settings.branchVariables(), settings.commitVariables()));
+	}
+
+	/**
+	 * The chain of providers of version information for a project.
+	 * By default the following are provided in order of preference:
 	 * <ol>
+	 *     <li>A version in the environment variable <code>GIT_MVP_VERSION</code> (e.g. from CI)</li>
 	 *     <li>Git version tags in a "folder" matching the project path</li>
 	 *     <li>Git version tags (vXXX) with no path (e.g. v1.0.0)</li>
 	 *     <li>The short form of the last commit ID on the current branch</li>
 	 * </ol>
+	 * The sources can be changed with {@link GitVersionExtension#getVersionSources()}, they are
+	 * always queried cheapest first. Nothing is queried until the chain is evaluated.
 	 *
-	 * @return a list of version sources in order
+	 * @return a lazy chain of version source providers
 	 */
-	public List<VersionSource> candidateVersions() {
-		// the fallback if we can't find something more specific...
-		// the latest commit ID that affects the project path
-		Path projectGitPath = getGitRelativePath();
-		VersionSource commitId = new Commit(() -> "Commit ID on project @ " + projectGitPath, git.gitCommitID(true, projectGitPath.toString()));
+	public VersionSourceChain versionSources() {
+		applyTimeout();
+		List<VersionSourceProvider> providers = new ArrayList<>();
+		for (VersionSourceProviderFactory factory : versionSourceFactories()) {
+			factory.create(this).ifPresent(providers::add);
+		}
+		return VersionSourceChain.cheapestFirst(providers);
+	}
 
-		// path is preceded by ':'
-		String path = project.getPath().substring(1).trim();
-		// get the generic tags (these will come after project specific ones in the result)
-		List<VersionSource> tags = new ArrayList<>(git.gitTags("v*"));
-		if (!path.isBlank()) {
-			path += "/";
-			// lets try to find some project tags and add them to the front of the list
-			tags.addAll(0, git.gitTags(path));
+	/**
+	 * The factories for the version sources configured for this project
+	 * @return the factories in configured order
+	 * @throws InvalidUserDataException If a configured source is unknown
+	 */
+	public List<VersionSourceProviderFactory> versionSourceFactories() {
+		if (extension().isEmpty()) {
+			return List.copyOf(BuiltInVersionSources.DEFAULTS);
+		}
+		GitVersionExtension ext = extension().get();
+		List<VersionSourceProviderFactory> factories = new ArrayList<>();
+		for (String name : ext.getVersionSources().get()) {
+			VersionSourceProviderFactory factory = ext.getCustomVersionSources().get(name);
+			if (factory == null) {
+				factory = BuiltInVersionSources.named(name)
+								.orElseThrow(() -> new InvalidUserDataException("Unknown version source '" + name + "' for project " + projectPath));
+			}
+			factories.add(factory);
 		}
-		// add the commit id to the end of the list
-		tags.add(tags.size(), commitId);
+		return factories;
+	}
 
-		return tags;
+	/**
+	 * Retrieve all the candidate sources of git based version information for a project.
+	 * This fully evaluates the {@link #versionSources()} chain, so is intended for diagnostics.
+	 *
+	 * @return a list of version sources in order
+	 */
+	public List<VersionSource> candidateVersions() {
+		return versionSources().all();
 	}
 
 	/**
@@ -91,35 +337,24 @@ public class GitVersionProjectWrapper {
 	 * @return a list of amendments
 	 */
 	public List<VersionAmendment> amendments(VersionSource versionSource) {
+		applyTimeout();
 		List<VersionAmendment> amendments = new ArrayList<>(2);
+		if (!versionSource.isAmendable()) {
+			// the version is final, no need to look at the repo at all
+			return amendments;
+		}
 		String projectRepoPath = getGitRelativePath().toString();
 		final String branchName = git.branchName();
 		if (isAutoIncrementedBranch(branchName)) {
-			// if the source of the last version is a tag
-			if (versionSource.type() == VersionSource.Type.TAG) {
-				// FIXME are there changes on this branch, in that project, since that tag?
-				//def changes = gitDiff(versionSource.name(), projectRepoPath)
-				// and the tag is incrementable (i.e. has numbers)
-				if (versionSource.version().isIncrementable()) {
-					// how many commits since that tag
-					final int commits = git.gitCommitCount(versionSource.value(), projectRepoPath);
-					if (commits > 0) {
-						Function<Version,Version> amender = (input) -> input.increment(commits);
-						amendments.add(new VersionAmendment(
-										"Increment version, found " + commits + " commits in path "+projectRepoPath+
-														", on an incrementable branch '"+branchName+"' ",
-										amender));
-					}
-				}
-			}
+			increment(versionSource, projectRepoPath, "on an incrementable branch '" + branchName + "' ")
+							.ifPresent(amendments::add);
 		}
-		boolean dirty = git.gitDirty(projectRepoPath);
-		if (dirty) {
+		if (isDirty()) {
 			// get qualifier from extension
-			final String qualifier = extension()
-							.map(GitVersionExtension::getDirtyQualifier)
-							.map(Property::get)
-							.orElse("dirty");
+			final String dirtyQualifier = settings().dirtyQualifier();
+			final String qualifier = dirtyContentHash()
+							.map(hash -> dirtyQualifier + "-" + hash)
+							.orElse(dirtyQualifier);
 			amendments.add(new VersionAmendment(
 							"Add '"+qualifier+"' qualifier, as repository is dirty",
 							(input) -> input.withQualifier(qualifier)));
@@ -127,11 +362,168 @@ public class GitVersionProjectWrapper {
 		return amendments;
 	}
 
+	/**
+	 * The increment to a version from a tag, for the changes to the project since the tag: by the
+	 * number of commits, or following the conventional commit messages (if the extension asks)
+	 * @param versionSource the source of the version
+	 * @param projectRepoPath the path of the project in the repository
+	 * @param reason why the version is incremented (for the description)
+	 * @return the amendment, or empty if the version is not from a tag or nothing has changed
+	 */
+	private Optional<VersionAmendment> increment(VersionSource versionSource, String projectRepoPath, String reason) {
+		// FIXME are there changes on this branch, in that project, since that tag?
+		// only a tag with numbers is incrementable
+		if (versionSource.type() != VersionSource.Type.TAG || !versionSource.version().isIncrementable()) {
+			return Optional.empty();
+		}
+		if (settings().conventionalCommits()) {
+			// counts the commits and reads their messages in the same walk
+			// (a timeout fails the build, no increment would look like the release itself)
+			ConventionalCommitScan.Result scan = git.scan(versionSource.value(), projectRepoPath);
+			if (scan.bump() == ConventionalCommitScan.Bump.NONE) {
+				return Optional.empty();
+			}
+			// the scan stops at a breaking change, so only counts the commits up to it
+			String found = scan.bump() == ConventionalCommitScan.Bump.MAJOR
+							? "found a breaking change in the last " + scan.commits() + " commits"
+							: "found " + scan.commits() + " commits";
+			return Optional.of(new VersionAmendment(
+							"Increment " + scan.bump().name().toLowerCase() + " version, " + found + " in path " + projectRepoPath +
+											" (conventional commits), " + reason,
+							scan::apply));
+		}
+		// how many commits since that tag (a timeout fails the build, as for the scan)
+		final CommitCounting counting = commitCounting();
+		final int commits = git.gitCommitCount(versionSource.value(), projectRepoPath, counting);
+		if (commits == 0) {
+			return Optional.empty();
+		}
+		Function<Version,Version> amender = (input) -> input.increment(commits);
+		return Optional.of(new VersionAmendment(
+						"Increment version, found " + commits + " commits in path " + projectRepoPath + ", " + reason,
+						amender));
+	}
+
+	/**
+	 * Which commits are counted to increment a version (as configured by the extension, if any)
+	 * @return the commit counting mode
+	 */
+	public CommitCounting commitCounting() {
+		return settings().commitCounting();
+	}
+
+	/**
+	 * Whether history facts are shared through git notes (as configured by the extension, if any)
+	 * @return true if they are
+	 */
+	private boolean useVersionNotes() {
+		return settings().versionNotes();
+	}
+
+	/**
+	 * The next release of this project, if it has changed since its last version tag: that version
+	 * incremented (just as it is on an auto incremented branch, but on any branch, and never dirty).
+	 * The release is tagged alongside the tag it increments (e.g. <code>child/v1.2.1</code> after
+	 * <code>child/v1.2.0</code>), where the same version source finds it.
+	 * @return the release, or empty if the version is not from a tag or nothing has changed
+	 */
+	public Optional<ReleaseTag> nextRelease() {
+		applyTimeout();
+		VersionSource source = versionSources().first().orElseThrow();
+		if (!source.isAmendable()) {
+			return Optional.empty();
+		}
+		String projectRepoPath = getGitRelativePath().toString();
+		return increment(source, projectRepoPath, "for release")
+						.map(amendment -> {
+							String version = amendment.amended(source.version()).toString();
+							return new ReleaseTag(projectPath, releaseTag(source.value(), version), version, amendment.description());
+						});
+	}
+
+	/**
+	 * The tag for a release, in the same folder (and with the same prefix) as the tag it increments
+	 * @param tag the tag the release increments (e.g. <code>child/v1.2.0</code>)
+	 * @param version the version of the release (e.g. <code>1.2.1</code>)
+	 * @return the release tag (e.g. <code>child/v1.2.1</code>)
+	 */
+	static String releaseTag(String tag, String version) {
+		int folder = tag.lastIndexOf('/') + 1;
+		int prefix = folder;
+		while (prefix < tag.length() && !Character.isDigit(tag.charAt(prefix))) {
+			prefix++;
+		}
+		return tag.substring(0, prefix) + version;
+	}
+
+	/**
+	 * Apply the command timeout from the extension (if any) to our git
+	 */
+	private void applyTimeout() {
+		settings().commandTimeout().ifPresent(commandLine::setTimeout);
+	}
+
+	/**
+	 * The git facts available from the environment (e.g. on CI), using the variables configured
+	 * in the extension (or the defaults)
+	 * @return the environment facts
+	 */
+	public EnvironmentFacts environmentFacts() {
+		Settings settings = settings();
+		return new EnvironmentFacts(service.getEnvironment(), settings.branchVariables(), settings.commitVariables());
+	}
+
+	/**
+	 * Run a git query, but use a fallback value if it times out
+	 * @param description a description of the query (for logging)
+	 * @param query the query
+	 * @param fallback the value to use if the query times out
+	 * @return the result of the query or the fallback
+	 * @param <T> the type of the result
+	 */
+	private <T> T withTimeoutFallback(String description, Supplier<T> query, T fallback) {
+		try {
+			return query.get();
+		} catch (GitTimeoutException e) {
+			log.warn("{} timed out for project {}, using {}: {}", description, projectPath, fallback, e.getMessage());
+			return fallback;
+		}
+	}
+
+	/**
+	 * Does this project have uncommitted changes (as configured by the extension, if any)?
+	 * @return true if dirty (or if git took too long to tell), false if not
+	 */
+	public boolean isDirty() {
+		applyTimeout();
+		String projectRepoPath = getGitRelativePath().toString();
+		final UntrackedFiles untracked = settings().untrackedFiles();
+		// if git is too slow to tell, it is not safe to assume the project is clean
+		return withTimeoutFallback("Dirty check", () -> git.gitDirty(projectRepoPath, untracked), true);
+	}
+
+	/**
+	 * A short hash of the uncommitted content of this project (if the extension asks for one)
+	 * @return the hash, or empty if not wanted (or git took too long to list the changes)
+	 */
+	private Optional<String> dirtyContentHash() {
+		if (!settings().dirtyContentHash()) {
+			return Optional.empty();
+		}
+		final UntrackedFiles untracked = settings().untrackedFiles();
+		DirtyContentHash hash = new DirtyContentHash(git, gitRootDir(), service.getFileDigests());
+		return withTimeoutFallback("Dirty content hash", () -> hash.hash(getGitRelativePath().toString(), untracked), Optional.empty());
+	}
+
 	/**
 	 * A set of branch naming rules for determining if auto incrementing is applied
 	 * @return a list of branch rules
 	 */
 	public List<BranchRule> branchRules() {
+		return settings().branchRules();
+	}
+
+	private List<BranchRule> readBranchRules() {
 		if (extension().isPresent()) {
 			ArrayList<BranchRule> result = new ArrayList<>();
 			GitVersionExtension ext = extension().get();
@@ -212,9 +604,8 @@ public class GitVersionProjectWrapper {
 	 * @return the automatically calculated version string
 	 */
 	public String gitVersion() {
-		List<VersionSource> candidates = candidateVersions();
-		// first source is the one we choose
-		VersionSource selectedSource = candidates.stream().findFirst().orElseThrow();
+		// first source is the one we choose (later sources are never queried)
+		VersionSource selectedSource = versionSources().first().orElseThrow();
 		// any amendments required for that version?
 		List<VersionAmendment> amendments = amendments(selectedSource);
 
@@ -226,10 +617,38 @@ public class GitVersionProjectWrapper {
 		return version.toString();
 	}
 
+	/**
+	 * Resolve the git version for the project, using the version the
+	 * {@link GitVersioningSettingsPlugin} prefetched (the first time only) if there is one, and it
+	 * was worked out with the configuration the project has now.
+	 * @return the version string
+	 */
+	public String resolveVersion() {
+		return service.takePrefetchedVersion(projectPath, projectDir, versionConfiguration())
+						.map(this::join)
+						.orElseGet(this::gitVersion);
+	}
+
+	/**
+	 * Wait for a prefetched version
+	 * @return the version, or null if it failed (so it can be resolved again)
+	 */
+	private String join(CompletableFuture<String> prefetched) {
+		try {
+			return prefetched.join();
+		} catch (CompletionException | CancellationException e) {
+			log.info("Prefetching version for {} failed, resolving again", projectPath, e);
+			return null;
+		}
+	}
+
 	/**
 	 * Primarily intended for unit tests to increment the version
 	 */
 	public void update() {
+		if (project == null) {
+			throw new IllegalStateException("No project to update for " + projectPath);
+		}
 		project.setVersion(gitVersion());
 	}
 
@@ -241,11 +660,84 @@ public class GitVersionProjectWrapper {
 		return git;
 	}
 
+	/**
+	 * Check there is a git repository (not only a git snapshot), for work that needs the history
+	 * @param what the work that needs the repository (e.g. "Listing the changed projects")
+	 * @throws GradleException if the versions come from a git snapshot
+	 */
+	public void requireRepository(String what) {
+		if (snapshot != null) {
+			throw SnapshotGit.repositoryRequired(what);
+		}
+	}
+
+	/**
+	 * The state shared by all projects in the build (e.g. the environment the build sees)
+	 * @return the build service
+	 */
+	public GitVersionBuildService getService() {
+		return service;
+	}
+
+	/**
+	 * The Gradle path of this project
+	 * @return the project path (e.g. ':some:child')
+	 */
+	public String getProjectPath() {
+		return projectPath;
+	}
+
+	/**
+	 * The directory of this project
+	 * @return the project directory
+	 */
+	public Path getProjectDir() {
+		return projectDir;
+	}
+
+	/**
+	 * The directory of the root project
+	 * @return the root project directory
+	 */
+	public Path getRootDir() {
+		return rootDir;
+	}
+
+	/**
+	 * The git tags that mark the releases of this project, most recent first. These are the tags in
+	 * the project's own tag folder (as {@link BuiltInVersionSources#PROJECT_TAGS}), otherwise those in
+	 * the nearest folder above the project directory (as {@link BuiltInVersionSources#PATH_TAGS}).
+	 * @return the tags (maybe empty)
+	 */
+	public List<GitTag> versionTags() {
+		// path is preceded by ':'
+		String path = projectPath.substring(1).trim();
+		if (!path.isBlank()) {
+			List<GitTag> own = git.gitTags(path + "/");
+			if (!own.isEmpty()) {
+				return own;
+			}
+		}
+		List<GitTag> ancestors = git.ancestorTags(getGitRelativePath().toString(), "v*");
+		if (ancestors.isEmpty()) {
+			return ancestors;
+		}
+		String nearest = folder(ancestors.get(0).value());
+		return ancestors.stream().takeWhile(tag -> folder(tag.value()).equals(nearest)).toList();
+	}
+
+	private static String folder(String tag) {
+		return tag.substring(0, Math.max(0, tag.lastIndexOf('/')));
+	}
+
 	/**
 	 * The path of this project directory - relative to the git repository {@link #gitRootDir() root}
 	 * @return the path to this project from the root of the repo
 	 */
 	public Path getGitRelativePath() {
-		return gitRootDir().relativize(project.getProjectDir().toPath());
+		if (snapshot != null) {
+			return snapshot.root().resolve(rootDir.relativize(projectDir));
+		}
+		return topology().relativize(projectDir);
 	}
 }
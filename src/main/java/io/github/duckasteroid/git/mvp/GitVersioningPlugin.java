@@ -1,10 +1,20 @@
 package io.github.duckasteroid.git.mvp;
 
-import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
 import io.github.duckasteroid.git.mvp.ext.GitVersionExtension;
+import io.github.duckasteroid.git.mvp.ext.LazyVersion;
+import io.github.duckasteroid.git.mvp.snapshot.GitSnapshot;
+import io.github.duckasteroid.git.mvp.tasks.ChangedProjects;
+import io.github.duckasteroid.git.mvp.tasks.Changelog;
+import io.github.duckasteroid.git.mvp.tasks.BuildInfo;
 import io.github.duckasteroid.git.mvp.tasks.ExplainVersion;
+import io.github.duckasteroid.git.mvp.tasks.ExplainVersions;
+import io.github.duckasteroid.git.mvp.tasks.GitSnapshotExport;
+import io.github.duckasteroid.git.mvp.tasks.ReleaseTags;
+import io.github.duckasteroid.git.mvp.tasks.VersionManifestExport;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.TaskProvider;
 
 import java.io.File;
@@ -14,10 +24,15 @@ import java.util.Optional;
  * The root class for our git versioning plugin.
  * When applied it:
  * <ul>
- *   <li>Adds the {@link ExplainVersion} task</li>
+ *   <li>Adds the {@link ExplainVersion} and {@link BuildInfo} tasks</li>
  *   <li>Adds the {@link GitVersionExtension} extension</li>
- *   <li>If the {@link Project#getVersion()} is not set, sets it to {@link GitVersionProjectWrapper#gitVersion()}</li>
+ *   <li>Adds the {@link Changelog}, {@link ChangedProjects}, {@link VersionManifestExport},
+ *   {@link GitSnapshotExport}, {@link ReleaseTags} and {@link ExplainVersions} tasks to the root project</li>
+ *   <li>If the {@link Project#getVersion()} is not set, sets it to {@link GitVersionProjectWrapper#gitVersion()}
+ *   (a {@link LazyVersion}, worked out when first used)</li>
  * </ul>
+ * If the {@link GitVersioningSettingsPlugin} is applied, the version may already be resolved.
+ * Without a git repository, versions come from a {@link GitSnapshot} in the root project (if there is one).
  */
 public class GitVersioningPlugin implements Plugin<Project> {
 	/**
@@ -32,19 +47,71 @@ public class GitVersioningPlugin implements Plugin<Project> {
 	@Override
 	public void apply(Project target) {
 		var log = target.getLogger();
-		if (GitCommandLine.gitRootDir(target.getProjectDir()).isPresent()) {
-			GitVersionProjectWrapper projectHelper = new GitVersionProjectWrapper(target);
+		var service = GitVersionBuildService.obtain(target);
+		// a git snapshot stands in for the repository (e.g. when .git is left out of a container)
+		if (service.getRepositoryLocator().topology(target.getProjectDir().toPath()).isPresent()
+						|| service.getSnapshot(target.getRootDir().toPath()).isPresent()) {
+			// the settings plugin prefetches the versions of these projects in the next build
+			service.addPrefetchCandidate(target.getRootDir().toPath(), target.getPath());
 			// our extension for project settings/config
 			GitVersionExtension gitVersionExtension = target.getExtensions().create(GitVersionExtension.NAME, GitVersionExtension.class, target);
 			// Add the explain task
 			TaskProvider<ExplainVersion> explainVersion = target.getTasks().register(ExplainVersion.NAME, ExplainVersion.class);
 			explainVersion.configure(explain -> explain.setGroup(GROUP));
+			// the build information resource, part of the main resources of Java projects
+			TaskProvider<BuildInfo> buildInfo = target.getTasks().register(BuildInfo.NAME, BuildInfo.class, info -> {
+				info.setGroup(GROUP);
+				info.getInfo().convention(gitVersionExtension.getBuildInfoFields().map(gitVersionExtension::buildInfo));
+				info.getResourceName().convention(BuildInfo.DEFAULT_RESOURCE);
+				info.getOutputDirectory().convention(target.getLayout().getBuildDirectory().dir("generated/resources/" + BuildInfo.NAME));
+			});
+			target.getPluginManager().withPlugin("java", java -> target.getExtensions().getByType(SourceSetContainer.class)
+							.named(SourceSet.MAIN_SOURCE_SET_NAME, main -> main.getResources().srcDir(buildInfo)));
+			// the changelog, changed projects, version manifest, git snapshot, release and explain versions tasks (in the root project) cover the whole build
+			Project root = target.getRootProject();
+			if (target == root) {
+				target.getTasks().register(Changelog.NAME, Changelog.class, changelog -> {
+					changelog.setGroup(GROUP);
+					changelog.getOutputDirectory().convention(target.getLayout().getBuildDirectory().dir(Changelog.NAME));
+					changelog.getCommandTimeout().convention(gitVersionExtension.getCommandTimeout());
+				});
+				target.getTasks().register(ChangedProjects.NAME, ChangedProjects.class, changed -> {
+					changed.setGroup(GROUP);
+					changed.getBase().convention(gitVersionExtension.getChangeBase());
+					changed.getHead().convention(gitVersionExtension.getChangeHead());
+					changed.getOutputFile().convention(target.getLayout().getBuildDirectory().file(ChangedProjects.NAME + ".txt"));
+				});
+				target.getTasks().register(VersionManifestExport.NAME, VersionManifestExport.class, manifest -> {
+					manifest.setGroup(GROUP);
+					manifest.getEntries().convention(target.getProviders().provider(() -> VersionManifestExport.resolve(target).entries()));
+					manifest.getInjectedVersion().convention(target.getProviders().environmentVariable(gitVersionExtension.getVersionEnvironmentVariable()));
+					manifest.getPropertiesFile().convention(target.getLayout().getBuildDirectory().file(VersionManifestExport.PROPERTIES_FILE));
+					manifest.getJsonFile().convention(target.getLayout().getBuildDirectory().file(VersionManifestExport.JSON_FILE));
+				});
+				target.getTasks().register(GitSnapshotExport.NAME, GitSnapshotExport.class, snapshot -> {
+					snapshot.setGroup(GROUP);
+					snapshot.getSnapshotFile().convention(target.getLayout().getProjectDirectory().file(GitSnapshot.DEFAULT_FILE));
+				});
+				target.getTasks().register(ReleaseTags.NAME, ReleaseTags.class, release -> {
+					release.setGroup(GROUP);
+					release.getDryRun().convention(false);
+					release.getCommandTimeout().convention(gitVersionExtension.getCommandTimeout());
+				});
+				target.getTasks().register(ExplainVersions.NAME, ExplainVersions.class, explain -> {
+					explain.setGroup(GROUP);
+					explain.getReportFile().convention(target.getLayout().getBuildDirectory().file(ExplainVersions.NAME + ".json"));
+					explain.getParallelism().convention(Runtime.getRuntime().availableProcessors());
+				});
+			}
+			root.getPluginManager().withPlugin(ID, plugin -> root.getTasks().withType(Changelog.class)
+							.configureEach(changelog -> changelog.getProjectDirectories().put(target.getPath(), target.getProjectDir().getAbsolutePath())));
 
 			// is the version specified already?
 			var version = target.getVersion().toString();
 			if (version.equals(Project.DEFAULT_VERSION) || version.isEmpty()) {
-				// if not specified - use our plugin to determine it
-				target.setVersion(projectHelper.gitVersion());
+				// if not specified - use our plugin to determine it, when first used (after the build
+				// script configures the extension; the settings plugin may have already started on that)
+				target.setVersion(new LazyVersion(gitVersionExtension.getVersion()));
 			}
 		}
 		else {
@@ -0,0 +1,56 @@
+package io.github.duckasteroid.git.mvp;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.initialization.ProjectDescriptor;
+import org.gradle.api.initialization.Settings;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * An optional settings plugin that starts resolving project versions in the background as soon
+ * as the project layout is known (once <code>settings.gradle</code> is evaluated).
+ * The git work then overlaps with Gradle compiling the build scripts, and when
+ * {@link GitVersioningPlugin} is applied to a project it (usually) only has to collect the result.
+ * The versions are worked out with the extension conventions, so a project that configures its
+ * versioning works its version out again (through the caches the prefetch has filled).
+ * <p>
+ * Only the projects that applied {@link GitVersioningPlugin} in the last build are prefetched
+ * (see {@link PrefetchCandidates}), so the first build prefetches nothing.
+ */
+public class GitVersioningSettingsPlugin implements Plugin<Settings> {
+	private static final Logger log = Logging.getLogger(GitVersioningSettingsPlugin.class);
+	/**
+	 * The plugin ID
+	 */
+	public static final String ID = "io.github.duckasteroid.git-mvp.settings";
+
+	@Override
+	public void apply(Settings settings) {
+		settings.getGradle().settingsEvaluated(this::prefetch);
+	}
+
+	private void prefetch(Settings settings) {
+		GitVersionBuildService service = GitVersionBuildService.obtain(settings.getGradle());
+		Path rootDir = settings.getRootDir().toPath();
+		if (service.getRepositoryLocator().topology(rootDir).isEmpty() && service.getSnapshot(rootDir).isEmpty()) {
+			log.info("No git repository found for build @ {}, not prefetching versions", rootDir);
+			return;
+		}
+		Set<String> candidates = PrefetchCandidates.load(rootDir);
+		if (candidates.isEmpty()) {
+			log.info("No projects known to apply the plugin in build @ {} (yet), not prefetching versions", rootDir);
+			return;
+		}
+		prefetch(service, settings.getRootProject(), rootDir, candidates);
+	}
+
+	private void prefetch(GitVersionBuildService service, ProjectDescriptor project, Path rootDir, Set<String> candidates) {
+		if (candidates.contains(project.getPath())) {
+			service.prefetch(project.getPath(), project.getProjectDir().toPath(), rootDir);
+		}
+		project.getChildren().forEach(child -> prefetch(service, child, rootDir, candidates));
+	}
+}
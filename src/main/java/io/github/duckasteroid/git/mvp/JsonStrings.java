@@ -0,0 +1,36 @@
+package io.github.duckasteroid.git.mvp;
+
+/**
+ * Writes strings as JSON string literals, for the JSON the plugin writes by hand (it is small, and
+ * the plugin has no JSON library).
+ */
+public final class JsonStrings {
+	private JsonStrings() {
+	}
+
+	/**
+	 * Quote and escape a string as a JSON string literal
+	 * @param value the string
+	 * @return the JSON string literal
+	 */
+	public static String quote(String value) {
+		StringBuilder result = new StringBuilder(value.length() + 2).append('"');
+		for (char c : value.toCharArray()) {
+			switch (c) {
+				case '"' -> result.append("\\\"");
+				case '\\' -> result.append("\\\\");
+				case '\n' -> result.append("\\n");
+				case '\r' -> result.append("\\r");
+				case '\t' -> result.append("\\t");
+				default -> {
+					if (c < 0x20) {
+						result.append(String.format("\\u%04x", (int) c));
+					} else {
+						result.append(c);
+					}
+				}
+			}
+		}
+		return result.append('"').toString();
+	}
+}
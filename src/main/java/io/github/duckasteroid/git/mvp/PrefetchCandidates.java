@@ -0,0 +1,85 @@
+package io.github.duckasteroid.git.mvp;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Remembers which projects of a build applied {@link GitVersioningPlugin}, between builds, so the
+ * {@link GitVersioningSettingsPlugin} only prefetches the versions of those (and git is not kept
+ * busy with projects that are never versioned).
+ * <p>
+ * The projects are kept in the <code>.gradle</code> directory of the root project, and written
+ * when the build finishes (if they have changed).
+ */
+public final class PrefetchCandidates {
+	private static final Logger log = Logging.getLogger(PrefetchCandidates.class);
+	/**
+	 * The file (in the root project directory) the projects are kept in
+	 */
+	public static final String FILE = ".gradle/git-mvp/prefetch-projects";
+	private static final String HEADER = "git-mvp-prefetch-projects\t1";
+
+	private PrefetchCandidates() {
+	}
+
+	/**
+	 * The projects that applied the plugin in the last build
+	 * @param rootDir the root project directory
+	 * @return the Gradle paths of the projects (none, if not known)
+	 */
+	public static Set<String> load(Path rootDir) {
+		Set<String> projects = new TreeSet<>();
+		Path file = rootDir.resolve(FILE);
+		if (!Files.isRegularFile(file)) {
+			return projects;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			if (!HEADER.equals(reader.readLine())) {
+				return projects;
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					projects.add(line);
+				}
+			}
+		} catch (IOException e) {
+			// only a hint, so prefetch nothing
+			log.info("Unable to read the projects to prefetch from {}", file, e);
+			projects.clear();
+		}
+		return projects;
+	}
+
+	/**
+	 * Keep the projects that applied the plugin in this build (unless they are already kept)
+	 * @param rootDir the root project directory
+	 * @param projects the Gradle paths of the projects
+	 */
+	public static void save(Path rootDir, Set<String> projects) {
+		Set<String> sorted = new TreeSet<>(projects);
+		if (sorted.equals(load(rootDir))) {
+			return;
+		}
+		Path file = rootDir.resolve(FILE);
+		try {
+			AtomicFiles.write(file, out -> {
+				out.write(HEADER + "\n");
+				for (String project : sorted) {
+					out.write(project);
+					out.write('\n');
+				}
+			});
+		} catch (IOException e) {
+			log.info("Unable to write the projects to prefetch to {}", file, e);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package io.github.duckasteroid.git.mvp;
+
+/**
+ * How untracked files are treated when checking if the repository is dirty.
+ * These map to the <code>git status --untracked-files</code> modes.
+ */
+public enum UntrackedFiles {
+	/**
+	 * Untracked files do not make the repository dirty
+	 */
+	NO,
+	/**
+	 * Untracked files (and directories) make the repository dirty
+	 */
+	NORMAL,
+	/**
+	 * Untracked files make the repository dirty, and are listed individually
+	 * (rather than just their untracked directory)
+	 */
+	ALL;
+
+	/**
+	 * The git command line switch for this mode
+	 * @return the switch
+	 */
+	public String option() {
+		return "--untracked-files=" + name().toLowerCase();
+	}
+}
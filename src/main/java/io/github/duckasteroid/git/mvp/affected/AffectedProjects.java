@@ -0,0 +1,151 @@
+package io.github.duckasteroid.git.mvp.affected;
+
+import io.github.duckasteroid.git.mvp.Git;
+import io.github.duckasteroid.git.mvp.GitVersionBuildService;
+import io.github.duckasteroid.git.mvp.repo.ProjectPathTrie;
+import io.github.duckasteroid.git.mvp.repo.RepositoryLocator;
+import io.github.duckasteroid.git.mvp.repo.RepositoryTopology;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.ProjectDependency;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Works out which projects are affected by the changes between two revisions: those that own
+ * a changed path, and every project that depends on them (directly or not).
+ * The changes come from the repository of the root project, where a submodule is one path (its
+ * commit), so a change to a submodule affects every project in it.
+ */
+public final class AffectedProjects {
+	private final Map<String, String> directories;
+	private final Map<String, Set<String>> dependencies;
+	private final Set<String> submodules;
+
+	/**
+	 * Create for a set of projects
+	 * @param directories the directory of each project (from the repository root, using '/') by project path
+	 * @param dependencies the projects each project depends on (by project path)
+	 */
+	public AffectedProjects(Map<String, String> directories, Map<String, Set<String>> dependencies) {
+		this(directories, dependencies, Set.of());
+	}
+
+	/**
+	 * Create for a set of projects, some of which may be in submodules
+	 * @param directories the directory of each project (from the repository root, using '/') by project path
+	 * @param dependencies the projects each project depends on (by project path)
+	 * @param submodules the directories of the submodules the projects are in (from the repository root, using '/')
+	 */
+	public AffectedProjects(Map<String, String> directories, Map<String, Set<String>> dependencies, Set<String> submodules) {
+		this.directories = directories;
+		this.dependencies = dependencies;
+		this.submodules = submodules;
+	}
+
+	/**
+	 * Create for all the projects in a Gradle build (that are in the git repository of the root
+	 * project, or its submodules), with the project dependencies they declare
+	 * @param project any project in the build
+	 * @return the affected projects calculator
+	 */
+	public static AffectedProjects of(Project project) {
+		RepositoryLocator locator = GitVersionBuildService.obtain(project).getRepositoryLocator();
+		Project root = project.getRootProject();
+		Optional<RepositoryTopology> rootRepository = locator.topology(root.getProjectDir().toPath());
+		Map<String, String> directories = new TreeMap<>();
+		Map<String, Set<String>> dependencies = new TreeMap<>();
+		Set<String> submodules = new TreeSet<>();
+		for (Project each : root.getAllprojects()) {
+			Path projectDir = each.getProjectDir().toPath();
+			Optional<RepositoryTopology> repository = locator.topology(projectDir);
+			if (rootRepository.isEmpty() || repository.isEmpty()) {
+				continue;
+			}
+			// the changes are listed by the root repository, so its paths are used for every project
+			directories.put(each.getPath(), gitPath(rootRepository.get().relativize(projectDir)));
+			if (!repository.get().workTree().equals(rootRepository.get().workTree())) {
+				submodules.add(gitPath(rootRepository.get().relativize(repository.get().workTree())));
+			}
+			Set<String> dependsOn = new TreeSet<>();
+			each.getConfigurations().forEach(configuration -> configuration.getDependencies()
+							.withType(ProjectDependency.class)
+							.forEach(dependency -> dependsOn.add(dependency.getPath())));
+			dependencies.put(each.getPath(), dependsOn);
+		}
+		return new AffectedProjects(directories, dependencies, submodules);
+	}
+
+	private static String gitPath(Path relative) {
+		return relative.toString().replace('\\', '/');
+	}
+
+	/**
+	 * The projects affected by the changes between two revisions (from one diff of their trees)
+	 * @param git the repository
+	 * @param base the revision to compare from (e.g. "origin/main")
+	 * @param head the revision to compare to (e.g. "HEAD")
+	 * @return the affected project paths (in order)
+	 */
+	public SortedSet<String> between(Git git, String base, String head) {
+		return affectedBy(git.changedPaths(base, head));
+	}
+
+	/**
+	 * The projects (that this knows about)
+	 * @return the project paths
+	 */
+	public Set<String> projects() {
+		return directories.keySet();
+	}
+
+	/**
+	 * The projects affected by changes to some paths
+	 * @param paths the changed paths (from the repository root, using '/')
+	 * @return the affected project paths (in order)
+	 */
+	public SortedSet<String> affectedBy(Iterable<String> paths) {
+		ProjectPathTrie<String> owners = new ProjectPathTrie<>();
+		directories.forEach((project, directory) -> owners.put(directory, project));
+		SortedSet<String> affected = new TreeSet<>();
+		for (String path : paths) {
+			owners.owner(path).ifPresent(affected::add);
+			if (submodules.contains(path)) {
+				// a new submodule commit, so anything in it may have changed
+				directories.forEach((project, directory) -> {
+					if (directory.equals(path) || directory.startsWith(path + "/")) {
+						affected.add(project);
+					}
+				});
+			}
+		}
+		return withDependents(affected);
+	}
+
+	/**
+	 * Add the projects that depend on the given ones (transitively)
+	 */
+	private SortedSet<String> withDependents(SortedSet<String> changed) {
+		Map<String, Set<String>> dependents = new HashMap<>();
+		dependencies.forEach((project, dependsOn) ->
+						dependsOn.forEach(dependency -> dependents.computeIfAbsent(dependency, d -> new TreeSet<>()).add(project)));
+		SortedSet<String> affected = new TreeSet<>(changed);
+		Deque<String> queue = new ArrayDeque<>(changed);
+		while (!queue.isEmpty()) {
+			for (String dependent : dependents.getOrDefault(queue.pop(), Set.of())) {
+				if (affected.add(dependent)) {
+					queue.push(dependent);
+				}
+			}
+		}
+		return affected;
+	}
+}
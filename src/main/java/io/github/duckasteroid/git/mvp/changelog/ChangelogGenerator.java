@@ -0,0 +1,438 @@
+package io.github.duckasteroid.git.mvp.changelog;
+
+import io.github.duckasteroid.git.mvp.Git;
+import io.github.duckasteroid.git.mvp.history.HistoryCommit;
+import io.github.duckasteroid.git.mvp.repo.ProjectPathTrie;
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes a changelog for each of a set of projects, from one walk of the repository history.
+ * <p>
+ * Each commit is put in the bucket of the project(s) that own the paths it changed, and of the
+ * version range it falls in (between the project's version tags). Commits are written out as
+ * they are met, so memory use does not grow with the length of the history.
+ * <p>
+ * Each released version is kept in its own fragment file, which doesn't change once written.
+ * So a later run only walks back as far as the newest existing fragment of every project, and
+ * only writes the versions added since (if tags are moved, removed, or added to older commits the
+ * project is written from scratch). A project with no versions yet keeps the commit its changes
+ * were walked from, and a later run stops there, reusing the changes written then. The fragments
+ * (and the unreleased changes) are then put together into a <code>CHANGELOG.md</code> for each
+ * project.
+ */
+public class ChangelogGenerator {
+	/**
+	 * The name of the changelog file written for each project
+	 */
+	public static final String CHANGELOG_FILE = "CHANGELOG.md";
+	/**
+	 * The folder (in each project's output) holding a fragment for each version
+	 */
+	public static final String VERSIONS_DIR = "versions";
+	// records the version tags the fragments were written for
+	private static final String TAGS_FILE = ".tags";
+	// records the commit the unreleased changes of a project with no versions were walked from
+	private static final String UNRELEASED_HEAD_FILE = ".unreleased";
+	private static final String UNRELEASED_FILE = "unreleased.md";
+	// the most fragment files open for writing at once
+	private static final int MAX_OPEN_FILES = 32;
+
+	private final Git git;
+	private final Path outputDir;
+
+	/**
+	 * What a run of the generator did
+	 * @param commits the number of commits read from the history
+	 * @param written the version fragments written (as "project id: tag")
+	 */
+	public record Summary(int commits, List<String> written) {
+	}
+
+	/**
+	 * Create to write changelogs
+	 * @param git the repository
+	 * @param outputDir the folder to write the changelogs in (a sub folder for each project)
+	 */
+	public ChangelogGenerator(Git git, Path outputDir) {
+		this.git = git;
+		this.outputDir = outputDir;
+	}
+
+	/**
+	 * Write (or bring up to date) the changelogs for projects
+	 * @param projects the projects
+	 * @return a summary of what was done
+	 * @throws UncheckedIOException if the changelogs can't be written
+	 */
+	public Summary generate(List<ChangelogProject> projects) {
+		try {
+			Files.createDirectories(outputDir);
+			Path temporary = Files.createTempDirectory(outputDir, ".changelog");
+			try {
+				List<ProjectLog> logs = new ArrayList<>();
+				int[] commits = {0};
+				String[] head = {null};
+				try (Fragments fragments = new Fragments(temporary)) {
+					ProjectPathTrie<ProjectLog> owners = new ProjectPathTrie<>();
+					Map<String, List<ProjectLog>> tagged = new HashMap<>();
+					Map<String, List<ProjectLog>> resuming = new HashMap<>();
+					for (ChangelogProject project : projects) {
+						ProjectLog log = new ProjectLog(project, fragments);
+						logs.add(log);
+						owners.put(project.directory(), log);
+						project.versionTags().forEach(tag -> tagged.computeIfAbsent(tag.value(), t -> new ArrayList<>()).add(log));
+						log.resumeAt.ifPresent(commit -> resuming.computeIfAbsent(commit, c -> new ArrayList<>()).add(log));
+					}
+					int[] remaining = {logs.size()};
+					git.walkHistory(null, null, true, commit -> {
+						commits[0]++;
+						if (head[0] == null) {
+							head[0] = commit.id();
+						}
+						// a project with no versions is done where the last walk started
+						for (ProjectLog log : resuming.getOrDefault(commit.id(), List.of())) {
+							if (!log.done && log.resume()) {
+								remaining[0]--;
+							}
+						}
+						// a tag starts (going back in time) a new version of the projects it belongs to
+						for (String tag : commit.tags()) {
+							for (ProjectLog log : tagged.getOrDefault(tag, List.of())) {
+								if (!log.done && log.startVersion(tag)) {
+									remaining[0]--;
+								}
+							}
+						}
+						Set<ProjectLog> changed = new LinkedHashSet<>();
+						commit.paths().forEach(path -> owners.owner(path).ifPresent(changed::add));
+						for (ProjectLog log : changed) {
+							if (!log.done) {
+								log.add(commit);
+							}
+						}
+						// stop once every project has reached versions written before
+						return remaining[0] > 0;
+					});
+				}
+				// the fragments are all written (and closed), so the changelogs can be put together
+				List<String> written = new ArrayList<>();
+				for (ProjectLog log : logs) {
+					written.addAll(log.finish(head[0]));
+				}
+				return new Summary(commits[0], written);
+			} finally {
+				delete(temporary);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write changelogs in " + outputDir, e);
+		}
+	}
+
+	/**
+	 * The changelog of one project, while the history is walked
+	 */
+	private final class ProjectLog {
+		private final ChangelogProject project;
+		private final Fragments fragments;
+		private final Path dir;
+		private final Path versionsDir;
+		private final Map<String, GitTag> tags = new LinkedHashMap<>();
+		// the fragment being written (going back in history), and those finished
+		private Fragment current;
+		private final List<Fragment> finished = new ArrayList<>();
+		// reached a version written before (so the rest of history is too)
+		private boolean done;
+		// the versions in history order (most recent first): as met in this walk, and before
+		private final List<String> met = new ArrayList<>();
+		private final List<String> previous = new ArrayList<>();
+		// for a project with no versions: the commit the last walk started at
+		private final Optional<String> resumeAt;
+
+		private ProjectLog(ChangelogProject project, Fragments fragments) throws IOException {
+			this.project = project;
+			this.fragments = fragments;
+			this.dir = outputDir.resolve(project.id());
+			this.versionsDir = dir.resolve(VERSIONS_DIR);
+			project.versionTags().forEach(tag -> tags.put(tag.value(), tag));
+			if (!fragmentsStillValid()) {
+				delete(versionsDir);
+			}
+			this.current = fragments.start(dir.resolve(UNRELEASED_FILE), "## Unreleased\n\n");
+			Path unreleasedHead = versionsDir.resolve(UNRELEASED_HEAD_FILE);
+			this.resumeAt = tags.isEmpty() && Files.exists(unreleasedHead)
+							? Optional.of(Files.readString(unreleasedHead, StandardCharsets.UTF_8).trim()).filter(id -> !id.isEmpty())
+							: Optional.empty();
+		}
+
+		/**
+		 * The fragments written before are only still valid if the tags they were written for are
+		 * unchanged, and any new ones are no older than them
+		 */
+		private boolean fragmentsStillValid() throws IOException {
+			Path tagsFile = versionsDir.resolve(TAGS_FILE);
+			if (!Files.exists(tagsFile)) {
+				return false;
+			}
+			List<String> lines = Files.readAllLines(tagsFile, StandardCharsets.UTF_8);
+			Set<String> now = tags.values().stream().map(ProjectLog::tagLine).collect(Collectors.toSet());
+			if (!now.containsAll(lines)) {
+				return false;
+			}
+			List<String> previousOrder = lines.stream().map(line -> line.substring(0, line.lastIndexOf(' '))).toList();
+			Set<String> previousNames = new HashSet<>(previousOrder);
+			OffsetDateTime newestPrevious = tags.values().stream()
+							.filter(tag -> previousNames.contains(tag.value()))
+							.map(GitTag::commitDate)
+							.filter(Objects::nonNull)
+							.max(Comparator.naturalOrder())
+							.orElse(null);
+			boolean valid = newestPrevious == null || tags.values().stream()
+							.filter(tag -> !previousNames.contains(tag.value()))
+							.map(GitTag::commitDate)
+							.filter(Objects::nonNull)
+							.noneMatch(date -> date.isBefore(newestPrevious));
+			if (valid) {
+				previous.addAll(previousOrder);
+			}
+			return valid;
+		}
+
+		private static String tagLine(GitTag tag) {
+			return tag.value() + " " + tag.longCommit();
+		}
+
+		/**
+		 * The versions most recent first: those met in this walk, then those from before, then any
+		 * not in the history at all (by commit date)
+		 */
+		private List<String> order() {
+			Set<String> order = new LinkedHashSet<>(met);
+			order.addAll(previous);
+			order.addAll(tags.keySet());
+			return List.copyOf(order);
+		}
+
+		/**
+		 * Start the version (going back in time) marked by a tag
+		 * @return true if that version was written before (and so the project is done)
+		 */
+		private boolean startVersion(String tag) throws UncheckedIOException {
+			finished.add(current);
+			current = null;
+			met.add(tag);
+			Path fragment = fragmentFile(tag);
+			if (Files.exists(fragment)) {
+				done = true;
+				return true;
+			}
+			GitTag version = tags.get(tag);
+			current = fragments.start(fragment, "## " + version.versionString() + " (" + tag + ")\n\n");
+			return false;
+		}
+
+		/**
+		 * Reach the commit the last walk started at (with no versions, every change from there back
+		 * was written then, as the unreleased changes)
+		 * @return true (the project is done)
+		 */
+		private boolean resume() throws UncheckedIOException {
+			Path unreleased = dir.resolve(UNRELEASED_FILE);
+			try {
+				if (Files.exists(unreleased)) {
+					// the changes, after the header
+					try (Stream<String> lines = Files.lines(unreleased, StandardCharsets.UTF_8)) {
+						lines.skip(2).filter(line -> !line.isEmpty()).forEach(line -> fragments.append(current, line + "\n"));
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			done = true;
+			return true;
+		}
+
+		private void add(HistoryCommit commit) {
+			fragments.append(current, "- " + commit.subject() + " (" + commit.shortId() + ")\n");
+		}
+
+		private Path fragmentFile(String tag) {
+			return versionsDir.resolve(tag.replace('/', '_') + ".md");
+		}
+
+		/**
+		 * Move the fragments into place, and put the changelog together
+		 * @param head the commit the walk started at (or null, if there is no history)
+		 * @return the version fragments written
+		 */
+		private List<String> finish(@Nullable String head) throws IOException {
+			if (current != null) {
+				// the start of history
+				finished.add(current);
+				current = null;
+			}
+			List<String> written = new ArrayList<>();
+			Files.createDirectories(versionsDir);
+			for (Fragment fragment : finished) {
+				if (fragment.target().getFileName().toString().equals(UNRELEASED_FILE) && fragment.entries() == 0) {
+					Files.deleteIfExists(fragment.target());
+					continue;
+				}
+				Files.move(fragment.temporary(), fragment.target(), StandardCopyOption.REPLACE_EXISTING);
+				if (fragment.target().startsWith(versionsDir)) {
+					written.add(project.id() + ": " + fragment.target().getFileName());
+				}
+			}
+			Files.write(versionsDir.resolve(TAGS_FILE), order().stream().map(tags::get).map(ProjectLog::tagLine).toList(), StandardCharsets.UTF_8);
+			Path unreleasedHead = versionsDir.resolve(UNRELEASED_HEAD_FILE);
+			if (tags.isEmpty() && head != null) {
+				Files.writeString(unreleasedHead, head + "\n", StandardCharsets.UTF_8);
+			} else {
+				Files.deleteIfExists(unreleasedHead);
+			}
+			writeChangelog();
+			return written;
+		}
+
+		private void writeChangelog() throws IOException {
+			Path changelog = dir.resolve(CHANGELOG_FILE);
+			Path temporary = Files.createTempFile(dir, ".changelog", ".md");
+			try (OutputStream out = Files.newOutputStream(temporary)) {
+				out.write(("# Changelog: " + project.id() + "\n\n").getBytes(StandardCharsets.UTF_8));
+				List<Path> parts = new ArrayList<>();
+				parts.add(dir.resolve(UNRELEASED_FILE));
+				order().forEach(tag -> parts.add(fragmentFile(tag)));
+				for (Path part : parts) {
+					if (Files.exists(part)) {
+						Files.copy(part, out);
+						out.write('\n');
+					}
+				}
+			}
+			Files.move(temporary, changelog, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * A fragment file being written (to a temporary file, moved to its target once complete)
+	 */
+	private static final class Fragment {
+		private final Path temporary;
+		private final Path target;
+		private int entries;
+
+		private Fragment(Path temporary, Path target) {
+			this.temporary = temporary;
+			this.target = target;
+		}
+
+		private Path temporary() {
+			return temporary;
+		}
+
+		private Path target() {
+			return target;
+		}
+
+		private int entries() {
+			return entries;
+		}
+	}
+
+	/**
+	 * Writes fragments, keeping only a few files open at once (the rest are reopened to append)
+	 */
+	private static final class Fragments implements AutoCloseable {
+		private final Path temporaryDir;
+		private final LinkedHashMap<Path, Writer> open = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Path, Writer> eldest) {
+				if (size() > MAX_OPEN_FILES) {
+					close(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+
+		private Fragments(Path temporaryDir) {
+			this.temporaryDir = temporaryDir;
+		}
+
+		private Fragment start(Path target, String header) {
+			try {
+				Fragment fragment = new Fragment(Files.createTempFile(temporaryDir, "fragment", ".md"), target);
+				write(fragment, header);
+				return fragment;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void append(Fragment fragment, String entry) {
+			write(fragment, entry);
+			fragment.entries++;
+		}
+
+		private void write(Fragment fragment, String text) {
+			try {
+				Writer writer = open.get(fragment.temporary());
+				if (writer == null) {
+					writer = Files.newBufferedWriter(fragment.temporary(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+					open.put(fragment.temporary(), writer);
+				}
+				writer.write(text);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void close() {
+			open.values().forEach(Fragments::close);
+			open.clear();
+		}
+
+		private static void close(Writer writer) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private static void delete(Path path) throws IOException {
+		if (Files.exists(path)) {
+			try (Stream<Path> files = Files.walk(path)) {
+				for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+					Files.delete(file);
+				}
+			}
+		}
+	}
+}
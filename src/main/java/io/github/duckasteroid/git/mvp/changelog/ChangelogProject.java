@@ -0,0 +1,14 @@
+package io.github.duckasteroid.git.mvp.changelog;
+
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
+
+import java.util.List;
+
+/**
+ * A project to write a changelog for
+ * @param id identifies the project (and names its folder in the output, e.g. "some/child")
+ * @param directory the project directory (from the repository root, using '/'), blank for the root
+ * @param versionTags the tags that mark the releases of the project, most recent first
+ */
+public record ChangelogProject(String id, String directory, List<GitTag> versionTags) {
+}
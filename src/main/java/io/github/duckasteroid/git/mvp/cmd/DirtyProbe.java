@@ -0,0 +1,106 @@
+package io.github.duckasteroid.git.mvp.cmd;
+
+import io.github.duckasteroid.git.mvp.Git;
+import io.github.duckasteroid.git.mvp.GitException;
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answers "is the working tree dirty?" as cheaply as possible.
+ * It reads the NUL delimited <code>git status --porcelain -z</code> output as it is produced,
+ * and kills git as soon as the first record arrives - so the cost is that of finding one change,
+ * not of listing them all.
+ */
+public class DirtyProbe {
+	private final Path workingDir;
+	private final Duration timeout;
+	private final ProcessWatchdog.Scope scope;
+
+	/**
+	 * Construct to probe in the given working directory.
+	 * @param workingDir the working directory
+	 * @param timeout how long git may run for
+	 */
+	public DirtyProbe(Path workingDir, Duration timeout) {
+		this(workingDir, timeout, null);
+	}
+
+	/**
+	 * Construct to probe in the given working directory, for a scope (e.g. a build) whose
+	 * processes can be cancelled together.
+	 * @param workingDir the working directory
+	 * @param timeout how long git may run for
+	 * @param scope (optional) what git is run for, or null
+	 */
+	public DirtyProbe(Path workingDir, Duration timeout, @Nullable ProcessWatchdog.Scope scope) {
+		this.workingDir = workingDir;
+		this.timeout = timeout;
+		this.scope = scope;
+	}
+
+	/**
+	 * Is the working tree dirty?
+	 * @param pattern (optional) a path pattern to restrict the check to, or null
+	 * @param untracked how to treat untracked files
+	 * @return true if there is at least one change
+	 * @throws GitException If git fails
+	 */
+	public boolean isDirty(@Nullable String pattern, UntrackedFiles untracked) {
+		List<String> command = new ArrayList<>(Arrays.asList("git", "--no-optional-locks", "status", "--porcelain", "-z", untracked.option()));
+		if (pattern != null && !pattern.isBlank()) {
+			command.addAll(Arrays.asList("--", pattern));
+		}
+		ProcessBuilder pb = new ProcessBuilder(command).directory(workingDir.toFile());
+		Process p = null;
+		try {
+			ProcessLimiter.Permit permit = ProcessLimiter.INSTANCE.acquire();
+			try {
+				p = pb.start();
+				p.getOutputStream().close();
+				try (ProcessWatchdog.Watch watch = ProcessWatchdog.INSTANCE.watch(p, timeout, scope);
+						 InputStream in = new BufferedInputStream(p.getInputStream())) {
+					try {
+						int b;
+						while ((b = in.read()) != -1) {
+							if (b == Git.NULL_CHAR) {
+								// one complete record is all we need
+								p.destroy();
+								return true;
+							}
+						}
+					} catch (IOException e) {
+						// killing the process (on timeout or cancel) closes its streams
+						if (watch.termination() == ProcessResult.Termination.EXITED) {
+							throw e;
+						}
+					}
+					int exitCode = p.waitFor();
+					String error = watch.termination() == ProcessResult.Termination.EXITED
+									? new String(p.getErrorStream().readAllBytes(), StandardCharsets.UTF_8) : "";
+					GitException.check(command, new ProcessResult(List.of(), error, exitCode, watch.termination()), timeout);
+					return false;
+				}
+			} finally {
+				permit.release();
+			}
+		} catch (IOException ioe) {
+			throw new RuntimeException(ioe);
+		} catch (InterruptedException e) {
+			if (p != null) {
+				p.destroyForcibly();
+			}
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+}
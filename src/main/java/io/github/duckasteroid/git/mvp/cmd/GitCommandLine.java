@@ -1,18 +1,36 @@
 package io.github.duckasteroid.git.mvp.cmd;
 
 import io.github.duckasteroid.git.mvp.Change;
+import io.github.duckasteroid.git.mvp.CommitCounting;
 import io.github.duckasteroid.git.mvp.Git;
 import io.github.duckasteroid.git.mvp.GitException;
+import io.github.duckasteroid.git.mvp.GitTimeoutException;
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+import io.github.duckasteroid.git.mvp.history.CommitCountCache;
+import io.github.duckasteroid.git.mvp.history.FirstParentChain;
+import io.github.duckasteroid.git.mvp.history.FirstParentChainCache;
+import io.github.duckasteroid.git.mvp.history.HistoryCommit;
+import io.github.duckasteroid.git.mvp.repo.RepositoryLocator;
+import io.github.duckasteroid.git.mvp.repo.RepositoryTopology;
+import io.github.duckasteroid.git.mvp.tags.TagTable;
+import io.github.duckasteroid.git.mvp.tags.TagTableCache;
+import io.github.duckasteroid.git.mvp.tags.TagTableStore;
 import io.github.duckasteroid.git.mvp.version.source.GitTag;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 
 
 import javax.annotation.Nullable;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -27,7 +45,32 @@ public class GitCommandLine implements Git {
 
 	private static final Logger log = Logging.getLogger(GitCommandLine.class);
 
+	// identifies identical git queries (of the same build, that are cancelled together)
+	private record Query(List<String> command, Path workingDir, @Nullable ProcessWatchdog.Scope scope) {}
+
+	// marks the header line of each commit in the history
+	private static final char HISTORY_HEADER = '\u0002';
+	private static final char HISTORY_SEPARATOR = '\u0001';
+	private static final char HISTORY_BODY_END = '\u0003';
+
+	// git queries that are running now
+	private static final SingleFlight<Query, ProcessResult> QUERIES = new SingleFlight<>();
+
 	private final Path workingDir;
+	// (optional) shares tag tables with other instances
+	private final TagTableCache tagTables;
+	// (optional) shares first-parent chains with other instances
+	private final FirstParentChainCache chains;
+	// (optional) remembers commit counts between builds
+	private final CommitCountCache counts;
+	// the chain, if not shared
+	private FirstParentChain chain;
+	// the layout of the repository (once found)
+	private volatile RepositoryTopology topology;
+	// how long any one git command may run for
+	private volatile Duration timeout = ProcessResult.DEFAULT_TIMEOUT;
+	// (optional) what git is run for, so it can be killed when that build is cancelled
+	private volatile ProcessWatchdog.Scope scope;
 
 	/**
 	 * Construct to operate in the given working directory. If null this operates in the default
@@ -35,12 +78,79 @@ public class GitCommandLine implements Git {
 	 * @param workingDirectory the working directory
 	 */
 	public GitCommandLine(Path workingDirectory) {
+		this(workingDirectory, null);
+	}
+
+	/**
+	 * Construct to operate in the given working directory, sharing tag data through a cache.
+	 * @param workingDirectory the working directory
+	 * @param tagTables (optional) a cache to share the tag table through, if null tags are
+	 *                  re-read from git on every query
+	 */
+	public GitCommandLine(Path workingDirectory, @Nullable TagTableCache tagTables) {
+		this(workingDirectory, tagTables, null);
+	}
+
+	/**
+	 * Construct to operate in the given working directory, sharing tag and history data through caches.
+	 * @param workingDirectory the working directory
+	 * @param tagTables (optional) a cache to share the tag table through, if null tags are
+	 *                  re-read from git on every query
+	 * @param chains (optional) a cache to share the first-parent chain through, if null it is only
+	 *               shared by queries to this instance
+	 */
+	public GitCommandLine(Path workingDirectory, @Nullable TagTableCache tagTables, @Nullable FirstParentChainCache chains) {
+		this(workingDirectory, tagTables, chains, null);
+	}
+
+	/**
+	 * Construct to operate in the given working directory, sharing tag and history data through
+	 * caches, and remembering commit counts between builds.
+	 * @param workingDirectory the working directory
+	 * @param tagTables (optional) a cache to share the tag table through, if null tags are
+	 *                  re-read from git on every query
+	 * @param chains (optional) a cache to share the first-parent chain through, if null it is only
+	 *               shared by queries to this instance
+	 * @param counts (optional) a cache of commit counts, so only new commits are counted (this
+	 *               needs the tag table cache too)
+	 */
+	public GitCommandLine(Path workingDirectory, @Nullable TagTableCache tagTables, @Nullable FirstParentChainCache chains,
+												@Nullable CommitCountCache counts) {
 		this.workingDir = workingDirectory;
+		this.tagTables = tagTables;
+		this.chains = chains;
+		this.counts = counts;
+	}
+
+	/**
+	 * How long any one git command may run for, before it is killed
+	 * @return the timeout
+	 */
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Set how long any one git command may run for, before it is killed
+	 * @param timeout the timeout
+	 */
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Set what the git processes of this instance are run for (e.g. a build), so they are killed
+	 * when (and only when) it is cancelled
+	 * @param scope the scope, or null if git is never cancelled
+	 */
+	public void setScope(@Nullable ProcessWatchdog.Scope scope) {
+		this.scope = scope;
 	}
 
 	@Override
 	public Optional<Path> getRootDir() {
-		return gitRootDir(workingDir.toFile());
+		// found without forking git
+		return topology().map(RepositoryTopology::workTree);
 	}
 
 	@Override
@@ -49,11 +159,18 @@ public class GitCommandLine implements Git {
 	}
 
 	/**
-	 * For a given file, find the root of the git repository that contains it
+	 * For a given file, find the root of the git repository that contains it. This is found without
+	 * running git (see {@link RepositoryLocator}, which also finds the common git directory of a
+	 * worktree, and the repository of a submodule), unless git is configured some other way
+	 * (e.g. <code>GIT_DIR</code>).
 	 * @param somewhere the file or folder that might be in a git repository
 	 * @return the root of the git repository (if any)
 	 */
 	public static Optional<Path> gitRootDir(File somewhere) {
+		Optional<RepositoryTopology> located = RepositoryLocator.locate(somewhere.toPath());
+		if (located.isPresent()) {
+			return located.map(RepositoryTopology::workTree);
+		}
 		//git rev-parse --show-toplevel
 		ProcessResult rootCommand = withGit(List.of("rev-parse", "--show-toplevel"), somewhere.toPath(), false);
 		if (rootCommand.getExitCode() != 0) {
@@ -81,48 +198,337 @@ public class GitCommandLine implements Git {
 			}
 			args.add(path);
 		}
-		return withGit(args, workingDir, true).output().findFirst().orElseThrow();
+		return query(args).output().findFirst().orElseThrow();
 	}
 
 	@Override
-	public int gitCommitCount(String tag, String path) {
-		ArrayList<String> args = new ArrayList<String>(Arrays.asList("rev-list", "--count", tag + "..HEAD"));
+	public int gitCommitCount(String tag, String path, CommitCounting counting) {
+		if (counting == CommitCounting.FIRST_PARENT) {
+			// a scan of the (shared) chain, unless the tag is not on it
+			OptionalInt count = firstParentChain().count(tag, path);
+			if (count.isPresent()) {
+				return count.getAsInt();
+			}
+		}
+		else if (counts != null && tagTables != null) {
+			// only the commits since the count was last worked out are counted
+			Optional<GitTag> tagged = gitTag(tag);
+			if (tagged.isPresent()) {
+				return counts.count(repositoryKey(), worktreeKey(), tagged.get().longCommit(), path,
+								() -> gitCommitID(false, null), commitCounter);
+			}
+		}
+		List<String> revisions = List.of(tag + "..HEAD");
+		return counting == CommitCounting.FIRST_PARENT
+						? countCommits(List.of("--first-parent"), revisions, path)
+						: countCommits(List.of(), revisions, path);
+	}
+
+	private int countCommits(List<String> options, List<String> revisions, @Nullable String path) {
+		ArrayList<String> args = new ArrayList<String>(Arrays.asList("rev-list", "--count"));
+		args.addAll(options);
+		args.addAll(revisions);
 		if (path != null && !path.isBlank()) {
 			args.addAll(Arrays.asList("--", path));
 		}
-		return withGit(args, workingDir, true).output().findFirst().map(Integer::parseInt).orElseThrow();
+		return query(args).output().findFirst().map(Integer::parseInt).orElseThrow();
+	}
+
+	// answers the commit count cache
+	private final CommitCountCache.Counter commitCounter = new CommitCountCache.Counter() {
+		@Override
+		public int count(List<String> revisions, String path) {
+			return countCommits(List.of(), revisions, path);
+		}
+
+		@Override
+		public boolean isAncestor(String ancestor, String descendant) {
+			var command = command(List.of("merge-base", "--is-ancestor", ancestor, descendant));
+			ProcessResult result = execute(command, null);
+			// 1 means not an ancestor, anything else is an error
+			if (result.getExitCode() == 1 && result.getTermination() == ProcessResult.Termination.EXITED) {
+				return false;
+			}
+			GitException.check(command, result, timeout);
+			return true;
+		}
+	};
+
+	/**
+	 * The first-parent chain from HEAD (shared through the cache, if there is one)
+	 * @return the chain
+	 */
+	private FirstParentChain firstParentChain() {
+		if (chains != null) {
+			return chains.get(worktreeKey(), this::newFirstParentChain);
+		}
+		synchronized (this) {
+			if (chain == null) {
+				chain = newFirstParentChain();
+			}
+			return chain;
+		}
+	}
+
+	private FirstParentChain newFirstParentChain() {
+		// merges are listed with the paths they changed from their first parent
+		return new FirstParentChain((start, visitor) ->
+						walk(List.of("--first-parent"), start == null ? "HEAD" : start, null, true, visitor));
 	}
 
 	@Override
 	public String branchName() {
 		var args = new ArrayList<String>(Arrays.asList("rev-parse", "--abbrev-ref", "HEAD"));
-		return withGit(args, workingDir, true).output().findFirst().orElseThrow();
+		return query(args).output().findFirst().orElseThrow();
 	}
 
 	@Override
 	public List<GitTag> gitTags(String pattern) {
-		ArrayList<String> args = new ArrayList<String>(Arrays.asList("for-each-ref", "--sort=-committerdate", "--format=\"" + GitTag.formatString() + "\""));
+		return tagTable().matching(pattern, explanation(pattern));
+	}
+
+	@Override
+	public Optional<GitTag> latestTag(String pattern) {
+		if (tagTables != null) {
+			Optional<TagTable> loaded = tagTables.peek(repositoryKey());
+			if (loaded.isPresent()) {
+				return loaded.get().latest(pattern, explanation(pattern));
+			}
+		}
+		// let git stop after the first ref, rather than listing them all
+		return readTags(pattern, 1).latest(pattern, explanation(pattern));
+	}
+
+	@Override
+	public Optional<GitTag> gitTag(String name) {
+		TagTable table = tagTables == null ? null : tagTables.peek(repositoryKey()).orElse(null);
+		if (table == null) {
+			// only that ref (a ref name cannot be a glob), rather than listing them all
+			table = readTags(name, 1);
+		}
+		return table.matching(name, explanation(name)).stream().filter(tag -> tag.value().equals(name)).findFirst();
+	}
+
+	@Override
+	public List<GitTag> ancestorTags(String path, @Nullable String leafPattern) {
+		// one scan of the tags, then a walk of their namespaces
+		String leaf = leafPattern == null ? "*" : leafPattern;
+		return tagTable().namespaces().nearest(path.replace('\\', '/'), leafPattern,
+						namespace -> explanation(namespace.isEmpty() ? leaf : namespace + "/" + leaf));
+	}
+
+	/**
+	 * All the tags in the repository (shared through the cache, if there is one)
+	 * @return the tag table
+	 */
+	public TagTable tagTable() {
+		if (tagTables != null) {
+			return tagTables.get(repositoryKey(), this::loadTags);
+		}
+		return readTags(null, 0);
+	}
+
+	/**
+	 * Load all the tags: as kept in the common git directory by the last build of any worktree,
+	 * if they have not changed since, otherwise from git (and keep them for the next build)
+	 * @return a table of the tags
+	 */
+	private TagTable loadTags() {
+		Optional<Path> commonDir = topology().map(RepositoryTopology::commonDir);
+		Optional<String> fingerprint = commonDir.flatMap(TagTableStore::fingerprint);
+		if (fingerprint.isEmpty()) {
+			return readTags(null, 0);
+		}
+		Optional<TagTable> kept = TagTableStore.load(commonDir.get(), fingerprint.get());
+		if (kept.isPresent()) {
+			return kept.get();
+		}
+		List<String> lines = tagLines(null, 0);
+		TagTableStore.save(commonDir.get(), fingerprint.get(), lines);
+		TagTable.Builder builder = TagTable.builder();
+		lines.forEach(builder::add);
+		return builder.build();
+	}
+
+	private static Supplier<String> explanation(@Nullable String pattern) {
+		String refs = pattern == null || pattern.isBlank() ? "refs/tags" : TagTable.TAG_REF_PREFIX + pattern;
+		return () -> "git tags for " + refs;
+	}
+
+	/**
+	 * Read tags (most recent commit first) into a table, using for-each-ref
+	 * @param pattern (optional) the pattern of the tag (or null)
+	 * @param count the maximum number of tags to read, or zero for all of them
+	 * @return a table of the tags
+	 */
+	private TagTable readTags(@Nullable String pattern, int count) {
+		TagTable.Builder builder = TagTable.builder();
+		tagLines(pattern, count).forEach(builder::add);
+		return builder.build();
+	}
+
+	/**
+	 * List tags (most recent commit first) with for-each-ref, formatted for a {@link TagTable}
+	 */
+	private List<String> tagLines(@Nullable String pattern, int count) {
+		// NOTE: no quotes around the format, there is no shell to remove them
+		ArrayList<String> args = new ArrayList<String>(Arrays.asList("for-each-ref", "--sort=-committerdate", "--format=" + TagTable.formatString()));
+		if (count > 0) {
+			args.add("--count=" + count);
+		}
 		if (pattern == null || pattern.isBlank()) {
 			args.add("refs/tags");
 		} else {
-			args.add("refs/tags/" + pattern);
+			args.add(TagTable.TAG_REF_PREFIX + pattern);
+		}
+		return query(args).output().toList();
+	}
+
+	/**
+	 * The layout of the repository (located without running git, remembered once found)
+	 */
+	private Optional<RepositoryTopology> topology() {
+		RepositoryTopology found = topology;
+		if (found == null) {
+			Optional<RepositoryTopology> located = RepositoryLocator.locate(workingDir);
+			// not remembered until found (the repository may not be created yet)
+			located.ifPresent(repository -> topology = repository);
+			return located;
 		}
-		Supplier<String> explanation = () -> "git tags for "+ args.get(args.size() - 1);
-		return withGit(args, workingDir, true).output().map(tag -> GitTag.parse(explanation, tag)).toList();
+		return Optional.of(found);
+	}
+
+	/**
+	 * The key for this repository in the caches of what is derived from refs and objects
+	 * (e.g. the {@link TagTableCache}): the common git directory, so that all the worktrees of a
+	 * repository share the (same) tags
+	 */
+	private Path repositoryKey() {
+		return topology().map(RepositoryTopology::commonDir).orElse(workingDir.toAbsolutePath().normalize());
+	}
+
+	/**
+	 * The key for this worktree in the caches of what is derived from HEAD (e.g. the
+	 * {@link FirstParentChainCache}): the git directory of the worktree, which holds its HEAD
+	 */
+	private Path worktreeKey() {
+		return topology().map(RepositoryTopology::gitDir).orElse(workingDir.toAbsolutePath().normalize());
 	}
 
 	@Override
-	public boolean gitDirty(String pattern) {
-		return !status(pattern).isEmpty();
+	public boolean gitDirty(String pattern, UntrackedFiles untracked) {
+		// stops at the first change, rather than listing them all
+		return new DirtyProbe(workingDir, timeout, scope).isDirty(pattern, untracked);
 	}
 
 	@Override
-	public List<Change> status(String pattern) {
-		ArrayList<String> args = new ArrayList<String>(Arrays.asList("status", "--short", "-z"));
+	public void walkHistory(@Nullable String range, @Nullable String path, boolean withPaths, Predicate<HistoryCommit> visitor) {
+		walk(List.of("--topo-order"), range, path, withPaths, visitor);
+	}
+
+	@Override
+	public void walkCommits(@Nullable String range, @Nullable String path, Predicate<HistoryCommit> visitor) {
+		// the default (date) order streams, --topo-order reads the whole range first (without a commit-graph)
+		walk(List.of(), range, path, false, visitor);
+	}
+
+	private void walk(List<String> order, @Nullable String range, @Nullable String path, boolean withPaths, Predicate<HistoryCommit> visitor) {
+		// a header line (marked by a leading separator) for each commit, the message body (ended
+		// by a separator) and then the paths it changed
+		ArrayList<String> args = new ArrayList<String>(Arrays.asList("-c", "core.quotePath=false", "log"));
+		args.addAll(order);
+		args.addAll(Arrays.asList("--no-color", "--decorate=short", "--decorate-refs=" + TagTable.TAG_REF_PREFIX,
+						"--format=" + HISTORY_HEADER + "%H" + HISTORY_SEPARATOR + "%h" + HISTORY_SEPARATOR + "%ct" + HISTORY_SEPARATOR + "%D" + HISTORY_SEPARATOR + "%s%n%b" + HISTORY_BODY_END));
+		if (withPaths) {
+			args.add("--name-only");
+		}
+		if (range != null && !range.isBlank()) {
+			args.add(range);
+		}
+		if (path != null && !path.isBlank()) {
+			args.addAll(Arrays.asList("--", path));
+		}
+		HistoryParser parser = new HistoryParser(visitor);
+		streamGit(args, workingDir, timeout, scope, parser::line);
+		parser.finish();
+	}
+
+	/**
+	 * Turns the lines of our <code>git log</code> format into commits, one at a time
+	 */
+	private static final class HistoryParser {
+		private final Predicate<HistoryCommit> visitor;
+		private String[] header;
+		private final StringBuilder body = new StringBuilder();
+		private boolean inBody;
+		private final List<String> paths = new ArrayList<>();
+		private boolean stopped;
+
+		private HistoryParser(Predicate<HistoryCommit> visitor) {
+			this.visitor = visitor;
+		}
+
+		private boolean line(String line) {
+			if (!line.isEmpty() && line.charAt(0) == HISTORY_HEADER) {
+				if (!emit()) {
+					return false;
+				}
+				header = line.substring(1).split(String.valueOf(HISTORY_SEPARATOR), 5);
+				inBody = true;
+			}
+			else if (header != null && inBody) {
+				boolean end = !line.isEmpty() && line.charAt(line.length() - 1) == HISTORY_BODY_END;
+				String text = end ? line.substring(0, line.length() - 1) : line;
+				if (!body.isEmpty() || !text.isEmpty()) {
+					body.append(text).append('\n');
+				}
+				inBody = !end;
+			}
+			else if (!line.isBlank() && header != null) {
+				paths.add(line);
+			}
+			return true;
+		}
+
+		private boolean emit() {
+			if (header == null || stopped) {
+				return !stopped;
+			}
+			List<String> tags = Arrays.stream(header[3].split(", "))
+							.filter(decoration -> decoration.startsWith("tag: "))
+							.map(decoration -> decoration.substring("tag: ".length()))
+							.toList();
+			HistoryCommit commit = new HistoryCommit(header[0], header[1], Long.parseLong(header[2]),
+							header.length > 4 ? header[4] : "", body.toString().strip(), tags, List.copyOf(paths));
+			header = null;
+			body.setLength(0);
+			paths.clear();
+			stopped = !visitor.test(commit);
+			return !stopped;
+		}
+
+		private void finish() {
+			emit();
+		}
+	}
+
+	@Override
+	public List<String> changedPaths(String base, String head) {
+		// renames as a delete and an add, so both paths count
+		List<String> args = List.of("diff-tree", "-r", "--no-commit-id", "--name-only", "--no-renames", "-z", base, head);
+		String output = query(args).output().collect(Collectors.joining("\n"));
+		return Arrays.stream(output.split(String.valueOf(Git.NULL_CHAR)))
+						.filter(Predicate.not(String::isBlank))
+						.toList();
+	}
+
+	@Override
+	public List<Change> status(String pattern, UntrackedFiles untracked) {
+		ArrayList<String> args = new ArrayList<String>(Arrays.asList("status", "--short", "-z", untracked.option()));
 		if (pattern != null && !pattern.isBlank()) {
 			args.addAll(Arrays.asList("--", pattern));
 		}
-		String output = withGit(args, workingDir, true).output().collect(Collectors.joining("\n"));
+		String output = query(args).output().collect(Collectors.joining("\n"));
 		if (!output.isEmpty()) {
 			String[] changes = output.split(String.valueOf(Git.NULL_CHAR));
 			if (changes.length > 0) {
@@ -146,24 +552,224 @@ public class GitCommandLine implements Git {
 	 * @throws RuntimeException If git returns an error
 	 */
 	public static ProcessResult withGit(List<String> args, @Nullable Path workingDir, boolean throwOnError) {
+		return withGit(args, workingDir, throwOnError, ProcessResult.DEFAULT_TIMEOUT);
+	}
+
+	/**
+	 * Run a set of git args, killing git if it runs for too long
+	 *
+	 * @param args         the args for git
+	 * @param workingDir   (optional) a working directory for the git process
+	 * @param throwOnError should we throw @{@link GitException} if the return code != 0
+	 * @param timeout      how long git may run for
+	 * @return the result of running the git process (which may have timed out if not throwing)
+	 * @throws GitTimeoutException If git times out (and throwing on error)
+	 * @throws RuntimeException If git returns an error
+	 */
+	public static ProcessResult withGit(List<String> args, @Nullable Path workingDir, boolean throwOnError, Duration timeout) {
+		var command = command(args);
+		var result = run(command, workingDir, timeout);
+		if (throwOnError) {
+			GitException.check(command, result, timeout);
+		}
+		return result;
+	}
+
+	/**
+	 * Create lightweight tags, all in one <code>update-ref</code> transaction: either every tag is
+	 * created, or (e.g. if one already exists) none are.
+	 * @param tags the commit ID to tag, by tag name
+	 * @throws GitException If the tags cannot be created
+	 */
+	public void createTags(Map<String, String> tags) {
+		if (tags.isEmpty()) {
+			return;
+		}
+		StringBuilder input = new StringBuilder();
+		tags.forEach((tag, commit) -> input.append("create ").append(TagTable.TAG_REF_PREFIX).append(tag).append(' ').append(commit).append('\n'));
+		var command = command(List.of("update-ref", "--stdin"));
+		GitException.check(command, execute(command, input.toString()), timeout);
+		tagsChanged();
+	}
+
+	/**
+	 * Read the note attached to a commit
+	 * @param ref the notes ref (e.g. <code>refs/notes/commits</code>)
+	 * @param commit the commit ID
+	 * @return the note, or empty if the commit has none
+	 * @throws GitException If the note cannot be read
+	 */
+	public Optional<String> readNote(String ref, String commit) {
+		var command = command(List.of("notes", "--ref=" + ref, "show", commit));
+		ProcessResult result = execute(command, null);
+		// 1 means there is no note, anything else is an error
+		if (result.getExitCode() == 1 && result.getTermination() == ProcessResult.Termination.EXITED) {
+			return Optional.empty();
+		}
+		GitException.check(command, result, timeout);
+		return Optional.of(result.output().collect(Collectors.joining("\n")));
+	}
+
+	/**
+	 * Attach a note to a commit (replacing any note it has)
+	 * @param ref the notes ref (e.g. <code>refs/notes/commits</code>)
+	 * @param commit the commit ID
+	 * @param note the note
+	 * @throws GitException If the note cannot be written
+	 */
+	public void writeNote(String ref, String commit, String note) {
+		var command = command(List.of("notes", "--ref=" + ref, "add", "--force", "--file=-", commit));
+		GitException.check(command, execute(command, note), timeout);
+	}
+
+	/**
+	 * Run a read only git query. Identical queries (in the same directory) that are running
+	 * concurrently (e.g. from projects configured in parallel) share one git process.
+	 *
+	 * @param args         the args for git
+	 * @param workingDir   a working directory for the git process
+	 * @param timeout      how long git may run for
+	 * @return the result of running the git process
+	 * @throws GitTimeoutException If git times out
+	 * @throws RuntimeException If git returns an error
+	 */
+	public static ProcessResult queryGit(List<String> args, Path workingDir, Duration timeout) {
+		return queryGit(args, workingDir, timeout, null);
+	}
+
+	private static ProcessResult queryGit(List<String> args, Path workingDir, Duration timeout,
+																				@Nullable ProcessWatchdog.Scope scope) {
+		var command = command(args);
+		var key = new Query(command, workingDir.toAbsolutePath().normalize(), scope);
+		var result = QUERIES.run(key, () -> run(command, workingDir, null, Map.of(), timeout, scope));
+		GitException.check(command, result, timeout);
+		return result;
+	}
+
+	/**
+	 * Run git, handing each line of its output to a consumer as it is produced (rather than
+	 * collecting it all). The consumer can stop git early. Only starting git waits for the
+	 * {@link ProcessLimiter}, so the consumer may run git itself.
+	 *
+	 * @param args         the args for git
+	 * @param workingDir   a working directory for the git process
+	 * @param timeout      how long git may run for
+	 * @param lines        receives each line of output, and returns false to stop git
+	 * @throws GitTimeoutException If git times out
+	 * @throws RuntimeException If git returns an error
+	 */
+	public static void streamGit(List<String> args, Path workingDir, Duration timeout, Predicate<String> lines) {
+		streamGit(args, workingDir, timeout, null, lines);
+	}
+
+	private static void streamGit(List<String> args, Path workingDir, Duration timeout,
+																@Nullable ProcessWatchdog.Scope scope, Predicate<String> lines) {
+		var command = command(args);
+		ProcessBuilder pb = new ProcessBuilder(command).directory(workingDir.toFile());
+		Process p = null;
+		try {
+			ProcessLimiter.Permit permit = ProcessLimiter.INSTANCE.acquire();
+			try {
+				p = pb.start();
+			} finally {
+				// only starting git is limited: the consumer may run git itself, which could wait
+				// forever for the permit if this held it (the watchdog still stops git running on)
+				permit.release();
+			}
+			p.getOutputStream().close();
+			try (ProcessWatchdog.Watch watch = ProcessWatchdog.INSTANCE.watch(p, timeout, scope);
+					 BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+				try {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						if (!lines.test(line)) {
+							// we have all we need
+							p.destroy();
+							return;
+						}
+					}
+				} catch (IOException e) {
+					// killing the process (on timeout or cancel) closes its streams
+					if (watch.termination() == ProcessResult.Termination.EXITED) {
+						throw e;
+					}
+				}
+				int exitCode = p.waitFor();
+				String error = watch.termination() == ProcessResult.Termination.EXITED
+								? new String(p.getErrorStream().readAllBytes(), StandardCharsets.UTF_8) : "";
+				GitException.check(command, new ProcessResult(List.of(), error, exitCode, watch.termination()), timeout);
+			}
+		} catch (IOException ioe) {
+			throw new RuntimeException(ioe);
+		} catch (InterruptedException e) {
+			if (p != null) {
+				p.destroyForcibly();
+			}
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private ProcessResult query(List<String> args) {
+		return queryGit(args, workingDir, timeout, scope);
+	}
+
+	private ProcessResult execute(List<String> command, @Nullable String input) {
+		return run(command, workingDir, input, Map.of(), timeout, scope);
+	}
+
+	private static List<String> command(List<String> args) {
 		var command = new ArrayList<String>();
 		command.add("git");
 		command.addAll(args);
+		return command;
+	}
+
+	/**
+	 * Run a git command (once there are not too many git processes running already)
+	 */
+	private static ProcessResult run(List<String> command, @Nullable Path workingDir, Duration timeout) {
+		return run(command, workingDir, null, timeout);
+	}
+
+	/**
+	 * Run a git command, with some input (once there are not too many git processes running already)
+	 */
+	private static ProcessResult run(List<String> command, @Nullable Path workingDir, @Nullable String input, Duration timeout) {
+		return run(command, workingDir, input, Map.of(), timeout, null);
+	}
+
+	/**
+	 * Run a git command, with some input and extra environment variables, for a scope that can be
+	 * cancelled (once there are not too many git processes running already)
+	 */
+	private static ProcessResult run(List<String> command, @Nullable Path workingDir, @Nullable String input,
+						Map<String, String> environment, Duration timeout, @Nullable ProcessWatchdog.Scope scope) {
 		ProcessBuilder pb = new ProcessBuilder(command);
+		if (workingDir != null) {
+			pb.directory(workingDir.toFile());
+		}
+		pb.environment().putAll(environment);
 		try {
-			if (workingDir != null) {
-				pb.directory(workingDir.toFile());
-			}
-			//System.out.println(">> "+String.join(" ", command));
-			Process p = pb.start();
-			var result = ProcessResult.from(p);
-			//System.out.printf("Git command result: %s\n%s\n------------\n", result.getExitCode(), result);
-			if (throwOnError) {
-				GitException.check(command, result);
+			ProcessLimiter.Permit permit = ProcessLimiter.INSTANCE.acquire();
+			try {
+				//System.out.println(">> "+String.join(" ", command));
+				Process p = pb.start();
+				if (input != null) {
+					// git reads all of its input before it writes any output
+					try (OutputStream stdin = p.getOutputStream()) {
+						stdin.write(input.getBytes(StandardCharsets.UTF_8));
+					}
+				}
+				return ProcessResult.from(p, timeout, scope);
+			} finally {
+				permit.release();
 			}
-			return result;
 		} catch (IOException ioe) {
 			throw new RuntimeException(ioe);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
 		}
 	}
 
@@ -175,7 +781,22 @@ public class GitCommandLine implements Git {
 	 * @return The commit ID
 	 */
 	public String commit(String message) {
-		ProcessResult commitResult = withGit(List.of("commit","-a","-m",message), workingDir, true);
+		return commit(message, null);
+	}
+
+	/**
+	 * Commit the current stage with a message, at a given time (rather than now)
+	 * @param message Message for the commit
+	 * @param date (optional) when the commit was authored and committed
+	 * @return The commit ID
+	 */
+	public String commit(String message, @Nullable Instant date) {
+		var command = command(List.of("commit","-a","-m",message));
+		Map<String, String> environment = date == null ? Map.of()
+						: Map.of("GIT_AUTHOR_DATE", "@" + date.getEpochSecond() + " +0000", "GIT_COMMITTER_DATE", "@" + date.getEpochSecond() + " +0000");
+		ProcessResult commitResult = run(command, workingDir, null, environment, ProcessResult.DEFAULT_TIMEOUT, null);
+		GitException.check(command, commitResult, ProcessResult.DEFAULT_TIMEOUT);
+		historyChanged();
 
 		String line1 = commitResult.output().findFirst().orElseThrow();
 		var regex = Pattern.compile("\\[.*?\\s([a-f0-9]+)\\]");
@@ -194,6 +815,7 @@ public class GitCommandLine implements Git {
 	 */
 	public void lightTag(String tagName) {
 		GitCommandLine.withGit(List.of("tag", tagName), workingDir, true);
+		tagsChanged();
 	}
 
 	/**
@@ -203,6 +825,27 @@ public class GitCommandLine implements Git {
 	 */
 	public void annotatedTag(String tagName, String message) {
 		GitCommandLine.withGit(List.of("tag", "-a", tagName, "-m", message), workingDir, true);
+		tagsChanged();
+	}
+
+	private void tagsChanged() {
+		if (tagTables != null) {
+			tagTables.invalidate(repositoryKey());
+		}
+		// tags mark where counts end
+		historyChanged();
+	}
+
+	private void historyChanged() {
+		if (chains != null) {
+			chains.invalidate(worktreeKey());
+		}
+		if (counts != null) {
+			counts.headChanged(worktreeKey());
+		}
+		synchronized (this) {
+			chain = null;
+		}
 	}
 
 	/**
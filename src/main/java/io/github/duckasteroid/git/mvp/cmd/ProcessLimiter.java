@@ -0,0 +1,86 @@
+package io.github.duckasteroid.git.mvp.cmd;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits how many git processes run at once, so that parallel project configuration
+ * can't fork hundreds of them and thrash the machine.
+ * One limit is shared by the whole JVM (e.g. a Gradle daemon).
+ * Git whose output is streamed (see {@link GitCommandLine#streamGit}) only holds a permit while it
+ * starts, as whoever reads the output may run git too.
+ */
+public final class ProcessLimiter {
+	/**
+	 * The system property that sets the limit (defaults to the number of processors)
+	 */
+	public static final String MAX_PROCESSES_PROPERTY = "io.github.duckasteroid.git-mvp.maxProcesses";
+
+	/**
+	 * The shared instance
+	 */
+	public static final ProcessLimiter INSTANCE = new ProcessLimiter(
+					Integer.getInteger(MAX_PROCESSES_PROPERTY, Runtime.getRuntime().availableProcessors()));
+
+	private final int limit;
+	private final Semaphore permits;
+
+	/**
+	 * Create with a limit
+	 * @param limit the most processes that may run at once (at least 1)
+	 */
+	public ProcessLimiter(int limit) {
+		this.limit = Math.max(1, limit);
+		this.permits = new Semaphore(this.limit, true);
+	}
+
+	/**
+	 * The most processes that may run at once
+	 * @return the limit
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * How many more processes could start now
+	 * @return the available permits
+	 */
+	public int available() {
+		return permits.availablePermits();
+	}
+
+	/**
+	 * Wait for permission to start a process
+	 * @return the permit, to be released (or closed) when the process is finished
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public Permit acquire() throws InterruptedException {
+		permits.acquire();
+		return new Permit();
+	}
+
+	/**
+	 * Permission to run a process, released when closed
+	 */
+	public final class Permit implements AutoCloseable {
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private Permit() {
+		}
+
+		/**
+		 * Give the permission back (only the first release counts)
+		 */
+		public void release() {
+			if (released.compareAndSet(false, true)) {
+				permits.release();
+			}
+		}
+
+		@Override
+		public void close() {
+			release();
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package io.github.duckasteroid.git.mvp.cmd;
 
+import javax.annotation.Nullable;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -11,9 +14,33 @@ import java.util.stream.Stream;
  * The result of running a git process
  */
 public class ProcessResult {
+	/**
+	 * A default for how long a git process may run before it is killed
+	 */
+	public static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(1);
+
+	/**
+	 * How a process came to an end
+	 */
+	public enum Termination {
+		/**
+		 * The process exited by itself
+		 */
+		EXITED,
+		/**
+		 * The process was killed because it ran for too long
+		 */
+		TIMED_OUT,
+		/**
+		 * The process was killed because the build was cancelled
+		 */
+		CANCELLED
+	}
+
 	private final List<String> output;
 	private final String errorOutput;
 	private final int exitCode;
+	private final Termination termination;
 
 	/**
 	 * Create from the result of running a process
@@ -22,24 +49,74 @@ public class ProcessResult {
 	 * @param exitCode the exit code of the process
 	 */
 	public ProcessResult(List<String> output, String errorOutput, int exitCode) {
+		this(output, errorOutput, exitCode, Termination.EXITED);
+	}
+
+	/**
+	 * Create from the result of running a process
+	 * @param output the lines of output
+	 * @param errorOutput the error output (if any)
+	 * @param exitCode the exit code of the process
+	 * @param termination how the process ended
+	 */
+	public ProcessResult(List<String> output, String errorOutput, int exitCode, Termination termination) {
 		this.output = output;
 		this.errorOutput = errorOutput;
 		this.exitCode = exitCode;
+		this.termination = termination;
 	}
 
 	/**
 	 * Create an instance from a running or run process.
-	 * This waits for the process to finish if necessary.
+	 * This waits for the process to finish if necessary (for up to the {@link #DEFAULT_TIMEOUT}).
 	 * @param p the process
 	 * @return a process result
 	 */
 	public static ProcessResult from(Process p) {
-		try {
-			var output = new BufferedReader(new InputStreamReader(p.getInputStream())).lines().toList();
-			String errorOutput = new BufferedReader(new InputStreamReader(p.getErrorStream())).lines().collect((Collector<? super String, ?, String>) Collectors.joining("\n"));
+		return from(p, DEFAULT_TIMEOUT);
+	}
+
+	/**
+	 * Create an instance from a running or run process.
+	 * This waits for the process to finish if necessary, but kills it if it runs past the timeout
+	 * (or the build is cancelled) - in which case the result reports how it was terminated.
+	 * @param p the process
+	 * @param timeout how long the process may run for
+	 * @return a process result
+	 */
+	public static ProcessResult from(Process p, Duration timeout) {
+		return from(p, timeout, null);
+	}
+
+	/**
+	 * Create an instance from a running or run process, as {@link #from(Process, Duration)}, for
+	 * the processes of a scope (e.g. a build) that can be cancelled together
+	 * @param p the process
+	 * @param timeout how long the process may run for
+	 * @param scope (optional) what the process is run for, or null
+	 * @return a process result
+	 */
+	public static ProcessResult from(Process p, Duration timeout, @Nullable ProcessWatchdog.Scope scope) {
+		try (ProcessWatchdog.Watch watch = ProcessWatchdog.INSTANCE.watch(p, timeout, scope)) {
+			List<String> output;
+			String errorOutput;
+			try {
+				output = new BufferedReader(new InputStreamReader(p.getInputStream())).lines().toList();
+				errorOutput = new BufferedReader(new InputStreamReader(p.getErrorStream())).lines().collect((Collector<? super String, ?, String>) Collectors.joining("\n"));
+			} catch (UncheckedIOException e) {
+				// killing the process closes its streams
+				if (watch.termination() == Termination.EXITED) {
+					throw e;
+				}
+				output = List.of();
+				errorOutput = "";
+			}
 			int exitCode = p.waitFor();
-			return new ProcessResult(output, errorOutput, exitCode);
+			return new ProcessResult(output, errorOutput, exitCode, watch.termination());
 		} catch (InterruptedException e) {
+			// don't leave git running if we are not waiting for it
+			p.destroyForcibly();
+			Thread.currentThread().interrupt();
 			throw new RuntimeException(e);
 		}
 	}
@@ -68,6 +145,22 @@ public class ProcessResult {
 		return exitCode;
 	}
 
+	/**
+	 * How the process ended
+	 * @return the termination
+	 */
+	public final Termination getTermination() {
+		return termination;
+	}
+
+	/**
+	 * Was the process killed for running too long?
+	 * @return true if it timed out
+	 */
+	public final boolean isTimedOut() {
+		return termination == Termination.TIMED_OUT;
+	}
+
 	@Override
 	public String toString() {
 		return String.join("\n", output);
@@ -0,0 +1,133 @@
+package io.github.duckasteroid.git.mvp.cmd;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import javax.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps an eye on running git processes, and kills any that run past their deadline, or that
+ * are still running when the build they were run for is cancelled (see {@link Scope}).
+ * A single (daemon) thread serves the whole JVM, and so every build in a Gradle daemon.
+ */
+public final class ProcessWatchdog {
+	private static final Logger log = Logging.getLogger(ProcessWatchdog.class);
+
+	/**
+	 * The shared instance
+	 */
+	public static final ProcessWatchdog INSTANCE = new ProcessWatchdog();
+
+	private final ScheduledExecutorService scheduler;
+	private final Set<Watch> watching = ConcurrentHashMap.newKeySet();
+
+	private ProcessWatchdog() {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "git-mvp-watchdog");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// don't keep completed (cancelled) deadlines in the queue
+		executor.setRemoveOnCancelPolicy(true);
+		this.scheduler = executor;
+	}
+
+	/**
+	 * Start watching a process, it is killed if it is still running after the timeout
+	 * @param process the process to watch
+	 * @param timeout how long the process may run for
+	 * @return a watch, to be closed when the process is finished with
+	 */
+	public Watch watch(Process process, Duration timeout) {
+		return watch(process, timeout, null);
+	}
+
+	/**
+	 * Start watching a process run for a scope (e.g. a build), it is killed if it is still running
+	 * after the timeout, or when the scope is cancelled
+	 * @param process the process to watch
+	 * @param timeout how long the process may run for
+	 * @param scope (optional) what the process is run for, or null if it is never cancelled
+	 * @return a watch, to be closed when the process is finished with
+	 */
+	public Watch watch(Process process, Duration timeout, @Nullable Scope scope) {
+		Watch watch = new Watch(process, scope);
+		watching.add(watch);
+		watch.deadline = scheduler.schedule(() -> watch.kill(ProcessResult.Termination.TIMED_OUT), timeout.toMillis(), TimeUnit.MILLISECONDS);
+		return watch;
+	}
+
+	/**
+	 * Create a scope for the processes run for one build, so they can be cancelled together
+	 * (without touching those of other builds in the same JVM)
+	 * @return a new scope
+	 */
+	public Scope newScope() {
+		return new Scope();
+	}
+
+	/**
+	 * What a group of processes is run for (e.g. a build), so they can be killed together
+	 */
+	public final class Scope {
+		private Scope() {
+		}
+
+		/**
+		 * Kill the processes of this scope currently being watched (e.g. because the build is cancelled)
+		 */
+		public void cancel() {
+			watching.stream()
+							.filter(watch -> watch.scope == this)
+							.forEach(watch -> watch.kill(ProcessResult.Termination.CANCELLED));
+		}
+	}
+
+	/**
+	 * A watch over a single process
+	 */
+	public final class Watch implements AutoCloseable {
+		private final Process process;
+		private final Scope scope;
+		private final AtomicReference<ProcessResult.Termination> termination = new AtomicReference<>(ProcessResult.Termination.EXITED);
+		private volatile ScheduledFuture<?> deadline;
+
+		private Watch(Process process, @Nullable Scope scope) {
+			this.process = process;
+			this.scope = scope;
+		}
+
+		private void kill(ProcessResult.Termination reason) {
+			if (process.isAlive() && termination.compareAndSet(ProcessResult.Termination.EXITED, reason)) {
+				log.warn("Killing git process {} ({})", process.pid(), reason);
+				process.destroyForcibly();
+			}
+		}
+
+		/**
+		 * How the process terminated (or will, if it was killed)
+		 * @return the termination
+		 */
+		public ProcessResult.Termination termination() {
+			return termination.get();
+		}
+
+		@Override
+		public void close() {
+			watching.remove(this);
+			ScheduledFuture<?> scheduled = deadline;
+			if (scheduled != null) {
+				scheduled.cancel(false);
+			}
+		}
+	}
+}
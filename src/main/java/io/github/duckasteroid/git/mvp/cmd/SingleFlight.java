@@ -0,0 +1,66 @@
+package io.github.duckasteroid.git.mvp.cmd;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical requests, so that only one of them does the work and the rest
+ * share its result (or failure). Nothing is remembered once the work is done - a later request
+ * for the same key does the work again.
+ * @param <K> the type of request key
+ * @param <V> the type of result
+ */
+public class SingleFlight<K, V> {
+	private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Do the work for a request, unless identical work is already in flight - in which case
+	 * wait for that instead.
+	 * @param key identifies identical requests
+	 * @param work does the work
+	 * @return the result of the work
+	 */
+	public V run(K key, Supplier<V> work) {
+		CompletableFuture<V> flight = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+		if (existing != null) {
+			return join(existing);
+		}
+		try {
+			V result = work.get();
+			flight.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+	/**
+	 * How many requests are in flight now
+	 * @return the number of distinct requests
+	 */
+	public int inFlight() {
+		return inFlight.size();
+	}
+
+	private static <V> V join(CompletableFuture<V> flight) {
+		try {
+			return flight.join();
+		} catch (CompletionException e) {
+			// rethrow the failure of the work itself
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof Error cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package io.github.duckasteroid.git.mvp.dirty;
+
+import io.github.duckasteroid.git.mvp.Change;
+import io.github.duckasteroid.git.mvp.Git;
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A short hash of the uncommitted content of a (part of a) repository.
+ * Two worktrees with the same local changes get the same hash, and different changes get
+ * different hashes - so it can be used to qualify the version of a dirty build.
+ * <p>
+ * The hash covers the path and content of every changed (and optionally untracked) file, in path
+ * order. Files are digested in parallel, and their digests remembered (by a {@link FileDigestCache})
+ * until they are modified.
+ */
+public class DirtyContentHash {
+	/**
+	 * The number of hex characters in the hash
+	 */
+	public static final int LENGTH = 12;
+
+	private final Git git;
+	private final Path workTree;
+	private final FileDigestCache digests;
+
+	/**
+	 * Create to hash changes in a repository
+	 * @param git the repository
+	 * @param workTree the root of the worktree (that changed paths are relative to)
+	 * @param digests remembers file digests
+	 */
+	public DirtyContentHash(Git git, Path workTree, FileDigestCache digests) {
+		this.git = git;
+		this.workTree = workTree;
+		this.digests = digests;
+	}
+
+	/**
+	 * Hash the uncommitted changes
+	 * @param pattern (optional) a pattern to restrict the changes to, or null
+	 * @param untracked whether untracked files are included
+	 * @return the hash, or empty if there are no changes
+	 */
+	public Optional<String> hash(@Nullable String pattern, UntrackedFiles untracked) {
+		// each untracked file is hashed, not just its directory
+		UntrackedFiles listing = untracked == UntrackedFiles.NO ? UntrackedFiles.NO : UntrackedFiles.ALL;
+		List<Path> paths = git.status(pattern, listing).stream()
+						.map(Change::path)
+						.distinct()
+						.sorted()
+						.toList();
+		if (paths.isEmpty()) {
+			return Optional.empty();
+		}
+		List<byte[]> contents = paths.parallelStream()
+						.map(path -> digests.digest(workTree.resolve(path)))
+						.toList();
+		MessageDigest combined = FileDigestCache.newDigest();
+		for (int i = 0; i < paths.size(); i++) {
+			// separators keep (path, content) pairs from running into each other
+			combined.update(paths.get(i).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+			combined.update((byte) 0);
+			combined.update(contents.get(i));
+		}
+		return Optional.of(HexFormat.of().formatHex(combined.digest()).substring(0, LENGTH));
+	}
+}
@@ -0,0 +1,128 @@
+package io.github.duckasteroid.git.mvp.dirty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Digests of file contents, remembered against the size and modification time of the file,
+ * so that a file is only read again once it has changed.
+ * Large files are read through a memory mapping rather than copied onto the heap.
+ */
+public class FileDigestCache {
+	/**
+	 * The digest algorithm used for file contents
+	 */
+	public static final String ALGORITHM = "SHA-256";
+
+	// files at least this big are memory mapped, smaller ones are just read
+	static final long MAP_THRESHOLD = 64 * 1024;
+	// the most mapped at once (a mapping is limited to an int sized buffer)
+	private static final long MAX_MAPPING = Integer.MAX_VALUE;
+	// files modified this recently may change again within the timestamp resolution
+	private static final Duration RACY = Duration.ofSeconds(2);
+
+	// the digest of a file that does not exist (e.g. deleted)
+	private static final byte[] MISSING = digest("missing".getBytes(StandardCharsets.UTF_8));
+
+	private record Entry(long size, FileTime modified, byte[] digest) {
+		boolean matches(BasicFileAttributes attributes) {
+			return size == attributes.size() && modified.equals(attributes.lastModifiedTime());
+		}
+	}
+
+	private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Get the digest of a file's content.
+	 * A symbolic link is digested as its target path, a directory (e.g. a submodule) as its name
+	 * and a missing file as a fixed value.
+	 * @param file the file
+	 * @return the digest of the file
+	 * @throws UncheckedIOException if the file cannot be read
+	 */
+	public byte[] digest(Path file) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			if (attributes.isSymbolicLink()) {
+				return digest(("link:" + Files.readSymbolicLink(file)).getBytes(StandardCharsets.UTF_8));
+			}
+			if (attributes.isDirectory()) {
+				return digest(("directory:" + file.getFileName()).getBytes(StandardCharsets.UTF_8));
+			}
+			Entry entry = entries.get(file);
+			if (entry != null && entry.matches(attributes)) {
+				return entry.digest();
+			}
+			byte[] digest = readDigest(file, attributes.size());
+			// a file changed again within the timestamp resolution would look unchanged, so is not remembered
+			if (attributes.lastModifiedTime().toInstant().isBefore(Instant.now().minus(RACY))) {
+				entries.put(file, new Entry(attributes.size(), attributes.lastModifiedTime(), digest));
+			}
+			return digest;
+		}
+		catch (NoSuchFileException e) {
+			entries.remove(file);
+			return MISSING;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Unable to digest " + file, e);
+		}
+	}
+
+	/**
+	 * How many file digests are remembered
+	 * @return the number of files
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private static byte[] readDigest(Path file, long size) throws IOException {
+		if (size < MAP_THRESHOLD) {
+			return digest(Files.readAllBytes(file));
+		}
+		MessageDigest digest = newDigest();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// the file may have changed size since we looked
+			long length = channel.size();
+			for (long position = 0; position < length; position += MAX_MAPPING) {
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_MAPPING, length - position));
+				digest.update(mapped);
+			}
+		}
+		return digest.digest();
+	}
+
+	private static byte[] digest(byte[] content) {
+		return newDigest().digest(content);
+	}
+
+	/**
+	 * Create a new digest
+	 * @return a digest using {@link #ALGORITHM}
+	 */
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(ALGORITHM + " is not available", e);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package io.github.duckasteroid.git.mvp.explain;
+
+import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
+import io.github.duckasteroid.git.mvp.VersionAmendment;
+import io.github.duckasteroid.git.mvp.version.Version;
+import io.github.duckasteroid.git.mvp.version.source.VersionSource;
+import io.github.duckasteroid.git.mvp.version.source.VersionSourceChain;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * What version a project has, and why: the version sources considered (the first is chosen),
+ * the amendments made to the chosen version, and how long working each of them out took.
+ * @param projectPath the Gradle path of the project
+ * @param repositoryPath the path of the project in the repository
+ * @param version the version of the project
+ * @param candidates the version sources considered, in order (the first is chosen)
+ * @param amendments the descriptions of the amendments to the chosen version
+ * @param timings how long each step took, by step name (in the order they were taken)
+ */
+public record VersionExplanation(String projectPath, String repositoryPath, String version, List<Candidate> candidates,
+																 List<String> amendments, Map<String, Duration> timings) {
+	/**
+	 * The step that evaluates every version source
+	 */
+	public static final String SOURCES = "sources";
+	/**
+	 * The step that works out the amendments to the chosen version
+	 */
+	public static final String AMENDMENTS = "amendments";
+
+	/**
+	 * A version source considered
+	 * @param type the type of source
+	 * @param value the value it was read from (e.g. a tag name)
+	 * @param version the version it gives
+	 * @param explanation where it came from
+	 */
+	public record Candidate(VersionSource.Type type, String value, String version, String explanation) {
+		/**
+		 * The source, as it is displayed
+		 * @return the display string
+		 */
+		public String displayString() {
+			return type + " '" + value + "' interpreted as version=" + version;
+		}
+	}
+
+	/**
+	 * The version source chosen
+	 * @return the first candidate, or empty if there were none
+	 */
+	public Optional<Candidate> chosen() {
+		return candidates.stream().findFirst();
+	}
+
+	/**
+	 * Explain the version of a project, evaluating every version source (so this is intended for
+	 * diagnostics). The git queries share the caches of the build.
+	 * @param projectHelper the project
+	 * @param version the version of the project
+	 * @return the explanation
+	 */
+	public static VersionExplanation explain(GitVersionProjectWrapper projectHelper, String version) {
+		return explain(projectHelper, projectHelper.versionSources(), version);
+	}
+
+	/**
+	 * Explain the version of a project from version sources already created for it, evaluating
+	 * every one (so this is intended for diagnostics), and work the version out from the chosen
+	 * source and its amendments. The git queries share the caches of the build.
+	 * @param projectHelper the project
+	 * @param versionSources the version sources of the project
+	 * @return the explanation
+	 */
+	public static VersionExplanation explain(GitVersionProjectWrapper projectHelper, VersionSourceChain versionSources) {
+		return explain(projectHelper, versionSources, null);
+	}
+
+	private static VersionExplanation explain(GitVersionProjectWrapper projectHelper, VersionSourceChain versionSources, @Nullable String known) {
+		Map<String, Duration> timings = new LinkedHashMap<>();
+		List<VersionSource> sources = timed(SOURCES, timings, versionSources::all);
+		List<VersionAmendment> amended = sources.isEmpty() ? List.of() : timed(AMENDMENTS, timings, () -> projectHelper.amendments(sources.get(0)));
+		List<String> amendments = amended.stream().map(VersionAmendment::description).toList();
+		String version = known;
+		if (version == null) {
+			// as the project version is worked out (from the first source)
+			Version chosen = sources.stream().findFirst()
+							.orElseThrow(() -> new IllegalStateException("No version source for " + projectHelper.getProjectPath()))
+							.version();
+			for (VersionAmendment amendment : amended) {
+				chosen = amendment.amended(chosen);
+			}
+			version = chosen.toString();
+		}
+		List<Candidate> candidates = sources.stream()
+						.map(source -> new Candidate(source.type(), source.value(), source.version().toString(), source.explanation().get()))
+						.toList();
+		return new VersionExplanation(projectHelper.getProjectPath(), projectHelper.getGitRelativePath().toString().replace('\\', '/'),
+						version, candidates, amendments, Collections.unmodifiableMap(timings));
+	}
+
+	private static <T> T timed(String step, Map<String, Duration> timings, Supplier<T> work) {
+		long start = System.nanoTime();
+		try {
+			return work.get();
+		} finally {
+			timings.put(step, Duration.ofNanos(System.nanoTime() - start));
+		}
+	}
+}
@@ -1,16 +1,35 @@
 package io.github.duckasteroid.git.mvp.ext;
 
+import io.github.duckasteroid.git.mvp.CommitCounting;
 import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+import io.github.duckasteroid.git.mvp.affected.AffectedProjects;
+import io.github.duckasteroid.git.mvp.cmd.ProcessResult;
+import io.github.duckasteroid.git.mvp.facts.EnvironmentFacts;
+import io.github.duckasteroid.git.mvp.manifest.VersionManifest;
+import io.github.duckasteroid.git.mvp.tasks.VersionManifestExport;
+import io.github.duckasteroid.git.mvp.version.source.BuiltInVersionSources;
+import io.github.duckasteroid.git.mvp.version.source.VersionSourceProviderFactory;
 import org.gradle.api.Action;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Project;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.tasks.Nested;
 
 import javax.inject.Inject;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A custom project extension for holding configuration data for the
@@ -26,15 +45,66 @@ public class GitVersionExtension {
 
 	private final Property<String> dirtyQualifier;
 
+	private final Property<Boolean> dirtyContentHash;
+
+	private final Property<Boolean> conventionalCommits;
+
+	private final Property<CommitCounting> commitCounting;
+
+	private final Property<Boolean> versionNotes;
+
+	private final Property<String> changeBase;
+
+	private final Property<String> changeHead;
+
+	private final Property<UntrackedFiles> untrackedFiles;
+
+	private final Property<Duration> commandTimeout;
+
+	private final ListProperty<String> versionSources;
+
+	private final Map<String, VersionSourceProviderFactory> customVersionSources = new LinkedHashMap<>();
+
+	private final Property<String> versionEnvironmentVariable;
+
+	private final Property<String> versionFile;
+
+	private final Property<String> versionManifest;
+
+	private final ListProperty<String> buildInfoFields;
+
+	private final ListProperty<String> branchEnvironmentVariables;
+
+	private final ListProperty<String> commitEnvironmentVariables;
+
 	private final GitVersionProjectWrapper projectWrapper;
 
+	private final Project project;
+
+	private final ProviderFactory providers;
+
+	// lazily computed git facts, only worked out when queried
+	private final Memoized<String> version;
+	private final Memoized<String> branch;
+	private final Memoized<String> commitId;
+	private final Memoized<Boolean> dirty;
+
+	private final Provider<String> versionProvider;
+	private final Provider<String> branchProvider;
+	private final Provider<String> commitIdProvider;
+	private final Provider<Boolean> dirtyProvider;
+	// changed projects, by the revisions compared
+	private final Map<List<String>, SortedSet<String>> changedProjects = new ConcurrentHashMap<>();
+	private final Provider<SortedSet<String>> changedProjectsProvider;
+
 	/**
-	 * Construct with a project and a Gradle object factory
+	 * Construct with a project and Gradle object and provider factories
 	 * @param project the project
 	 * @param objects a Gradle object factory
+	 * @param providers a Gradle provider factory
 	 */
 	@Inject // Inject ObjectFactory to create property instances
-	public GitVersionExtension(Project project, ObjectFactory objects) {
+	public GitVersionExtension(Project project, ObjectFactory objects, ProviderFactory providers) {
 		// Use ObjectFactory to create instances of Gradle's property types
 		// convention is to include all
 		List<String> includeConvention = Collections.emptyList();
@@ -44,7 +114,48 @@ public class GitVersionExtension {
 
 		this.dirtyQualifier = objects.property(String.class).convention("dirty");
 
+		this.dirtyContentHash = objects.property(Boolean.class).convention(false);
+
+		this.conventionalCommits = objects.property(Boolean.class).convention(false);
+
+		this.commitCounting = objects.property(CommitCounting.class).convention(CommitCounting.ALL);
+
+		this.versionNotes = objects.property(Boolean.class).convention(false);
+
+		this.changeBase = objects.property(String.class);
+		this.changeHead = objects.property(String.class).convention("HEAD");
+
+		this.untrackedFiles = objects.property(UntrackedFiles.class).convention(UntrackedFiles.NORMAL);
+
+		this.commandTimeout = objects.property(Duration.class).convention(ProcessResult.DEFAULT_TIMEOUT);
+
+		this.versionSources = objects.listProperty(String.class).convention(
+						BuiltInVersionSources.DEFAULTS.stream().map(BuiltInVersionSources::sourceName).toList());
+		this.versionEnvironmentVariable = objects.property(String.class).convention(BuiltInVersionSources.DEFAULT_ENVIRONMENT_VARIABLE);
+		this.versionFile = objects.property(String.class).convention(BuiltInVersionSources.DEFAULT_VERSION_FILE);
+		this.versionManifest = objects.property(String.class).convention(BuiltInVersionSources.DEFAULT_VERSION_MANIFEST);
+
+		// no build information, unless asked for
+		this.buildInfoFields = objects.listProperty(String.class).convention(Collections.emptyList());
+
+		this.branchEnvironmentVariables = objects.listProperty(String.class).convention(EnvironmentFacts.DEFAULT_BRANCH_VARIABLES);
+		this.commitEnvironmentVariables = objects.listProperty(String.class).convention(EnvironmentFacts.DEFAULT_COMMIT_VARIABLES);
+
+		this.project = project;
+		this.providers = providers;
 		this.projectWrapper = new GitVersionProjectWrapper(project);
+
+		this.version = new Memoized<>(projectWrapper::resolveVersion);
+		this.branch = new Memoized<>(() -> projectWrapper.getGit().branchName());
+		this.commitId = new Memoized<>(() -> projectWrapper.getGit().gitCommitID(true, projectWrapper.getGitRelativePath().toString()));
+		this.dirty = new Memoized<>(projectWrapper::isDirty);
+		this.versionProvider = providers.provider(version);
+		this.branchProvider = providers.provider(branch);
+		this.commitIdProvider = providers.provider(commitId);
+		this.dirtyProvider = providers.provider(dirty);
+		// no value, unless there is a base to compare with
+		this.changedProjectsProvider = changeBase.zip(changeHead, (base, head) ->
+						changedProjects.computeIfAbsent(List.of(base, head), revisions -> changedProjects(base, head)));
 	}
 
 
@@ -77,10 +188,271 @@ public class GitVersionExtension {
 	}
 
 	/**
-	 * Primarily used by unit tests to update the version on the project
+	 * Whether the dirty qualifier is followed by a short hash of the uncommitted content
+	 * (e.g. <code>dirty-3fa2b1c9d0e4</code>), so builds with different local changes get different
+	 * versions (the default is not to)
+	 * @return the dirty content hash flag
+	 */
+	public Property<Boolean> getDirtyContentHash() {
+		return dirtyContentHash;
+	}
+
+	/**
+	 * Whether the version increment on an auto incremented branch follows the conventional commit
+	 * messages since the tag: <code>BREAKING CHANGE</code> increments the major version, <code>feat:</code>
+	 * the minor version and anything else the incremental version by the number of commits
+	 * (the default is not to, the incremental version is always incremented)
+	 * @return the conventional commits flag
+	 */
+	public Property<Boolean> getConventionalCommits() {
+		return conventionalCommits;
+	}
+
+	/**
+	 * Which commits since the tag are counted to increment the version on an auto incremented
+	 * branch: all of them (the default), or only those on the first-parent chain from HEAD, so a
+	 * merged branch counts once (a cheaper walk, and smaller, steadier increments)
+	 * @return the commit counting mode
+	 */
+	public Property<CommitCounting> getCommitCounting() {
+		return commitCounting;
+	}
+
+	/**
+	 * Whether the history facts versions are worked out from (commit counts and conventional commit
+	 * scans) are read from, and added to, git notes on HEAD (<code>refs/notes/git-mvp</code>), so
+	 * a checkout of a commit already built elsewhere need not walk the history (the default is not to).
+	 * Notes are not fetched or pushed by default, add the ref to the remote, e.g.
+	 * <code>git config --add remote.origin.fetch +refs/notes/git-mvp:refs/notes/git-mvp</code>
+	 * and push it from CI (<code>git push origin refs/notes/git-mvp</code>).
+	 * @return the version notes flag
+	 */
+	public Property<Boolean> getVersionNotes() {
+		return versionNotes;
+	}
+
+	/**
+	 * Whether untracked files make the repository dirty (the default is that they do)
+	 * @return the untracked files policy
+	 */
+	public Property<UntrackedFiles> getUntrackedFiles() {
+		return untrackedFiles;
+	}
+
+	/**
+	 * How long any one git command may run for before it is killed. Versioning treats a project
+	 * as dirty if the dirty check times out; any other command that times out (e.g. reading a
+	 * version source, or a commit count or scan) fails the build.
+	 * @return the command timeout
+	 */
+	public Property<Duration> getCommandTimeout() {
+		return commandTimeout;
+	}
+
+	/**
+	 * The names of the sources of version information to use. The sources are queried cheapest
+	 * first (in this order, if they cost the same) and the first to supply a version is used.
+	 * The built-in sources are named in {@link BuiltInVersionSources}.
+	 * @return the names of the version sources
+	 */
+	public ListProperty<String> getVersionSources() {
+		return versionSources;
+	}
+
+	/**
+	 * Register a custom source of version information, and add it to the
+	 * {@link #getVersionSources() sources} used
+	 * @param factory the factory for the source
+	 */
+	public void versionSource(VersionSourceProviderFactory factory) {
+		customVersionSources.put(factory.sourceName(), factory);
+		versionSources.add(factory.sourceName());
+	}
+
+	/**
+	 * The custom sources of version information registered with {@link #versionSource}
+	 * @return the custom sources by name
+	 */
+	public Map<String, VersionSourceProviderFactory> getCustomVersionSources() {
+		return Collections.unmodifiableMap(customVersionSources);
+	}
+
+	/**
+	 * The environment variable read by the "environment" version source (e.g. set by CI)
+	 * @return the name of the environment variable
+	 */
+	public Property<String> getVersionEnvironmentVariable() {
+		return versionEnvironmentVariable;
+	}
+
+	/**
+	 * The file (relative to the project) read by the "file" version source
+	 * @return the version file
+	 */
+	public Property<String> getVersionFile() {
+		return versionFile;
+	}
+
+	/**
+	 * The properties file (relative to the root project) read by the "manifest" version source
+	 * @return the version manifest
+	 */
+	public Property<String> getVersionManifest() {
+		return versionManifest;
+	}
+
+	/**
+	 * The fields of git information written to the build information resource (by the
+	 * {@link io.github.duckasteroid.git.mvp.tasks.BuildInfo} task): any of "version", "commit"
+	 * (of the last change to the project), "branch" and "dirty". Only these are inputs to the task,
+	 * so declare only what is needed (the default is none, and no resource).
+	 * @return the build information fields
+	 */
+	public ListProperty<String> getBuildInfoFields() {
+		return buildInfoFields;
+	}
+
+	/**
+	 * The values of build information fields for this project
+	 * @param fields the names of the fields (see {@link #getBuildInfoFields()})
+	 * @return the values by field name
+	 * @throws InvalidUserDataException If a field is unknown
+	 */
+	public Map<String, String> buildInfo(List<String> fields) {
+		Map<String, String> info = new TreeMap<>();
+		for (String field : fields) {
+			Provider<?> value = switch (field) {
+				case "version" -> versionProvider;
+				case "commit" -> commitIdProvider;
+				case "branch" -> branchProvider;
+				case "dirty" -> dirtyProvider;
+				default -> throw new InvalidUserDataException("Unknown build info field '" + field + "' for project " + project.getPath());
+			};
+			info.put(field, value.get().toString());
+		}
+		return info;
+	}
+
+	/**
+	 * Environment variables (checked in order) that hold the current branch name, e.g. on CI.
+	 * If none are set, git is asked. The default covers common CI systems.
+	 * @return the branch variables
+	 */
+	public ListProperty<String> getBranchEnvironmentVariables() {
+		return branchEnvironmentVariables;
+	}
+
+	/**
+	 * Environment variables (checked in order) that hold the HEAD commit ID, e.g. on CI.
+	 * If none are set, git is asked. The default covers common CI systems.
+	 * @return the commit variables
+	 */
+	public ListProperty<String> getCommitEnvironmentVariables() {
+		return commitEnvironmentVariables;
+	}
+
+	/**
+	 * The git version of the project. This is only worked out when first queried, and then
+	 * remembered, so it can be wired into task inputs (e.g. a publication version) cheaply.
+	 * @return the version provider
+	 */
+	public Provider<String> getVersion() {
+		return versionProvider;
+	}
+
+	/**
+	 * The current branch name (worked out when first queried)
+	 * @return the branch provider
+	 */
+	public Provider<String> getBranch() {
+		return branchProvider;
+	}
+
+	/**
+	 * The short ID of the last commit that touched the project (worked out when first queried)
+	 * @return the commit ID provider
+	 */
+	public Provider<String> getCommitId() {
+		return commitIdProvider;
+	}
+
+	/**
+	 * Does the project have uncommitted changes? (worked out when first queried)
+	 * @return the dirty provider
+	 */
+	public Provider<Boolean> getDirty() {
+		return dirtyProvider;
+	}
+
+	/**
+	 * The revision to compare with, to find the {@link #getChangedProjects() changed projects}
+	 * (e.g. "origin/main", there is no default)
+	 * @return the base revision
+	 */
+	public Property<String> getChangeBase() {
+		return changeBase;
+	}
+
+	/**
+	 * The revision to compare to the {@link #getChangeBase() base}, to find the
+	 * {@link #getChangedProjects() changed projects} (the default is "HEAD")
+	 * @return the head revision
+	 */
+	public Property<String> getChangeHead() {
+		return changeHead;
+	}
+
+	/**
+	 * The paths of the projects in the build changed between the {@link #getChangeBase() base}
+	 * and {@link #getChangeHead() head} revisions, with all the projects that depend on them
+	 * (worked out when first queried, no value if there is no base)
+	 * @return the changed projects provider
+	 */
+	public Provider<SortedSet<String>> getChangedProjects() {
+		return changedProjectsProvider;
+	}
+
+	/**
+	 * The paths of the projects in the build changed between two revisions, with all the projects
+	 * that depend on them
+	 * @param base the revision to compare from (e.g. "origin/main")
+	 * @param head the revision to compare to (e.g. "HEAD")
+	 * @return the changed project paths
+	 */
+	public SortedSet<String> changedProjects(String base, String head) {
+		projectWrapper.requireRepository("Finding the changed projects");
+		return AffectedProjects.of(project).between(projectWrapper.getGit(), base, head);
+	}
+
+	/**
+	 * The versions of the projects in a build included in this one (e.g. with <code>includeBuild</code>
+	 * in settings), read from the manifest written by its {@link VersionManifestExport} task
+	 * (<code>build/versions.properties</code> by default) rather than worked out again.
+	 * Depend on that task (e.g. <code>gradle.includedBuild("lib").task(":versionManifest")</code>)
+	 * to make sure the manifest is up to date.
+	 * @param buildName the name of the included build
+	 * @return the manifest provider (no value if the manifest has not been written)
+	 */
+	public Provider<VersionManifest> getIncludedBuildVersions(String buildName) {
+		return providers.provider(() -> {
+			Path manifest = project.getGradle().includedBuild(buildName).getProjectDir().toPath()
+							.resolve(VersionManifestExport.DEFAULT_PROPERTIES_FILE);
+			return VersionManifest.read(manifest).orElse(null);
+		});
+	}
+
+	/**
+	 * Primarily used by unit tests to update the version on the project.
+	 * This forgets anything already worked out, and sets the project version again (worked out
+	 * when next used).
 	 */
 	public void update() {
-		projectWrapper.update();
+		version.reset();
+		branch.reset();
+		commitId.reset();
+		dirty.reset();
+		changedProjects.clear();
+		project.setVersion(new LazyVersion(versionProvider));
 	}
 
 }
@@ -0,0 +1,36 @@
+package io.github.duckasteroid.git.mvp.ext;
+
+import org.gradle.api.provider.Provider;
+
+/**
+ * The project version set by {@link io.github.duckasteroid.git.mvp.GitVersioningPlugin}: Gradle
+ * only uses the <code>toString()</code> of a project version, so this works the version out
+ * (through {@link GitVersionExtension#getVersion()}) when it is first used, after the build script
+ * has configured the extension, rather than when the plugin is applied.
+ */
+public final class LazyVersion {
+	private final Provider<String> version;
+
+	/**
+	 * Create for a version provider
+	 * @param version the version provider
+	 */
+	public LazyVersion(Provider<String> version) {
+		this.version = version;
+	}
+
+	@Override
+	public String toString() {
+		return version.get();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof LazyVersion other && toString().equals(other.toString());
+	}
+
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+}
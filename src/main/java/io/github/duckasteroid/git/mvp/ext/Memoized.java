@@ -0,0 +1,49 @@
+package io.github.duckasteroid.git.mvp.ext;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * A value that is computed on first use, then remembered (until {@link #reset()}).
+ * Used as the source of the lazy providers on the {@link GitVersionExtension}, since Gradle
+ * providers are otherwise recomputed every time they are queried.
+ * @param <T> the type of the value
+ */
+public final class Memoized<T> implements Callable<T> {
+	private final Supplier<T> supplier;
+	private T value;
+	private boolean computed;
+
+	/**
+	 * Create to remember the value from a supplier
+	 * @param supplier computes the value
+	 */
+	public Memoized(Supplier<T> supplier) {
+		this.supplier = supplier;
+	}
+
+	@Override
+	public synchronized T call() {
+		if (!computed) {
+			value = supplier.get();
+			computed = true;
+		}
+		return value;
+	}
+
+	/**
+	 * Has the value been computed yet?
+	 * @return true if computed
+	 */
+	public synchronized boolean isComputed() {
+		return computed;
+	}
+
+	/**
+	 * Forget the value, so it is computed again on next use
+	 */
+	public synchronized void reset() {
+		computed = false;
+		value = null;
+	}
+}
@@ -0,0 +1,97 @@
+package io.github.duckasteroid.git.mvp.facts;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Git facts (branch name and HEAD commit) that CI systems put in environment variables.
+ * Variables are checked in order, the first that is set (and not blank) is used.
+ */
+public class EnvironmentFacts {
+	/**
+	 * Variables holding the branch name, for common CI systems (pull request source branches first)
+	 */
+	public static final List<String> DEFAULT_BRANCH_VARIABLES = List.of(
+					// GitHub Actions
+					"GITHUB_HEAD_REF", "GITHUB_REF_NAME",
+					// GitLab
+					"CI_MERGE_REQUEST_SOURCE_BRANCH_NAME", "CI_COMMIT_BRANCH",
+					// Jenkins
+					"CHANGE_BRANCH", "BRANCH_NAME", "GIT_BRANCH",
+					// Azure Pipelines
+					"SYSTEM_PULLREQUEST_SOURCEBRANCH", "BUILD_SOURCEBRANCH",
+					// Bitbucket, CircleCI, Travis
+					"BITBUCKET_BRANCH", "CIRCLE_BRANCH", "TRAVIS_PULL_REQUEST_BRANCH", "TRAVIS_BRANCH");
+	/**
+	 * Variables holding the HEAD commit ID, for common CI systems
+	 */
+	public static final List<String> DEFAULT_COMMIT_VARIABLES = List.of(
+					"GITHUB_SHA", "CI_COMMIT_SHA", "GIT_COMMIT", "BUILD_SOURCEVERSION",
+					"BITBUCKET_COMMIT", "CIRCLE_SHA1", "TRAVIS_COMMIT");
+	// length of an abbreviated commit ID (git's default minimum)
+	private static final int SHORT_COMMIT_LENGTH = 7;
+	private static final List<String> BRANCH_PREFIXES = List.of("refs/heads/", "origin/");
+
+	private final Function<String, String> environment;
+	private final List<String> branchVariables;
+	private final List<String> commitVariables;
+
+	/**
+	 * Read facts from the process environment
+	 * @param branchVariables variables holding the branch name (in order)
+	 * @param commitVariables variables holding the HEAD commit ID (in order)
+	 */
+	public EnvironmentFacts(List<String> branchVariables, List<String> commitVariables) {
+		this(System::getenv, branchVariables, commitVariables);
+	}
+
+	/**
+	 * Read facts from an environment
+	 * @param environment looks up environment variables
+	 * @param branchVariables variables holding the branch name (in order)
+	 * @param commitVariables variables holding the HEAD commit ID (in order)
+	 */
+	public EnvironmentFacts(Function<String, String> environment, List<String> branchVariables, List<String> commitVariables) {
+		this.environment = environment;
+		this.branchVariables = List.copyOf(branchVariables);
+		this.commitVariables = List.copyOf(commitVariables);
+	}
+
+	/**
+	 * The current branch name (without any <code>refs/heads/</code> or <code>origin/</code> prefix)
+	 * @return the branch name, if in the environment
+	 */
+	public Optional<String> branchName() {
+		return first(branchVariables).map(EnvironmentFacts::stripBranchPrefix);
+	}
+
+	/**
+	 * The HEAD commit ID
+	 * @param shortVersion short or long commit ID
+	 * @return the commit ID, if in the environment
+	 */
+	public Optional<String> headCommitId(boolean shortVersion) {
+		return first(commitVariables)
+						.map(sha -> shortVersion && sha.length() > SHORT_COMMIT_LENGTH ? sha.substring(0, SHORT_COMMIT_LENGTH) : sha);
+	}
+
+	private Optional<String> first(List<String> variables) {
+		for (String variable : variables) {
+			String value = environment.apply(variable);
+			if (value != null && !value.isBlank()) {
+				return Optional.of(value.trim());
+			}
+		}
+		return Optional.empty();
+	}
+
+	private static String stripBranchPrefix(String branch) {
+		for (String prefix : BRANCH_PREFIXES) {
+			if (branch.startsWith(prefix)) {
+				return branch.substring(prefix.length());
+			}
+		}
+		return branch;
+	}
+}
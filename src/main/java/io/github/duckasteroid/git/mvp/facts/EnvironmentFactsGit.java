@@ -0,0 +1,38 @@
+package io.github.duckasteroid.git.mvp.facts;
+
+import io.github.duckasteroid.git.mvp.ForwardingGit;
+import io.github.duckasteroid.git.mvp.Git;
+
+import java.util.function.Supplier;
+
+/**
+ * A {@link Git} that answers branch and HEAD commit queries from {@link EnvironmentFacts} (e.g. on
+ * CI) and only runs git when they are not in the environment. This also gives the real branch
+ * name on CI checkouts with a detached HEAD, where git can only say "HEAD".
+ */
+public class EnvironmentFactsGit extends ForwardingGit {
+	private final Supplier<EnvironmentFacts> facts;
+
+	/**
+	 * Create using the given facts, forwarding to git when they are missing
+	 * @param delegate the git to forward to
+	 * @param facts supplies the facts from the environment
+	 */
+	public EnvironmentFactsGit(Git delegate, Supplier<EnvironmentFacts> facts) {
+		super(delegate);
+		this.facts = facts;
+	}
+
+	@Override
+	public String branchName() {
+		return facts.get().branchName().orElseGet(super::branchName);
+	}
+
+	@Override
+	public String gitCommitID(boolean shortVersion, String path) {
+		if (path == null || path.isBlank()) {
+			return facts.get().headCommitId(shortVersion).orElseGet(() -> super.gitCommitID(shortVersion, path));
+		}
+		return super.gitCommitID(shortVersion, path);
+	}
+}
@@ -0,0 +1,211 @@
+package io.github.duckasteroid.git.mvp.history;
+
+import io.github.duckasteroid.git.mvp.AtomicFiles;
+import io.github.duckasteroid.git.mvp.CacheStats;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the number of commits since a tag (that touched a path), between builds, so that
+ * after new commits only those are counted.
+ * <p>
+ * Each count is kept with the HEAD it was counted at. If HEAD has moved on (an old HEAD is an
+ * ancestor of the new one), the count is the old count plus the commits reachable from the new
+ * HEAD but from neither the old HEAD nor the tag - exactly the commits added since. The counts
+ * are keyed by the object the tag points to, so a moved tag is counted again.
+ * <p>
+ * The counts for a repository are kept in its common git directory, and written when the build
+ * finishes ({@link #save()}). So all the worktrees of a repository share them: counts at a few
+ * recent HEADs are kept, so worktrees on different branches each find their own.
+ */
+public class CommitCountCache {
+	private static final Logger log = Logging.getLogger(CommitCountCache.class);
+	/**
+	 * The file (in the common git directory) the counts are kept in
+	 */
+	public static final String FILE = "git-mvp/commit-counts";
+	// the most counts kept for a repository (the least recently used are dropped)
+	static final int MAX_ENTRIES = 4096;
+	// the most old HEADs (for the same tag and path) checked for an ancestor of HEAD
+	static final int MAX_BASES = 4;
+	private static final String HEADER = "git-mvp-commit-counts\t1";
+
+	/**
+	 * Runs the git queries the cache needs
+	 */
+	public interface Counter {
+		/**
+		 * Count the commits in a set of revisions (e.g. <code>HEAD ^v1.0.0</code>) that touched a path
+		 * @param revisions the revisions (as for <code>rev-list</code>)
+		 * @param path (optional) the path, or null/empty for any
+		 * @return the number of commits
+		 */
+		int count(List<String> revisions, String path);
+
+		/**
+		 * Is one commit an ancestor of (or the same as) another?
+		 * @param ancestor the possible ancestor
+		 * @param descendant the possible descendant
+		 * @return true if it is
+		 */
+		boolean isAncestor(String ancestor, String descendant);
+	}
+
+	private final Map<Path, Store> stores = new ConcurrentHashMap<>();
+	// HEAD of each worktree (asked for once per build)
+	private final Map<Path, String> heads = new ConcurrentHashMap<>();
+	// a hit is a count at the same HEAD, anything counted (even only the new commits) is a miss
+	private final CacheStats stats = new CacheStats();
+
+	/**
+	 * Count the commits since a tag that touched a path, counting only new commits if possible
+	 * @param commonDir the common git directory of the repository
+	 * @param gitDir the git directory of the worktree (where its HEAD is)
+	 * @param tagObject the object the tag points to
+	 * @param path (optional) the path, or null/empty for any
+	 * @param head supplies the commit ID of HEAD (asked for once per build)
+	 * @param counter runs git
+	 * @return the number of commits
+	 */
+	public int count(Path commonDir, Path gitDir, String tagObject, String path, Supplier<String> head, Counter counter) {
+		String commit = heads.computeIfAbsent(gitDir, key -> head.get());
+		return stores.computeIfAbsent(commonDir, Store::new).count(tagObject, path == null ? "" : path, commit, counter, stats);
+	}
+
+	/**
+	 * How often a count was already known (a hit), or commits were counted (a miss)
+	 * @return the cache statistics
+	 */
+	public CacheStats stats() {
+		return stats;
+	}
+
+	/**
+	 * Forget HEAD for a worktree (e.g. because there are new commits), the counts are kept
+	 * @param gitDir the git directory of the worktree
+	 */
+	public void headChanged(Path gitDir) {
+		heads.remove(gitDir);
+	}
+
+	/**
+	 * Write the counts (of any repository that has new ones)
+	 */
+	public void save() {
+		stores.values().forEach(Store::save);
+	}
+
+	/**
+	 * The counts for one repository
+	 */
+	private static final class Store {
+		private final Path file;
+		// counts by tag object, path and HEAD (least recently used first)
+		private final LinkedHashMap<String, Integer> entries = new LinkedHashMap<>(16, 0.75f, true);
+		// whether an old HEAD is an ancestor of a new one (which never changes)
+		private final Map<String, Boolean> ancestors = new HashMap<>();
+		private boolean loaded;
+		private boolean changed;
+
+		private Store(Path commonDir) {
+			this.file = commonDir.resolve(FILE);
+		}
+
+		private synchronized int count(String tagObject, String path, String head, Counter counter, CacheStats stats) {
+			load();
+			String prefix = tagObject + "\t" + path + "\t";
+			Integer cached = entries.get(prefix + head);
+			if (cached != null) {
+				stats.hit();
+				return cached;
+			}
+			stats.miss();
+			// the most recently used counts for the same tag and path
+			List<String> bases = new ArrayList<>();
+			for (String key : entries.keySet()) {
+				if (key.startsWith(prefix)) {
+					bases.add(key);
+				}
+			}
+			Collections.reverse(bases);
+			int count = -1;
+			for (String base : bases.subList(0, Math.min(MAX_BASES, bases.size()))) {
+				String old = base.substring(prefix.length());
+				if (ancestors.computeIfAbsent(old + "\t" + head, key -> counter.isAncestor(old, head))) {
+					count = entries.get(base) + counter.count(List.of(head, "^" + old, "^" + tagObject), path);
+					break;
+				}
+			}
+			if (count < 0) {
+				count = counter.count(List.of(head, "^" + tagObject), path);
+			}
+			entries.put(prefix + head, count);
+			changed = true;
+			return count;
+		}
+
+		private void load() {
+			if (loaded) {
+				return;
+			}
+			loaded = true;
+			if (!Files.isRegularFile(file)) {
+				return;
+			}
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				if (!HEADER.equals(reader.readLine())) {
+					return;
+				}
+				String line;
+				while ((line = reader.readLine()) != null) {
+					// tag object, path, head, count
+					String[] fields = line.split("\t", -1);
+					if (fields.length == 4) {
+						entries.put(fields[0] + "\t" + fields[1] + "\t" + fields[2], Integer.parseInt(fields[3]));
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				// it is only a cache, so count again
+				log.info("Unable to read commit counts from {}", file, e);
+				entries.clear();
+			}
+		}
+
+		private synchronized void save() {
+			if (!changed) {
+				return;
+			}
+			Iterator<String> oldest = entries.keySet().iterator();
+			while (entries.size() > MAX_ENTRIES) {
+				oldest.next();
+				oldest.remove();
+			}
+			try {
+				AtomicFiles.write(file, out -> {
+					out.write(HEADER + "\n");
+					for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+						out.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+					}
+				});
+				changed = false;
+			} catch (IOException e) {
+				log.info("Unable to write commit counts to {}", file, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package io.github.duckasteroid.git.mvp.history;
+
+import io.github.duckasteroid.git.mvp.Git;
+import io.github.duckasteroid.git.mvp.version.MavenVersion;
+import io.github.duckasteroid.git.mvp.version.Version;
+
+import javax.annotation.Nullable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scans the commit messages since a tag for <a href="https://www.conventionalcommits.org/">conventional
+ * commit</a> markers, and works out how the version should be incremented from them:
+ * a breaking change (<code>feat!:</code> or a <code>BREAKING CHANGE:</code> footer) increments the
+ * major version, a <code>feat:</code> the minor version, and anything else the incremental version
+ * (by the number of commits - as without the scan).
+ * <p>
+ * The commits are counted by the same (streamed) walk of the history, and the walk stops as soon
+ * as a breaking change is found: the count is then only of the commits up to it (which a major
+ * increment does not use).
+ */
+public final class ConventionalCommitScan {
+	// type, optional (scope), optional breaking '!', then ':'
+	private static final Pattern SUBJECT = Pattern.compile("^(?<type>[a-zA-Z]+)(?:\\([^)]*\\))?(?<breaking>!)?:\\s");
+	private static final Pattern BREAKING_FOOTER = Pattern.compile("^BREAKING[ -]CHANGE:\\s", Pattern.MULTILINE);
+
+	/**
+	 * How much a version should change
+	 */
+	public enum Bump {
+		/**
+		 * No commits, no change
+		 */
+		NONE,
+		/**
+		 * Fixes (or other commits), increment the incremental version by the number of commits
+		 */
+		INCREMENTAL,
+		/**
+		 * New features, increment the minor version
+		 */
+		MINOR,
+		/**
+		 * Breaking changes, increment the major version
+		 */
+		MAJOR
+	}
+
+	/**
+	 * The result of a scan
+	 * @param commits the number of commits found (only counted up to a breaking change)
+	 * @param bump how much the version should change
+	 */
+	public record Result(int commits, Bump bump) {
+		/**
+		 * Nothing found
+		 */
+		public static final Result NONE = new Result(0, Bump.NONE);
+
+		/**
+		 * Apply the result to a version
+		 * @param version the version (which must be incrementable)
+		 * @return the incremented version
+		 */
+		public Version apply(Version version) {
+			if (version instanceof MavenVersion maven) {
+				return switch (bump) {
+					case NONE -> maven;
+					case INCREMENTAL -> maven.increment(MavenVersion.IncrementStrategy.ONLY_INCREMENTAL, commits);
+					case MINOR -> maven.increment(MavenVersion.IncrementStrategy.NEXT_MINOR, 1);
+					case MAJOR -> maven.increment(MavenVersion.IncrementStrategy.NEXT_MAJOR, 1);
+				};
+			}
+			return bump == Bump.NONE ? version : version.increment(commits);
+		}
+	}
+
+	private ConventionalCommitScan() {
+	}
+
+	/**
+	 * Scan the commits since a tag
+	 * @param git the repository
+	 * @param tag the tag to start from
+	 * @param path (optional) only scan commits that touched this path, or null
+	 * @return the result of the scan
+	 */
+	public static Result scan(Git git, String tag, @Nullable String path) {
+		int[] commits = {0};
+		Bump[] bump = {Bump.NONE};
+		git.walkCommits(tag + "..HEAD", path, commit -> {
+			commits[0]++;
+			Bump found = bumpFor(commit.subject(), commit.body());
+			if (found.compareTo(bump[0]) > 0) {
+				bump[0] = found;
+			}
+			// nothing can outrank a breaking change
+			return bump[0] != Bump.MAJOR;
+		});
+		return new Result(commits[0], bump[0]);
+	}
+
+	/**
+	 * The bump a single commit message asks for
+	 * @param subject the first line of the message
+	 * @param body the rest of the message
+	 * @return the bump
+	 */
+	public static Bump bumpFor(String subject, String body) {
+		if (BREAKING_FOOTER.matcher(body).find()) {
+			return Bump.MAJOR;
+		}
+		Matcher matcher = SUBJECT.matcher(subject);
+		if (matcher.find()) {
+			if (matcher.group("breaking") != null) {
+				return Bump.MAJOR;
+			}
+			if (matcher.group("type").equalsIgnoreCase("feat")) {
+				return Bump.MINOR;
+			}
+		}
+		return Bump.INCREMENTAL;
+	}
+}
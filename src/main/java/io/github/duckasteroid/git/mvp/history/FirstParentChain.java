@@ -0,0 +1,104 @@
+package io.github.duckasteroid.git.mvp.history;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.function.Predicate;
+
+/**
+ * The first-parent chain of commits from HEAD, with the paths each commit changed (relative to its
+ * first parent). The chain is a linear list, read from git only as far back as a query needs, and
+ * then shared: counting the commits since a tag that touched a path is a scan of the list, for
+ * every project and tag.
+ */
+public final class FirstParentChain {
+	/**
+	 * Walks the first-parent chain (newest first), with paths and tags
+	 */
+	public interface Walker {
+		/**
+		 * Walk the chain
+		 * @param start the commit to start from, or null for HEAD
+		 * @param visitor receives each commit, and returns false to stop the walk
+		 */
+		void walk(@Nullable String start, Predicate<HistoryCommit> visitor);
+	}
+
+	private final Walker walker;
+	private final List<HistoryCommit> commits = new ArrayList<>();
+	// has the walk reached the first commit?
+	private boolean complete;
+
+	/**
+	 * Create a chain
+	 * @param walker reads the chain from git
+	 */
+	public FirstParentChain(Walker walker) {
+		this.walker = walker;
+	}
+
+	/**
+	 * Count the commits on the chain since a tag that touched a path
+	 * @param tag the tag
+	 * @param path (optional) the path (from the root of the repository), or null/empty for any
+	 * @return the count, or empty if the tag is not on the chain
+	 */
+	public synchronized OptionalInt count(String tag, @Nullable String path) {
+		int count = 0;
+		for (int i = 0; ; i++) {
+			if (i == commits.size() && !extend(tag)) {
+				return OptionalInt.empty();
+			}
+			HistoryCommit commit = commits.get(i);
+			if (commit.tags().contains(tag)) {
+				return OptionalInt.of(count);
+			}
+			if (touches(commit, path)) {
+				count++;
+			}
+		}
+	}
+
+	private static boolean touches(HistoryCommit commit, @Nullable String path) {
+		if (path == null || path.isBlank()) {
+			return true;
+		}
+		String prefix = path.replace('\\', '/');
+		prefix = prefix.endsWith("/") ? prefix : prefix + "/";
+		for (String changed : commit.paths()) {
+			if (changed.startsWith(prefix) || prefix.equals(changed + "/")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Read the next part of the chain, up to a tagged commit
+	 * @return false if there is no more chain
+	 */
+	private boolean extend(String tag) {
+		if (complete) {
+			return false;
+		}
+		int before = commits.size();
+		// carry on from the last commit read (which is visited again)
+		String start = commits.isEmpty() ? null : commits.get(commits.size() - 1).id();
+		boolean[] skip = {start != null};
+		boolean[] found = {false};
+		walker.walk(start, commit -> {
+			if (skip[0]) {
+				skip[0] = false;
+				return true;
+			}
+			commits.add(commit);
+			found[0] = commit.tags().contains(tag);
+			return !found[0];
+		});
+		if (!found[0]) {
+			complete = true;
+		}
+		return commits.size() > before;
+	}
+}
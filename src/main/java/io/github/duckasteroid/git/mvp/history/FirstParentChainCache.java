@@ -0,0 +1,52 @@
+package io.github.duckasteroid.git.mvp.history;
+
+import io.github.duckasteroid.git.mvp.CacheStats;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares {@link FirstParentChain}s between users of the same worktree (e.g. all the projects in
+ * a build), keyed by the git directory of the worktree: the chain starts at HEAD, and each
+ * worktree of a repository has its own HEAD.
+ */
+public class FirstParentChainCache {
+	private final Map<Path, FirstParentChain> chains = new ConcurrentHashMap<>();
+	private final CacheStats stats = new CacheStats();
+
+	/**
+	 * Get the chain for a worktree, creating it if required
+	 * @param worktree the key for the worktree
+	 * @param factory creates the chain if it is not cached
+	 * @return the (shared) chain
+	 */
+	public FirstParentChain get(Path worktree, Supplier<FirstParentChain> factory) {
+		FirstParentChain chain = chains.get(worktree);
+		if (chain != null) {
+			stats.hit();
+			return chain;
+		}
+		return chains.computeIfAbsent(worktree, key -> {
+			stats.miss();
+			return factory.get();
+		});
+	}
+
+	/**
+	 * How often a chain was shared (a hit), or had to be created (a miss)
+	 * @return the cache statistics
+	 */
+	public CacheStats stats() {
+		return stats;
+	}
+
+	/**
+	 * Forget the chain for a worktree (e.g. because there are new commits)
+	 * @param worktree the key for the worktree
+	 */
+	public void invalidate(Path worktree) {
+		chains.remove(worktree);
+	}
+}
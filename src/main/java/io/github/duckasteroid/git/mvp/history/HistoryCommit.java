@@ -0,0 +1,16 @@
+package io.github.duckasteroid.git.mvp.history;
+
+import java.util.List;
+
+/**
+ * A commit met while walking the history of a repository
+ * @param id the (full) commit ID
+ * @param shortId the abbreviated commit ID
+ * @param commitTime the commit time (epoch seconds)
+ * @param subject the first line of the commit message
+ * @param body the rest of the commit message (maybe empty)
+ * @param tags the names of the tags on the commit (without the <code>refs/tags/</code> prefix)
+ * @param paths the paths (from the repository root, using '/') changed by the commit (if asked for)
+ */
+public record HistoryCommit(String id, String shortId, long commitTime, String subject, String body, List<String> tags, List<String> paths) {
+}
@@ -0,0 +1,227 @@
+package io.github.duckasteroid.git.mvp.manifest;
+
+import io.github.duckasteroid.git.mvp.AtomicFiles;
+import io.github.duckasteroid.git.mvp.JsonStrings;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The resolved versions of every project in a build, keyed by Gradle project path
+ * (e.g. <code>:some:child</code>), with where each version came from and how it was amended.
+ * <p>
+ * A manifest is written once (by the {@link io.github.duckasteroid.git.mvp.tasks.VersionManifestExport}
+ * task) and read by anything downstream that needs the versions without running git: the
+ * {@link io.github.duckasteroid.git.mvp.version.source.BuiltInVersionSources#MANIFEST manifest}
+ * version source, builds that include this one, or CI scripts.
+ * <p>
+ * The properties form maps each project path straight to its version (so it is a valid
+ * manifest for the <code>manifest</code> version source), with the details under
+ * <code>source.</code> and <code>amendments.</code> prefixed keys. The JSON form is for non-JVM consumers.
+ * Both are written in path order, with no timestamps, so the same versions give the same files.
+ */
+public final class VersionManifest {
+	/**
+	 * The key prefix for the version source of a project in the properties form
+	 */
+	public static final String SOURCE_PREFIX = "source.";
+	/**
+	 * The key prefix for the amendments of a project in the properties form
+	 */
+	public static final String AMENDMENTS_PREFIX = "amendments.";
+	// separates amendments in the properties form (escaped by the properties format)
+	private static final String AMENDMENT_SEPARATOR = "\n";
+
+	/**
+	 * The resolved version of one project (serializable, so entries can be task inputs)
+	 * @param version the version string
+	 * @param source a description of the version source used
+	 * @param amendments descriptions of the amendments applied to the source version (in order)
+	 */
+	public record Entry(String version, String source, List<String> amendments) implements Serializable {
+		/**
+		 * Create an entry
+		 * @param version the version string
+		 * @param source a description of the version source used
+		 * @param amendments descriptions of the amendments applied to the source version (in order)
+		 */
+		public Entry {
+			amendments = List.copyOf(amendments);
+		}
+	}
+
+	private final SortedMap<String, Entry> entries;
+
+	/**
+	 * Create a manifest
+	 * @param entries the entries by project path
+	 */
+	public VersionManifest(Map<String, Entry> entries) {
+		this.entries = Collections.unmodifiableSortedMap(new TreeMap<>(entries));
+	}
+
+	/**
+	 * The entries in this manifest
+	 * @return the entries by project path (in path order)
+	 */
+	public SortedMap<String, Entry> entries() {
+		return entries;
+	}
+
+	/**
+	 * The entry for a project
+	 * @param projectPath the Gradle path of the project
+	 * @return the entry, if the project is in the manifest
+	 */
+	public Optional<Entry> entry(String projectPath) {
+		return Optional.ofNullable(entries.get(projectPath));
+	}
+
+	/**
+	 * The version of a project
+	 * @param projectPath the Gradle path of the project
+	 * @return the version, if the project is in the manifest
+	 */
+	public Optional<String> version(String projectPath) {
+		return entry(projectPath).map(Entry::version);
+	}
+
+	/**
+	 * Read a manifest in the properties form. Plain manifests (only project paths and versions)
+	 * are read too, with no source or amendments.
+	 * @param file the manifest file
+	 * @return the manifest, or empty if there is no such file
+	 * @throws UncheckedIOException If the file cannot be read
+	 */
+	public static Optional<VersionManifest> read(Path file) {
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read version manifest " + file, e);
+		}
+		return Optional.of(fromProperties(properties));
+	}
+
+	/**
+	 * Create a manifest from the properties form
+	 * @param properties the properties
+	 * @return the manifest
+	 */
+	public static VersionManifest fromProperties(Properties properties) {
+		Map<String, Entry> entries = new TreeMap<>();
+		for (String key : properties.stringPropertyNames()) {
+			// project paths always start with ':', the details never do
+			if (key.startsWith(":")) {
+				String source = properties.getProperty(SOURCE_PREFIX + key, "");
+				String amendments = properties.getProperty(AMENDMENTS_PREFIX + key, "");
+				entries.put(key, new Entry(properties.getProperty(key), source,
+								amendments.isEmpty() ? List.of() : Arrays.asList(amendments.split(AMENDMENT_SEPARATOR))));
+			}
+		}
+		return new VersionManifest(entries);
+	}
+
+	/**
+	 * Write the properties form of this manifest
+	 * @param file the file to write (replaced, if it exists)
+	 * @throws UncheckedIOException If the file cannot be written
+	 */
+	public void writeProperties(Path file) {
+		write(file, this::writeProperties);
+	}
+
+	/**
+	 * Write the JSON form of this manifest: an object keyed by project path, of objects with
+	 * <code>version</code>, <code>source</code> and <code>amendments</code>
+	 * @param file the file to write (replaced, if it exists)
+	 * @throws UncheckedIOException If the file cannot be written
+	 */
+	public void writeJson(Path file) {
+		write(file, this::writeJson);
+	}
+
+	private void writeProperties(Writer out) throws IOException {
+		out.write("# Project versions, see " + getClass().getName() + "\n");
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			out.write(property(entry.getKey(), entry.getValue().version()));
+		}
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			out.write(property(SOURCE_PREFIX + entry.getKey(), entry.getValue().source()));
+			if (!entry.getValue().amendments().isEmpty()) {
+				out.write(property(AMENDMENTS_PREFIX + entry.getKey(), String.join(AMENDMENT_SEPARATOR, entry.getValue().amendments())));
+			}
+		}
+	}
+
+	/**
+	 * A single property line, escaped by {@link Properties} itself (without its timestamp comment)
+	 */
+	private static String property(String key, String value) throws IOException {
+		Properties single = new Properties();
+		single.setProperty(key, value);
+		StringWriter line = new StringWriter();
+		single.store(line, null);
+		StringBuilder result = new StringBuilder();
+		for (String text : line.toString().split("\\R")) {
+			if (!text.startsWith("#") && !text.isEmpty()) {
+				result.append(text).append('\n');
+			}
+		}
+		return result.toString();
+	}
+
+	private void writeJson(Writer out) throws IOException {
+		out.write("{");
+		String separator = "\n";
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			Entry value = entry.getValue();
+			out.write(separator);
+			out.write("  " + json(entry.getKey()) + ": {\n");
+			out.write("    \"version\": " + json(value.version()) + ",\n");
+			out.write("    \"source\": " + json(value.source()) + ",\n");
+			List<String> amendments = new ArrayList<>(value.amendments().size());
+			for (String amendment : value.amendments()) {
+				amendments.add(json(amendment));
+			}
+			out.write("    \"amendments\": [" + String.join(", ", amendments) + "]\n");
+			out.write("  }");
+			separator = ",\n";
+		}
+		out.write("\n}\n");
+	}
+
+	private static String json(String value) {
+		return JsonStrings.quote(value);
+	}
+
+	/**
+	 * Write to a temporary file and move it in place, so readers never see half a manifest
+	 */
+	private static void write(Path file, AtomicFiles.Content content) {
+		try {
+			AtomicFiles.write(file, content);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write version manifest " + file, e);
+		}
+	}
+}
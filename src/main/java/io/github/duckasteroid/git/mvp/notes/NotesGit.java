@@ -0,0 +1,87 @@
+package io.github.duckasteroid.git.mvp.notes;
+
+import io.github.duckasteroid.git.mvp.CommitCounting;
+import io.github.duckasteroid.git.mvp.ForwardingGit;
+import io.github.duckasteroid.git.mvp.Git;
+import io.github.duckasteroid.git.mvp.history.ConventionalCommitScan;
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
+
+import javax.annotation.Nullable;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A {@link Git} that answers history queries from the {@link VersionNotes} on HEAD (if enabled),
+ * and notes the answers it has to work out, so other checkouts of the same commit need not.
+ */
+public class NotesGit extends ForwardingGit {
+	private final VersionNotes notes;
+	private final VersionNotes.Store store;
+	private final BooleanSupplier enabled;
+
+	/**
+	 * Create using notes, forwarding to git when they do not have the answer
+	 * @param delegate the git to forward to
+	 * @param notes the notes (shared by the build)
+	 * @param store reads and writes the notes of the repository
+	 * @param enabled whether the notes are used (if not, every query is forwarded)
+	 */
+	public NotesGit(Git delegate, VersionNotes notes, VersionNotes.Store store, BooleanSupplier enabled) {
+		super(delegate);
+		this.notes = notes;
+		this.store = store;
+		this.enabled = enabled;
+	}
+
+	@Override
+	public int gitCommitCount(String tag, String path, CommitCounting counting) {
+		Optional<String> tagObject = tagObject(tag);
+		if (tagObject.isEmpty()) {
+			return super.gitCommitCount(tag, path, counting);
+		}
+		String notePath = path == null ? "" : path;
+		VersionNotes.Note note = headNote();
+		OptionalInt noted = note.commitCount(tagObject.get(), notePath, counting);
+		if (noted.isPresent()) {
+			return noted.getAsInt();
+		}
+		int count = super.gitCommitCount(tag, path, counting);
+		note.commitCount(tagObject.get(), notePath, counting, count);
+		return count;
+	}
+
+	@Override
+	public ConventionalCommitScan.Result scan(String tag, @Nullable String path) {
+		Optional<String> tagObject = tagObject(tag);
+		if (tagObject.isEmpty()) {
+			return super.scan(tag, path);
+		}
+		String notePath = path == null ? "" : path;
+		VersionNotes.Note note = headNote();
+		Optional<ConventionalCommitScan.Result> noted = note.scan(tagObject.get(), notePath);
+		if (noted.isPresent()) {
+			return noted.get();
+		}
+		ConventionalCommitScan.Result result = super.scan(tag, path);
+		note.scan(tagObject.get(), notePath, result);
+		return result;
+	}
+
+	/**
+	 * The object a tag points to, if the notes are enabled
+	 * @param tag the tag name
+	 * @return the object, or empty if the notes are not used (or there is no such tag)
+	 */
+	private Optional<String> tagObject(String tag) {
+		if (!enabled.getAsBoolean()) {
+			return Optional.empty();
+		}
+		// just that tag, rather than listing them all
+		return gitTag(tag).map(GitTag::longCommit);
+	}
+
+	private VersionNotes.Note headNote() {
+		return notes.note(getRootDir().orElse(getWorkingDir()), gitCommitID(false, null), store);
+	}
+}
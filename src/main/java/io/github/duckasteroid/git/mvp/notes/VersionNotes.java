@@ -0,0 +1,238 @@
+package io.github.duckasteroid.git.mvp.notes;
+
+import io.github.duckasteroid.git.mvp.CacheStats;
+import io.github.duckasteroid.git.mvp.CommitCounting;
+import io.github.duckasteroid.git.mvp.history.ConventionalCommitScan;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The history facts versions are worked out from (commit counts and conventional commit scans
+ * since tags), kept as a git note on the commit they were worked out at. Notes are fetched and
+ * pushed like any other ref (<code>refs/notes/git-mvp</code>), so a checkout of a commit some other
+ * machine has built gets the facts without walking the history. Facts are keyed by the object a
+ * tag points to, so a moved tag is worked out again.
+ * <p>
+ * A note is UTF-8 text, one tab separated fact per line:
+ * <pre>
+ * git-mvp-notes	1
+ * count	&lt;tag object&gt;	&lt;path&gt;	&lt;ALL|FIRST_PARENT&gt;	&lt;commits&gt;
+ * scan	&lt;tag object&gt;	&lt;path&gt;	&lt;commits&gt;	&lt;bump&gt;
+ * </pre>
+ * New facts are added to the notes when the build finishes ({@link #save()}), merged with any
+ * written since they were read.
+ */
+public class VersionNotes {
+	private static final Logger log = Logging.getLogger(VersionNotes.class);
+	/**
+	 * The notes ref the facts are kept in
+	 */
+	public static final String REF = "refs/notes/git-mvp";
+	private static final String HEADER = "git-mvp-notes\t1";
+	private static final String FIELD = "\t";
+
+	/**
+	 * Reads and writes the notes of a repository
+	 */
+	public interface Store {
+		/**
+		 * Read the note on a commit
+		 * @param commit the commit ID
+		 * @return the note, or empty if there is none
+		 */
+		Optional<String> read(String commit);
+
+		/**
+		 * Write the note on a commit (replacing any it has)
+		 * @param commit the commit ID
+		 * @param note the note
+		 */
+		void write(String commit, String note);
+	}
+
+	private final Map<List<Object>, Note> notes = new ConcurrentHashMap<>();
+	private final CacheStats stats = new CacheStats();
+
+	/**
+	 * The note on a commit (read once per build)
+	 * @param workTree the work tree of the repository
+	 * @param commit the commit ID
+	 * @param store reads and writes the notes of the repository
+	 * @return the note
+	 */
+	public Note note(Path workTree, String commit, Store store) {
+		return notes.computeIfAbsent(List.of(workTree, commit), key -> new Note(commit, store, stats));
+	}
+
+	/**
+	 * How often a fact was noted (a hit), or had to be worked out (a miss)
+	 * @return the cache statistics
+	 */
+	public CacheStats stats() {
+		return stats;
+	}
+
+	/**
+	 * Write the notes with new facts
+	 */
+	public void save() {
+		notes.values().forEach(Note::save);
+	}
+
+	/**
+	 * The facts noted on one commit
+	 */
+	public static final class Note {
+		private final String commit;
+		private final Store store;
+		private final CacheStats stats;
+		private final Map<String, String> facts = new TreeMap<>();
+		// facts worked out in this build
+		private final Map<String, String> added = new TreeMap<>();
+		private boolean loaded;
+
+		private Note(String commit, Store store, CacheStats stats) {
+			this.commit = commit;
+			this.store = store;
+			this.stats = stats;
+		}
+
+		/**
+		 * The number of commits since a tag that touched a path
+		 * @param tagObject the object the tag points to
+		 * @param path the path (from the work tree root)
+		 * @param counting which commits are counted
+		 * @return the count, if noted
+		 */
+		public synchronized OptionalInt commitCount(String tagObject, String path, CommitCounting counting) {
+			String count = fact(String.join(FIELD, "count", tagObject, path, counting.name()));
+			return count == null ? OptionalInt.empty() : OptionalInt.of(Integer.parseInt(count));
+		}
+
+		/**
+		 * Note the number of commits since a tag that touched a path
+		 * @param tagObject the object the tag points to
+		 * @param path the path (from the work tree root)
+		 * @param counting which commits are counted
+		 * @param count the count
+		 */
+		public synchronized void commitCount(String tagObject, String path, CommitCounting counting, int count) {
+			add(String.join(FIELD, "count", tagObject, path, counting.name()), Integer.toString(count));
+		}
+
+		/**
+		 * The conventional commit scan since a tag of a path
+		 * @param tagObject the object the tag points to
+		 * @param path the path (from the work tree root)
+		 * @return the scan result, if noted
+		 */
+		public synchronized Optional<ConventionalCommitScan.Result> scan(String tagObject, String path) {
+			String scan = fact(String.join(FIELD, "scan", tagObject, path));
+			if (scan == null) {
+				return Optional.empty();
+			}
+			String[] fields = scan.split(FIELD);
+			return Optional.of(new ConventionalCommitScan.Result(Integer.parseInt(fields[0]), ConventionalCommitScan.Bump.valueOf(fields[1])));
+		}
+
+		/**
+		 * Note the conventional commit scan since a tag of a path
+		 * @param tagObject the object the tag points to
+		 * @param path the path (from the work tree root)
+		 * @param result the scan result
+		 */
+		public synchronized void scan(String tagObject, String path, ConventionalCommitScan.Result result) {
+			add(String.join(FIELD, "scan", tagObject, path), result.commits() + FIELD + result.bump().name());
+		}
+
+		private String fact(String key) {
+			load();
+			String value = facts.get(key);
+			if (value != null) {
+				stats.hit();
+			} else {
+				stats.miss();
+			}
+			return value;
+		}
+
+		private void add(String key, String value) {
+			load();
+			facts.put(key, value);
+			added.put(key, value);
+		}
+
+		private void load() {
+			if (loaded) {
+				return;
+			}
+			loaded = true;
+			try {
+				store.read(commit).ifPresent(note -> parse(note, facts));
+			} catch (RuntimeException e) {
+				// it is only a cache, so work them out
+				log.info("Unable to read git-mvp notes for {}", commit, e);
+			}
+		}
+
+		private synchronized void save() {
+			if (added.isEmpty()) {
+				return;
+			}
+			try {
+				// keep the facts noted (e.g. by other builds) since this was read
+				Map<String, String> merged = new TreeMap<>();
+				store.read(commit).ifPresent(note -> parse(note, merged));
+				merged.putAll(added);
+				store.write(commit, render(merged));
+				added.clear();
+			} catch (RuntimeException e) {
+				log.info("Unable to write git-mvp notes for {}", commit, e);
+			}
+		}
+	}
+
+	/**
+	 * Read the facts from a note (ignoring lines it does not understand)
+	 * @param note the note
+	 * @param facts the facts read, by key
+	 */
+	static void parse(String note, Map<String, String> facts) {
+		List<String> lines = note.lines().toList();
+		if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+			return;
+		}
+		for (String line : lines.subList(1, lines.size())) {
+			String[] fields = line.split(FIELD, -1);
+			// the last fields are the value
+			int keyFields = switch (fields[0]) {
+				case "count" -> fields.length == 5 ? 4 : -1;
+				case "scan" -> fields.length == 5 ? 3 : -1;
+				default -> -1;
+			};
+			if (keyFields > 0) {
+				int split = String.join(FIELD, List.of(fields).subList(0, keyFields)).length();
+				facts.put(line.substring(0, split), line.substring(split + 1));
+			}
+		}
+	}
+
+	/**
+	 * Write facts to a note
+	 * @param facts the facts, by key
+	 * @return the note
+	 */
+	static String render(Map<String, String> facts) {
+		StringBuilder note = new StringBuilder(HEADER).append('\n');
+		facts.forEach((key, value) -> note.append(key).append(FIELD).append(value).append('\n'));
+		return note.toString();
+	}
+}
@@ -0,0 +1,11 @@
+package io.github.duckasteroid.git.mvp.release;
+
+/**
+ * A tag to create, to release a project at a new version
+ * @param projectPath the Gradle path of the project (e.g. <code>:some:child</code>)
+ * @param tag the tag name (e.g. <code>some/child/v1.2.0</code>)
+ * @param version the version released
+ * @param reason why the version changed
+ */
+public record ReleaseTag(String projectPath, String tag, String version, String reason) {
+}
@@ -0,0 +1,57 @@
+package io.github.duckasteroid.git.mvp.repo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maps paths in a repository to the (deepest) project directory that contains them, by walking
+ * a trie of the project directories one path segment at a time.
+ * @param <T> the type of project
+ */
+public class ProjectPathTrie<T> {
+	private static final class Node<T> {
+		private final Map<String, Node<T>> children = new HashMap<>();
+		private T project;
+	}
+
+	private final Node<T> root = new Node<>();
+
+	/**
+	 * Add a project
+	 * @param directory the project directory (from the repository root, using '/'), blank for the root
+	 * @param project the project
+	 */
+	public void put(String directory, T project) {
+		Node<T> node = root;
+		for (String segment : directory.split("/")) {
+			if (!segment.isEmpty() && !segment.equals(".")) {
+				node = node.children.computeIfAbsent(segment, s -> new Node<>());
+			}
+		}
+		node.project = project;
+	}
+
+	/**
+	 * Find the project that owns a path: the one with the deepest directory containing it
+	 * @param path a path (from the repository root, using '/')
+	 * @return the owning project (if any)
+	 */
+	public Optional<T> owner(String path) {
+		Node<T> node = root;
+		T owner = root.project;
+		for (String segment : path.split("/")) {
+			if (segment.isEmpty()) {
+				continue;
+			}
+			node = node.children.get(segment);
+			if (node == null) {
+				break;
+			}
+			if (node.project != null) {
+				owner = node.project;
+			}
+		}
+		return Optional.ofNullable(owner);
+	}
+}
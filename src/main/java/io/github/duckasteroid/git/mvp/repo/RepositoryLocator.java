@@ -0,0 +1,102 @@
+package io.github.duckasteroid.git.mvp.repo;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the git repository containing a directory without running git.
+ * It walks up from the directory looking for <code>.git</code>, following <code>gitdir:</code>
+ * files (used by worktrees and submodules) and <code>commondir</code> files (used by worktrees).
+ * <p>
+ * An instance caches what it finds, so one instance should be shared for the duration of a build.
+ */
+public class RepositoryLocator {
+	private static final Logger log = Logging.getLogger(RepositoryLocator.class);
+	/**
+	 * The name of the git directory (or file) in a working tree
+	 */
+	public static final String DOT_GIT = ".git";
+	private static final String GITDIR_PREFIX = "gitdir:";
+	private static final String COMMONDIR = "commondir";
+
+	// located topology, keyed by the (normalised) directory we started from
+	private final Map<Path, Optional<RepositoryTopology>> cache = new ConcurrentHashMap<>();
+
+	/**
+	 * Find (and cache) the repository containing a directory
+	 * @param somewhere the file or folder that might be in a git repository
+	 * @return the topology of the repository (if any)
+	 */
+	public Optional<RepositoryTopology> topology(Path somewhere) {
+		return cache.computeIfAbsent(somewhere.toAbsolutePath().normalize(), RepositoryLocator::locate);
+	}
+
+	/**
+	 * Find the repository containing a directory (uncached)
+	 * @param somewhere the file or folder that might be in a git repository
+	 * @return the topology of the repository (if any)
+	 */
+	public static Optional<RepositoryTopology> locate(Path somewhere) {
+		for (Path dir = somewhere.toAbsolutePath().normalize(); dir != null; dir = dir.getParent()) {
+			Path dotGit = dir.resolve(DOT_GIT);
+			try {
+				if (Files.isDirectory(dotGit)) {
+					if (isGitDir(dotGit)) {
+						return Optional.of(new RepositoryTopology(dir, dotGit, commonDir(dotGit), RepositoryTopology.Kind.MAIN));
+					}
+				} else if (Files.isRegularFile(dotGit)) {
+					Optional<Path> gitDir = readGitDirFile(dotGit);
+					if (gitDir.isPresent() && isGitDir(gitDir.get())) {
+						Path commonDir = commonDir(gitDir.get());
+						RepositoryTopology.Kind kind = commonDir.equals(gitDir.get()) ? RepositoryTopology.Kind.SUBMODULE : RepositoryTopology.Kind.WORKTREE;
+						return Optional.of(new RepositoryTopology(dir, gitDir.get(), commonDir, kind));
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		log.debug("No git repository found above {}", somewhere);
+		return Optional.empty();
+	}
+
+	/**
+	 * Does this look like a git directory? (the same minimal check git makes)
+	 */
+	private static boolean isGitDir(Path dir) {
+		return Files.exists(dir.resolve("HEAD"));
+	}
+
+	/**
+	 * Read a <code>.git</code> file of the form <code>gitdir: path</code>
+	 */
+	private static Optional<Path> readGitDirFile(Path dotGit) throws IOException {
+		String content = Files.readString(dotGit, StandardCharsets.UTF_8).trim();
+		if (!content.startsWith(GITDIR_PREFIX)) {
+			return Optional.empty();
+		}
+		Path gitDir = Path.of(content.substring(GITDIR_PREFIX.length()).trim());
+		return Optional.of(dotGit.getParent().resolve(gitDir).normalize());
+	}
+
+	/**
+	 * Resolve the common directory for a git dir (itself, unless it has a <code>commondir</code> file)
+	 */
+	private static Path commonDir(Path gitDir) throws IOException {
+		Path commonDirFile = gitDir.resolve(COMMONDIR);
+		if (Files.isRegularFile(commonDirFile)) {
+			Path commonDir = Path.of(Files.readString(commonDirFile, StandardCharsets.UTF_8).trim());
+			return gitDir.resolve(commonDir).normalize();
+		}
+		return gitDir;
+	}
+}
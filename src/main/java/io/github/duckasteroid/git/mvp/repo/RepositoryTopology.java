@@ -0,0 +1,49 @@
+package io.github.duckasteroid.git.mvp.repo;
+
+import java.nio.file.Path;
+
+/**
+ * The (immutable) layout of a git repository on the filesystem, as found by the
+ * {@link RepositoryLocator}.
+ * @param workTree the root of the working tree (what <code>git rev-parse --show-toplevel</code> reports)
+ * @param gitDir the git directory for this working tree (<code>git rev-parse --git-dir</code>)
+ * @param commonDir the git directory shared by all worktrees, holding refs and objects
+ *                  (<code>git rev-parse --git-common-dir</code>)
+ * @param kind what kind of checkout the working tree is
+ */
+public record RepositoryTopology(Path workTree, Path gitDir, Path commonDir, Kind kind) {
+	/**
+	 * The kinds of checkout we can find
+	 */
+	public enum Kind {
+		/**
+		 * A normal repository, with a <code>.git</code> directory in the working tree
+		 */
+		MAIN,
+		/**
+		 * A linked worktree (created with <code>git worktree add</code>)
+		 */
+		WORKTREE,
+		/**
+		 * A submodule, whose git directory lives inside the super-project
+		 */
+		SUBMODULE
+	}
+
+	/**
+	 * Is the git directory shared with other working trees?
+	 * @return true if this is a linked worktree
+	 */
+	public boolean isLinkedWorktree() {
+		return kind == Kind.WORKTREE;
+	}
+
+	/**
+	 * The path of a file or folder relative to the {@link #workTree()}
+	 * @param path a path inside the working tree
+	 * @return the relative path
+	 */
+	public Path relativize(Path path) {
+		return workTree.relativize(path.toAbsolutePath().normalize());
+	}
+}
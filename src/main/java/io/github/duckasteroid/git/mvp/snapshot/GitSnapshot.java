@@ -0,0 +1,367 @@
+package io.github.duckasteroid.git.mvp.snapshot;
+
+import io.github.duckasteroid.git.mvp.AtomicFiles;
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+import io.github.duckasteroid.git.mvp.history.ConventionalCommitScan;
+import io.github.duckasteroid.git.mvp.tags.TagTable;
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The answers to the git queries versioning needs, captured from a repository (by the
+ * {@link io.github.duckasteroid.git.mvp.tasks.GitSnapshotExport} task) so a build without the
+ * repository (e.g. in a container, with <code>.git</code> left out of the context) gets the same
+ * versions. {@link SnapshotGit} serves the queries.
+ * <p>
+ * The snapshot holds HEAD, the branch, every tag, and for each project the last commit,
+ * the commit count (or conventional commit scan) since its version tag and whether it is dirty.
+ * The file is UTF-8 text, one
+ * tab separated record per line, so it stays small and can be diffed:
+ * <pre>
+ * git-mvp-snapshot	1
+ * head	&lt;commit&gt;	&lt;short commit&gt;
+ * branch	&lt;name&gt;
+ * root	&lt;root project path in the work tree&gt;
+ * tag	refs/tags/&lt;name&gt;	&lt;commit date&gt;	&lt;object&gt;
+ * commit	&lt;path&gt;	&lt;commit&gt;	&lt;short commit&gt;
+ * count	&lt;tag&gt;	&lt;path&gt;	&lt;commits&gt;
+ * scan	&lt;tag&gt;	&lt;path&gt;	&lt;commits&gt;	&lt;bump&gt;
+ * dirty	&lt;path&gt;	&lt;untracked files&gt;	&lt;true|false&gt;
+ * </pre>
+ */
+public final class GitSnapshot {
+	/**
+	 * The default snapshot file name (in the root project directory)
+	 */
+	public static final String DEFAULT_FILE = "git-mvp.snapshot";
+	private static final String HEADER = "git-mvp-snapshot";
+	private static final String FORMAT_VERSION = "1";
+	private static final String FIELD = "\t";
+
+	private final String head;
+	private final String shortHead;
+	private final String branch;
+	private final String root;
+	private final List<String> tagLines;
+	private final TagTable tags;
+	private final Map<String, String[]> commits;
+	private final Map<String, Integer> counts;
+	private final Map<String, ConventionalCommitScan.Result> scans;
+	private final Map<String, Boolean> dirty;
+
+	private GitSnapshot(Builder builder) {
+		this.head = builder.head;
+		this.shortHead = builder.shortHead;
+		this.branch = builder.branch;
+		this.root = builder.root;
+		this.tagLines = List.copyOf(builder.tagLines);
+		TagTable.Builder table = TagTable.builder();
+		// the table is read from the same fields git gives it
+		tagLines.forEach(line -> table.add(line.replace(FIELD, "\u0001")));
+		this.tags = table.build();
+		this.commits = Collections.unmodifiableMap(new LinkedHashMap<>(builder.commits));
+		this.counts = Collections.unmodifiableMap(new LinkedHashMap<>(builder.counts));
+		this.scans = Collections.unmodifiableMap(new LinkedHashMap<>(builder.scans));
+		this.dirty = Collections.unmodifiableMap(new LinkedHashMap<>(builder.dirty));
+	}
+
+	/**
+	 * The commit checked out
+	 * @param shortVersion the abbreviated ID
+	 * @return the HEAD commit ID
+	 */
+	public String head(boolean shortVersion) {
+		return shortVersion ? shortHead : head;
+	}
+
+	/**
+	 * The branch checked out
+	 * @return the branch name
+	 */
+	public String branch() {
+		return branch;
+	}
+
+	/**
+	 * The path of the root project directory in the work tree (empty if it is the work tree)
+	 * @return the relative path
+	 */
+	public Path root() {
+		return Path.of(root);
+	}
+
+	/**
+	 * All the tags in the repository
+	 * @return the tag table
+	 */
+	public TagTable tags() {
+		return tags;
+	}
+
+	/**
+	 * The last commit that touched a path
+	 * @param path the path (from the work tree root)
+	 * @param shortVersion the abbreviated ID
+	 * @return the commit ID, if captured
+	 */
+	public Optional<String> commit(String path, boolean shortVersion) {
+		return Optional.ofNullable(commits.get(path)).map(ids -> ids[shortVersion ? 1 : 0]);
+	}
+
+	/**
+	 * The number of commits since a tag that touched a path
+	 * @param tag the tag
+	 * @param path the path (from the work tree root)
+	 * @return the count, if captured
+	 */
+	public Optional<Integer> commitCount(String tag, String path) {
+		return Optional.ofNullable(counts.get(key(tag, path)));
+	}
+
+	/**
+	 * The conventional commit scan of the commits since a tag that touched a path
+	 * @param tag the tag
+	 * @param path the path (from the work tree root)
+	 * @return the result of the scan, if captured
+	 */
+	public Optional<ConventionalCommitScan.Result> scan(String tag, String path) {
+		return Optional.ofNullable(scans.get(key(tag, path)));
+	}
+
+	/**
+	 * Whether a path had uncommitted changes
+	 * @param path the path (from the work tree root)
+	 * @param untracked the untracked files policy used
+	 * @return true if dirty, if captured
+	 */
+	public Optional<Boolean> dirty(String path, UntrackedFiles untracked) {
+		return Optional.ofNullable(dirty.get(key(path, untracked.name())));
+	}
+
+	private static String key(String first, String second) {
+		return first + FIELD + second;
+	}
+
+	/**
+	 * Read a snapshot
+	 * @param file the snapshot file
+	 * @return the snapshot, or empty if there is no such file
+	 * @throws UncheckedIOException If the file cannot be read
+	 * @throws IllegalArgumentException If the file is not a snapshot (of this format)
+	 */
+	public static Optional<GitSnapshot> read(Path file) {
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+		Builder builder = builder();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String header = reader.readLine();
+			if (header == null || !header.equals(HEADER + FIELD + FORMAT_VERSION)) {
+				throw new IllegalArgumentException("Not a version " + FORMAT_VERSION + " git snapshot: " + file);
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(FIELD, -1);
+				switch (fields[0]) {
+					case "head" -> builder.head(fields[1], fields[2]);
+					case "branch" -> builder.branch(fields[1]);
+					case "root" -> builder.root(fields[1]);
+					case "tag" -> builder.tagLines.add(line.substring(fields[0].length() + 1));
+					case "commit" -> builder.commit(fields[1], fields[2], fields[3]);
+					case "count" -> builder.commitCount(fields[1], fields[2], Integer.parseInt(fields[3]));
+					case "scan" -> builder.scan(fields[1], fields[2],
+									new ConventionalCommitScan.Result(Integer.parseInt(fields[3]), ConventionalCommitScan.Bump.valueOf(fields[4])));
+					case "dirty" -> builder.dirty(fields[1], UntrackedFiles.valueOf(fields[2]), Boolean.parseBoolean(fields[3]));
+					// ignore records from newer versions of the plugin
+					default -> { }
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read git snapshot " + file, e);
+		}
+		return Optional.of(builder.build());
+	}
+
+	/**
+	 * Write this snapshot (to a temporary file, moved in place)
+	 * @param file the file to write (replaced, if it exists)
+	 * @throws UncheckedIOException If the file cannot be written
+	 */
+	public void write(Path file) {
+		try {
+			AtomicFiles.write(file, out -> {
+				record(out, HEADER, FORMAT_VERSION);
+				record(out, "head", head, shortHead);
+				record(out, "branch", branch);
+				record(out, "root", root);
+				for (String tag : tagLines) {
+					record(out, "tag", tag);
+				}
+				for (Map.Entry<String, String[]> commit : commits.entrySet()) {
+					record(out, "commit", commit.getKey(), commit.getValue()[0], commit.getValue()[1]);
+				}
+				for (Map.Entry<String, Integer> count : counts.entrySet()) {
+					record(out, "count", count.getKey(), count.getValue().toString());
+				}
+				for (Map.Entry<String, ConventionalCommitScan.Result> scan : scans.entrySet()) {
+					record(out, "scan", scan.getKey(), Integer.toString(scan.getValue().commits()), scan.getValue().bump().name());
+				}
+				for (Map.Entry<String, Boolean> flag : dirty.entrySet()) {
+					record(out, "dirty", flag.getKey(), flag.getValue().toString());
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write git snapshot " + file, e);
+		}
+	}
+
+	private static void record(Writer out, String... fields) throws IOException {
+		out.write(String.join(FIELD, fields));
+		out.write('\n');
+	}
+
+	/**
+	 * Create a builder for a snapshot
+	 * @return a new builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Accumulates the answers to git queries (the last answer to the same query wins)
+	 */
+	public static class Builder {
+		private String head = "";
+		private String shortHead = "";
+		private String branch = "";
+		private String root = "";
+		private final List<String> tagLines = new ArrayList<>();
+		private final Map<String, String[]> commits = new LinkedHashMap<>();
+		private final Map<String, Integer> counts = new LinkedHashMap<>();
+		private final Map<String, ConventionalCommitScan.Result> scans = new LinkedHashMap<>();
+		private final Map<String, Boolean> dirty = new LinkedHashMap<>();
+
+		/**
+		 * Set the commit checked out
+		 * @param commit the commit ID
+		 * @param shortCommit the abbreviated commit ID
+		 * @return this builder
+		 */
+		public Builder head(String commit, String shortCommit) {
+			this.head = commit;
+			this.shortHead = shortCommit;
+			return this;
+		}
+
+		/**
+		 * Set the branch checked out
+		 * @param branch the branch name
+		 * @return this builder
+		 */
+		public Builder branch(String branch) {
+			this.branch = branch;
+			return this;
+		}
+
+		/**
+		 * Set the path of the root project directory in the work tree
+		 * @param root the relative path (empty if it is the work tree)
+		 * @return this builder
+		 */
+		public Builder root(String root) {
+			this.root = root.replace('\\', '/');
+			return this;
+		}
+
+		/**
+		 * Add tags
+		 * @param tags the tags
+		 * @return this builder
+		 */
+		public Builder tags(List<GitTag> tags) {
+			for (GitTag tag : tags) {
+				OffsetDateTime date = tag.commitDate();
+				String raw = "";
+				if (date != null) {
+					int minutes = date.getOffset().getTotalSeconds() / 60;
+					raw = date.toEpochSecond() + " " + (minutes < 0 ? "-" : "+")
+									+ String.format("%02d%02d", Math.abs(minutes) / 60, Math.abs(minutes) % 60);
+				}
+				tagLines.add(String.join(FIELD, TagTable.TAG_REF_PREFIX + tag.value(), raw, tag.longCommit()));
+			}
+			return this;
+		}
+
+		/**
+		 * Add the last commit that touched a path
+		 * @param path the path (from the work tree root)
+		 * @param commit the commit ID
+		 * @param shortCommit the abbreviated commit ID
+		 * @return this builder
+		 */
+		public Builder commit(String path, String commit, String shortCommit) {
+			commits.put(path, new String[] {commit, shortCommit});
+			return this;
+		}
+
+		/**
+		 * Add the number of commits since a tag that touched a path
+		 * @param tag the tag
+		 * @param path the path (from the work tree root)
+		 * @param count the number of commits
+		 * @return this builder
+		 */
+		public Builder commitCount(String tag, String path, int count) {
+			counts.put(key(tag, path), count);
+			return this;
+		}
+
+		/**
+		 * Add the conventional commit scan of the commits since a tag that touched a path
+		 * @param tag the tag
+		 * @param path the path (from the work tree root)
+		 * @param result the result of the scan
+		 * @return this builder
+		 */
+		public Builder scan(String tag, String path, ConventionalCommitScan.Result result) {
+			scans.put(key(tag, path), result);
+			return this;
+		}
+
+		/**
+		 * Add whether a path has uncommitted changes
+		 * @param path the path (from the work tree root)
+		 * @param untracked the untracked files policy used
+		 * @param isDirty true if dirty
+		 * @return this builder
+		 */
+		public Builder dirty(@Nullable String path, UntrackedFiles untracked, boolean isDirty) {
+			dirty.put(key(path == null ? "" : path, untracked.name()), isDirty);
+			return this;
+		}
+
+		/**
+		 * Build the snapshot
+		 * @return the snapshot
+		 */
+		public GitSnapshot build() {
+			return new GitSnapshot(this);
+		}
+	}
+}
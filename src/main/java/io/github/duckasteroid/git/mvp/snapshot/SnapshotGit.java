@@ -0,0 +1,148 @@
+package io.github.duckasteroid.git.mvp.snapshot;
+
+import io.github.duckasteroid.git.mvp.Change;
+import io.github.duckasteroid.git.mvp.CommitCounting;
+import io.github.duckasteroid.git.mvp.Git;
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+import io.github.duckasteroid.git.mvp.history.ConventionalCommitScan;
+import io.github.duckasteroid.git.mvp.history.HistoryCommit;
+import io.github.duckasteroid.git.mvp.tasks.GitSnapshotExport;
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
+import org.gradle.api.GradleException;
+
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A {@link Git} that answers every query from a {@link GitSnapshot}, without a repository (or git).
+ * Queries the snapshot did not capture get the answer least likely to change a version (the last
+ * commit is HEAD, nothing is dirty), except for the commits since a tag: without the count (or
+ * scan) the version would look like the release itself, so the query fails. The history is not
+ * captured, so walking it (or comparing revisions) fails too.
+ */
+public class SnapshotGit implements Git {
+	private final GitSnapshot snapshot;
+	private final Path workTree;
+
+	/**
+	 * Create for a snapshot
+	 * @param snapshot the snapshot
+	 * @param workTree where the work tree of the snapshot repository is now
+	 */
+	public SnapshotGit(GitSnapshot snapshot, Path workTree) {
+		this.snapshot = snapshot;
+		this.workTree = workTree;
+	}
+
+	/**
+	 * The snapshot the queries are answered from
+	 * @return the snapshot
+	 */
+	public GitSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	@Override
+	public Optional<Path> getRootDir() {
+		return Optional.of(workTree);
+	}
+
+	@Override
+	public Path getWorkingDir() {
+		return workTree;
+	}
+
+	@Override
+	public String gitCommitID(boolean shortVersion, String path) {
+		if (path == null || path.isBlank()) {
+			return snapshot.head(shortVersion);
+		}
+		return snapshot.commit(path, shortVersion).orElseGet(() -> snapshot.head(shortVersion));
+	}
+
+	@Override
+	public int gitCommitCount(String tag, String path, CommitCounting counting) {
+		// counted as configured when the snapshot was captured
+		return snapshot.commitCount(tag, path == null ? "" : path)
+						.orElseThrow(() -> notCaptured("commit count since " + tag, path));
+	}
+
+	@Override
+	public String branchName() {
+		return snapshot.branch();
+	}
+
+	@Override
+	public List<GitTag> gitTags(@Nullable String pattern) {
+		return snapshot.tags().matching(pattern, explanation(pattern));
+	}
+
+	@Override
+	public Optional<GitTag> latestTag(@Nullable String pattern) {
+		return snapshot.tags().latest(pattern, explanation(pattern));
+	}
+
+	@Override
+	public List<GitTag> ancestorTags(String path, @Nullable String leafPattern) {
+		String leaf = leafPattern == null ? "*" : leafPattern;
+		return snapshot.tags().namespaces().nearest(path.replace('\\', '/'), leafPattern,
+						namespace -> explanation(namespace.isEmpty() ? leaf : namespace + "/" + leaf));
+	}
+
+	@Override
+	public Optional<GitTag> nearestAncestorTag(String path, @Nullable String leafPattern) {
+		// the tags are all in memory anyway
+		return ancestorTags(path, leafPattern).stream().findFirst();
+	}
+
+	private static Supplier<String> explanation(@Nullable String pattern) {
+		String refs = pattern == null || pattern.isBlank() ? "refs/tags" : "refs/tags/" + pattern;
+		return () -> "git snapshot tags for " + refs;
+	}
+
+	@Override
+	public boolean gitDirty(@Nullable String pattern, UntrackedFiles untracked) {
+		return snapshot.dirty(pattern == null ? "" : pattern, untracked).orElse(false);
+	}
+
+	@Override
+	public void walkHistory(@Nullable String range, @Nullable String path, boolean withPaths, Predicate<HistoryCommit> visitor) {
+		throw repositoryRequired("Walking the commit history");
+	}
+
+	@Override
+	public ConventionalCommitScan.Result scan(String tag, @Nullable String path) {
+		// scanned as configured when the snapshot was captured
+		return snapshot.scan(tag, path == null ? "" : path)
+						.orElseThrow(() -> notCaptured("conventional commit scan since " + tag, path));
+	}
+
+	@Override
+	public List<String> changedPaths(String base, String head) {
+		throw repositoryRequired("Listing the changes between revisions");
+	}
+
+	/**
+	 * The failure of work that needs the history, which a git snapshot does not have
+	 * @param what the work that needs the repository (e.g. "Listing the changed projects")
+	 * @return the exception to throw
+	 */
+	public static GradleException repositoryRequired(String what) {
+		return new GradleException(what + " needs the git repository, the git snapshot only has the versions of the projects");
+	}
+
+	private static IllegalStateException notCaptured(String query, @Nullable String path) {
+		return new IllegalStateException("The git snapshot has no " + query + " for path '" + (path == null ? "" : path)
+						+ "', capture it again (with the " + GitSnapshotExport.NAME + " task) using the same versioning configuration");
+	}
+
+	@Override
+	public List<Change> status(@Nullable String pattern, UntrackedFiles untracked) {
+		// the changed files are not captured, only whether there are any
+		return List.of();
+	}
+}
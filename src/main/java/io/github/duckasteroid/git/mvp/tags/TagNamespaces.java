@@ -0,0 +1,108 @@
+package io.github.duckasteroid.git.mvp.tags;
+
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * The tags of a {@link TagTable} arranged in a trie of their "folders" (namespaces), so the tags
+ * nearest to a path in the repository can be found by walking from the root toward it.
+ * For example the tag <code>some/deep/v2.0</code> is in the namespace <code>some/deep</code>, and is
+ * the nearest tag for any path beneath it (unless there is a deeper one).
+ */
+public final class TagNamespaces {
+	private static final int[] NO_ROWS = new int[0];
+
+	private static final class Node {
+		private final String namespace;
+		private final Map<String, Node> children = new HashMap<>();
+		// rows of tags directly in this namespace, most recent commit first
+		private int[] rows = NO_ROWS;
+		private int count;
+
+		private Node(String namespace) {
+			this.namespace = namespace;
+		}
+
+		private Node child(String segment) {
+			return children.computeIfAbsent(segment, s -> new Node(namespace.isEmpty() ? s : namespace + "/" + s));
+		}
+
+		private void add(int row) {
+			if (count == rows.length) {
+				rows = Arrays.copyOf(rows, Math.max(4, count * 2));
+			}
+			rows[count++] = row;
+		}
+	}
+
+	private final TagTable table;
+	private final Node root = new Node("");
+
+	/**
+	 * Arrange the tags of a table
+	 * @param table the tags
+	 */
+	TagNamespaces(TagTable table) {
+		this.table = table;
+		// in date order, so every namespace lists its tags most recent first
+		for (int rank = 0; rank < table.size(); rank++) {
+			int row = table.rowByRecency(rank);
+			String[] segments = table.name(row).split("/");
+			Node node = root;
+			for (int i = 0; i < segments.length - 1; i++) {
+				node = node.child(segments[i]);
+			}
+			node.add(row);
+		}
+	}
+
+	/**
+	 * The tags in the namespaces above (and at) a path, nearest namespace first.
+	 * Within a namespace the tags are most recent commit first.
+	 * @param path a path in the repository (using '/'), blank for the root
+	 * @param leafPattern (optional) a glob (e.g. "v*") that the tag name within its namespace must match, or null
+	 * @param explanation explains the tags found in a namespace
+	 * @return the tags (maybe empty, never null)
+	 */
+	public List<GitTag> nearest(String path, @Nullable String leafPattern, Function<String, Supplier<String>> explanation) {
+		Predicate<String> leaf = leafPattern == null || leafPattern.isBlank()
+						? name -> true
+						: TagTable.globToRegex(leafPattern).asMatchPredicate();
+		Deque<Node> lineage = new ArrayDeque<>();
+		lineage.push(root);
+		Node node = root;
+		for (String segment : path.split("/")) {
+			if (segment.isEmpty() || segment.equals(".")) {
+				continue;
+			}
+			node = node.children.get(segment);
+			if (node == null) {
+				break;
+			}
+			lineage.push(node);
+		}
+		List<GitTag> tags = new ArrayList<>();
+		for (Node namespace : lineage) {
+			Supplier<String> explained = explanation.apply(namespace.namespace);
+			for (int i = 0; i < namespace.count; i++) {
+				int row = namespace.rows[i];
+				String name = table.name(row);
+				if (leaf.test(name.substring(name.lastIndexOf('/') + 1))) {
+					tags.add(new GitTag(table, row, explained));
+				}
+			}
+		}
+		return tags;
+	}
+}
@@ -0,0 +1,485 @@
+package io.github.duckasteroid.git.mvp.tags;
+
+import io.github.duckasteroid.git.mvp.version.MavenVersion;
+import io.github.duckasteroid.git.mvp.version.SimpleStringVersion;
+import io.github.duckasteroid.git.mvp.version.Version;
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compact, immutable, columnar (struct of arrays) table of the tags in a repository.
+ * <p>
+ * Tag names and object IDs are held in a single byte arena, with dates and parsed version
+ * components in primitive arrays. Rows are sorted by name, so prefix lookups are a binary
+ * search. {@link GitTag}s are flyweight views onto a row, created only when asked for.
+ */
+public final class TagTable {
+	/**
+	 * The prefix of all tag refs
+	 */
+	public static final String TAG_REF_PREFIX = "refs/tags/";
+	private static final Pattern VERSION_PATTERN = Pattern.compile(("v(\\d+\\.\\d+(?:\\.\\d+)?(?:-[A-Z0-9]+)?)"));
+	private static final char SEPARATOR = '\u0001';
+	private static final int MISSING = -1;
+	private static final long NO_DATE = Long.MIN_VALUE;
+	private static final int SHORT_OID_LENGTH = 7;
+	private static final HexFormat HEX = HexFormat.of();
+	private static final TagTable EMPTY = new Builder().build();
+
+	// arena holds name then oid for each row, row i is from offsets[i] to offsets[i + 1]
+	private final byte[] arena;
+	private final int[] offsets;
+	private final int oidLength;
+	// commit dates (epoch seconds, and zone offset in minutes)
+	private final long[] commitDates;
+	private final short[] zoneOffsets;
+	// where the version string is in the name (in chars)
+	private final int[] versionStart;
+	private final int[] versionEnd;
+	// maven version components (or MISSING), major is missing if not a maven version
+	private final int[] major;
+	private final int[] minor;
+	private final int[] incremental;
+	// the ordering by most recent commit first: row -> rank and rank -> row
+	private final int[] rankOf;
+	private final int[] rowAt;
+	// the tags arranged by namespace (built when first needed)
+	private volatile TagNamespaces namespaces;
+
+	private TagTable(byte[] arena, int[] offsets, int oidLength, long[] commitDates, short[] zoneOffsets,
+									 int[] versionStart, int[] versionEnd, int[] major, int[] minor, int[] incremental) {
+		this.arena = arena;
+		this.offsets = offsets;
+		this.oidLength = oidLength;
+		this.commitDates = commitDates;
+		this.zoneOffsets = zoneOffsets;
+		this.versionStart = versionStart;
+		this.versionEnd = versionEnd;
+		this.major = major;
+		this.minor = minor;
+		this.incremental = incremental;
+		// most recent first, with ties (and tags without dates) in name order - as git sorts them
+		int size = commitDates.length;
+		Integer[] byDate = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			byDate[i] = i;
+		}
+		Arrays.sort(byDate, Comparator.comparingLong((Integer row) -> commitDates[row] == NO_DATE ? 0 : commitDates[row]).reversed()
+						.thenComparingInt(row -> row));
+		this.rowAt = new int[size];
+		this.rankOf = new int[size];
+		for (int rank = 0; rank < size; rank++) {
+			rowAt[rank] = byDate[rank];
+			rankOf[byDate[rank]] = rank;
+		}
+	}
+
+	/**
+	 * An empty table
+	 * @return a table with no tags
+	 */
+	public static TagTable empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * A format string used on the Git command line (with <code>for-each-ref</code>) to get the
+	 * data for each row
+	 * @return the format string for git
+	 */
+	public static String formatString() {
+		return "%(refname)" + SEPARATOR + "%(committerdate:raw)" + SEPARATOR + "%(objectname)";
+	}
+
+	/**
+	 * The number of tags in the table
+	 * @return the number of rows
+	 */
+	public int size() {
+		return commitDates.length;
+	}
+
+	/**
+	 * The tag name (without the <code>refs/tags/</code> prefix)
+	 * @param row the row
+	 * @return the name of the tag
+	 */
+	public String name(int row) {
+		return new String(arena, offsets[row], nameLength(row), StandardCharsets.UTF_8);
+	}
+
+	private int nameLength(int row) {
+		return offsets[row + 1] - offsets[row] - oidLength;
+	}
+
+	/**
+	 * The full object ID the tag points to
+	 * @param row the row
+	 * @return the object ID (hex)
+	 */
+	public String objectId(int row) {
+		int oidStart = offsets[row + 1] - oidLength;
+		return HEX.formatHex(arena, oidStart, oidStart + oidLength);
+	}
+
+	/**
+	 * The abbreviated object ID the tag points to
+	 * @param row the row
+	 * @return the short object ID (hex)
+	 */
+	public String shortObjectId(int row) {
+		return objectId(row).substring(0, SHORT_OID_LENGTH);
+	}
+
+	/**
+	 * The date of the tagged commit
+	 * @param row the row
+	 * @return the date, or null if git reports none (e.g. annotated tags)
+	 */
+	public OffsetDateTime commitDate(int row) {
+		if (commitDates[row] == NO_DATE) {
+			return null;
+		}
+		ZoneOffset offset = ZoneOffset.ofTotalSeconds(zoneOffsets[row] * 60);
+		return OffsetDateTime.ofInstant(Instant.ofEpochSecond(commitDates[row]), offset);
+	}
+
+	/**
+	 * The version part of the tag name. Currently, everything after the 'v'
+	 * @param row the row
+	 * @return the version string
+	 */
+	public String versionString(int row) {
+		return name(row).substring(versionStart[row], versionEnd[row]);
+	}
+
+	/**
+	 * The version from the tag name, built from the pre-parsed components
+	 * @param row the row
+	 * @return the version
+	 */
+	public Version version(int row) {
+		String versionString = versionString(row);
+		if (major[row] == MISSING) {
+			return new SimpleStringVersion(versionString);
+		}
+		int qualifierStart = versionString.indexOf(SimpleStringVersion.QUALIFIER_SEPARATOR);
+		String qualifier = qualifierStart < 0 ? null : versionString.substring(qualifierStart + 1);
+		return new MavenVersion(major[row], boxed(minor[row]), boxed(incremental[row]), qualifier);
+	}
+
+	private static Integer boxed(int component) {
+		return component == MISSING ? null : component;
+	}
+
+	/**
+	 * The row at a position in the ordering by most recent commit first
+	 * @param rank the position (0 is the most recent)
+	 * @return the row
+	 */
+	int rowByRecency(int rank) {
+		return rowAt[rank];
+	}
+
+	/**
+	 * The tags arranged in a trie of their namespaces ("folders"), built once and then shared
+	 * @return the namespaces
+	 */
+	public TagNamespaces namespaces() {
+		TagNamespaces result = namespaces;
+		if (result == null) {
+			synchronized (this) {
+				result = namespaces;
+				if (result == null) {
+					result = new TagNamespaces(this);
+					namespaces = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The tags matching a <code>for-each-ref</code> style pattern, most recent commit first
+	 * @param pattern (optional) a pattern (e.g. "v*" or "some/path/"), or null for all tags
+	 * @param explanation an explanation shared by the returned tags
+	 * @return a (view) list of tags
+	 */
+	public List<GitTag> matching(@Nullable String pattern, Supplier<String> explanation) {
+		int[] rows = rowsMatching(pattern);
+		return new AbstractList<>() {
+			@Override
+			public GitTag get(int index) {
+				return new GitTag(TagTable.this, rows[index], explanation);
+			}
+
+			@Override
+			public int size() {
+				return rows.length;
+			}
+		};
+	}
+
+	/**
+	 * The most recent tag matching a <code>for-each-ref</code> style pattern
+	 * @param pattern (optional) a pattern (e.g. "v*" or "some/path/"), or null for all tags
+	 * @param explanation an explanation for the returned tag
+	 * @return the most recent tag (if any)
+	 */
+	public Optional<GitTag> latest(@Nullable String pattern, Supplier<String> explanation) {
+		int best = Integer.MAX_VALUE;
+		int[] range = range(pattern);
+		IntPredicate matcher = matcher(pattern);
+		for (int row = range[0]; row < range[1]; row++) {
+			if (rankOf[row] < best && matcher.test(row)) {
+				best = rankOf[row];
+			}
+		}
+		if (best == Integer.MAX_VALUE) {
+			return Optional.empty();
+		}
+		return Optional.of(new GitTag(this, rowAt[best], explanation));
+	}
+
+	private int[] rowsMatching(@Nullable String pattern) {
+		int[] range = range(pattern);
+		IntPredicate matcher = matcher(pattern);
+		int[] ranks = new int[range[1] - range[0]];
+		int count = 0;
+		for (int row = range[0]; row < range[1]; row++) {
+			if (matcher.test(row)) {
+				ranks[count++] = rankOf[row];
+			}
+		}
+		// sorting the ranks puts the rows in date order
+		Arrays.sort(ranks, 0, count);
+		int[] rows = new int[count];
+		for (int i = 0; i < count; i++) {
+			rows[i] = rowAt[ranks[i]];
+		}
+		return rows;
+	}
+
+	/**
+	 * The range of rows that start with the literal (non glob) prefix of the pattern
+	 */
+	private int[] range(@Nullable String pattern) {
+		if (pattern == null || pattern.isBlank()) {
+			return new int[] {0, size()};
+		}
+		byte[] prefix = literalPrefix(pattern).getBytes(StandardCharsets.UTF_8);
+		return new int[] {bound(prefix, 0), bound(prefix, 1)};
+	}
+
+	/**
+	 * Binary search for the first row that compares (on the prefix) greater than or equal to
+	 * the threshold (0 finds the lower bound, 1 the upper)
+	 */
+	private int bound(byte[] prefix, int threshold) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (comparePrefix(mid, prefix) < threshold) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Compare the start of a row's name with a prefix: zero if the name starts with it
+	 */
+	private int comparePrefix(int row, byte[] prefix) {
+		int start = offsets[row];
+		int length = nameLength(row);
+		int common = Math.min(length, prefix.length);
+		int compare = Arrays.compareUnsigned(arena, start, start + common, prefix, 0, common);
+		if (compare != 0) {
+			return compare;
+		}
+		return length < prefix.length ? -1 : 0;
+	}
+
+	private static String literalPrefix(String pattern) {
+		for (int i = 0; i < pattern.length(); i++) {
+			if (isGlobChar(pattern.charAt(i))) {
+				return pattern.substring(0, i);
+			}
+		}
+		return pattern;
+	}
+
+	private static boolean isGlobChar(char c) {
+		return c == '*' || c == '?' || c == '[' || c == '\\';
+	}
+
+	/**
+	 * Matches rows against a pattern, with the same rules as <code>git for-each-ref</code>:
+	 * a glob must match the whole name (wildcards do not match '/'), otherwise the pattern must
+	 * match the name up to a '/'
+	 */
+	private IntPredicate matcher(@Nullable String pattern) {
+		if (pattern == null || pattern.isBlank()) {
+			return row -> true;
+		}
+		if (pattern.equals(literalPrefix(pattern))) {
+			if (pattern.endsWith("/")) {
+				return row -> true;
+			}
+			// rows in range already start with the pattern
+			int prefixLength = pattern.getBytes(StandardCharsets.UTF_8).length;
+			return row -> nameLength(row) == prefixLength || arena[offsets[row] + prefixLength] == '/';
+		}
+		Pattern glob = globToRegex(pattern);
+		return row -> glob.matcher(name(row)).matches();
+	}
+
+	static Pattern globToRegex(String glob) {
+		StringBuilder regex = new StringBuilder();
+		for (int i = 0; i < glob.length(); i++) {
+			char c = glob.charAt(i);
+			switch (c) {
+				case '*' -> regex.append("[^/]*");
+				case '?' -> regex.append("[^/]");
+				case '[' -> {
+					int end = glob.indexOf(']', i + 1);
+					if (end < 0) {
+						regex.append("\\[");
+					} else {
+						regex.append('[').append(glob.substring(i + 1, end).replace("\\", "\\\\")).append(']');
+						i = end;
+					}
+				}
+				case '\\' -> {
+					if (i + 1 < glob.length()) {
+						regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+					}
+				}
+				default -> regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		return Pattern.compile(regex.toString());
+	}
+
+	/**
+	 * Create a builder for a table
+	 * @return a new builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Accumulates rows (in any order) and builds the sorted table
+	 */
+	public static class Builder {
+		private final List<Row> rows = new ArrayList<>();
+
+		private record Row(byte[] name, byte[] oid, long date, short zoneOffset) {}
+
+		/**
+		 * Add a line of output from git, formatted with {@link #formatString()}
+		 * @param formatted a line of output
+		 * @return this builder
+		 */
+		public Builder add(String formatted) {
+			String[] split = formatted.split(String.valueOf(SEPARATOR), -1);
+			if (split.length < 3) throw new IllegalArgumentException("Invalid format: " + formatted);
+			String name = split[0].startsWith(TAG_REF_PREFIX) ? split[0].substring(TAG_REF_PREFIX.length()) : split[0];
+			long date = NO_DATE;
+			short zoneOffset = 0;
+			String raw = split[1].trim();
+			if (!raw.isEmpty()) {
+				// e.g. "1700000000 +0100"
+				String[] dateAndZone = raw.split(" ");
+				date = Long.parseLong(dateAndZone[0]);
+				if (dateAndZone.length > 1) {
+					int hhmm = Integer.parseInt(dateAndZone[1].substring(1));
+					int minutes = (hhmm / 100) * 60 + hhmm % 100;
+					zoneOffset = (short) (dateAndZone[1].charAt(0) == '-' ? -minutes : minutes);
+				}
+			}
+			rows.add(new Row(name.getBytes(StandardCharsets.UTF_8), HEX.parseHex(split[2].trim()), date, zoneOffset));
+			return this;
+		}
+
+		/**
+		 * Add a tag
+		 * @param name the tag name (without the <code>refs/tags/</code> prefix)
+		 * @param commitDate the date of the tagged commit (or null if there is none)
+		 * @param objectId the full object ID the tag points to (hex)
+		 * @return this builder
+		 */
+		public Builder add(String name, @Nullable OffsetDateTime commitDate, String objectId) {
+			long date = commitDate == null ? NO_DATE : commitDate.toEpochSecond();
+			short zoneOffset = commitDate == null ? 0 : (short) (commitDate.getOffset().getTotalSeconds() / 60);
+			rows.add(new Row(name.getBytes(StandardCharsets.UTF_8), HEX.parseHex(objectId), date, zoneOffset));
+			return this;
+		}
+
+		/**
+		 * Build the immutable table
+		 * @return the table
+		 */
+		public TagTable build() {
+			rows.sort((a, b) -> Arrays.compareUnsigned(a.name, b.name));
+			int size = rows.size();
+			int oidLength = rows.isEmpty() ? 0 : rows.get(0).oid.length;
+			ByteArrayOutputStream arena = new ByteArrayOutputStream();
+			int[] offsets = new int[size + 1];
+			long[] dates = new long[size];
+			short[] zoneOffsets = new short[size];
+			int[] versionStart = new int[size];
+			int[] versionEnd = new int[size];
+			int[] major = new int[size];
+			int[] minor = new int[size];
+			int[] incremental = new int[size];
+			for (int i = 0; i < size; i++) {
+				Row row = rows.get(i);
+				if (row.oid.length != oidLength) throw new IllegalArgumentException("Mixed object ID lengths");
+				offsets[i] = arena.size();
+				arena.writeBytes(row.name);
+				arena.writeBytes(row.oid);
+				dates[i] = row.date;
+				zoneOffsets[i] = row.zoneOffset;
+				// parse the version components once, up front
+				String name = new String(row.name, StandardCharsets.UTF_8);
+				Matcher matcher = VERSION_PATTERN.matcher(name);
+				if (matcher.find()) {
+					versionStart[i] = matcher.start(1);
+					versionEnd[i] = matcher.end(1);
+				} else {
+					versionStart[i] = 0;
+					versionEnd[i] = name.length();
+				}
+				MavenVersion parsed = MavenVersion.parse(name.substring(versionStart[i], versionEnd[i]));
+				major[i] = parsed == null ? MISSING : parsed.major();
+				minor[i] = parsed == null || parsed.minor() == null ? MISSING : parsed.minor();
+				incremental[i] = parsed == null || parsed.incremental() == null ? MISSING : parsed.incremental();
+			}
+			offsets[size] = arena.size();
+			return new TagTable(arena.toByteArray(), offsets, oidLength, dates, zoneOffsets,
+							versionStart, versionEnd, major, minor, incremental);
+		}
+	}
+}
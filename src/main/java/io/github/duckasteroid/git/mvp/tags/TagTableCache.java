@@ -0,0 +1,61 @@
+package io.github.duckasteroid.git.mvp.tags;
+
+import io.github.duckasteroid.git.mvp.CacheStats;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares {@link TagTable}s between users of the same repository (e.g. all the projects in
+ * a build), keyed by the repository's (common) git directory.
+ */
+public class TagTableCache {
+	private final Map<Path, TagTable> tables = new ConcurrentHashMap<>();
+	private final CacheStats stats = new CacheStats();
+
+	/**
+	 * Get the table for a repository, loading it if required
+	 * @param repository the key for the repository
+	 * @param loader loads the table if it is not cached
+	 * @return the (shared) table
+	 */
+	public TagTable get(Path repository, Supplier<TagTable> loader) {
+		TagTable table = tables.get(repository);
+		if (table != null) {
+			stats.hit();
+			return table;
+		}
+		return tables.computeIfAbsent(repository, key -> {
+			stats.miss();
+			return loader.get();
+		});
+	}
+
+	/**
+	 * How often a table was shared (a hit), or had to be loaded (a miss)
+	 * @return the cache statistics
+	 */
+	public CacheStats stats() {
+		return stats;
+	}
+
+	/**
+	 * Get the table for a repository, only if it is already loaded
+	 * @param repository the key for the repository
+	 * @return the table (if loaded)
+	 */
+	public Optional<TagTable> peek(Path repository) {
+		return Optional.ofNullable(tables.get(repository));
+	}
+
+	/**
+	 * Forget the table for a repository (e.g. because tags have been added)
+	 * @param repository the key for the repository
+	 */
+	public void invalidate(Path repository) {
+		tables.remove(repository);
+	}
+}
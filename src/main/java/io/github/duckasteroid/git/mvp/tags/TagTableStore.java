@@ -0,0 +1,127 @@
+package io.github.duckasteroid.git.mvp.tags;
+
+import io.github.duckasteroid.git.mvp.AtomicFiles;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the tags of a repository (as listed by git for a {@link TagTable}) in its common git
+ * directory between builds, so every build of any worktree of the repository does not list them
+ * again.
+ * <p>
+ * The tags are kept with a fingerprint of the files git keeps tag refs in (the name, size and
+ * modification time of <code>packed-refs</code>, the reftable list, and every loose ref under
+ * <code>refs/tags</code>), worked out without running git. Any change to the tags changes the
+ * fingerprint, and the tags are listed again.
+ */
+public final class TagTableStore {
+	private static final Logger log = Logging.getLogger(TagTableStore.class);
+	/**
+	 * The file (in the common git directory) the tags are kept in
+	 */
+	public static final String FILE = "git-mvp/tags";
+	private static final String HEADER = "git-mvp-tags\t1";
+
+	private TagTableStore() {
+	}
+
+	/**
+	 * The fingerprint of the tag refs of a repository, to take before listing the tags (so a
+	 * change while they are listed is seen next time)
+	 * @param commonDir the common git directory of the repository
+	 * @return the fingerprint, or empty if the refs cannot be read
+	 */
+	public static Optional<String> fingerprint(Path commonDir) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (Path file : List.of(commonDir.resolve("packed-refs"), commonDir.resolve("reftable/tables.list"))) {
+				if (Files.isRegularFile(file)) {
+					update(digest, commonDir, file);
+				}
+			}
+			Path tags = commonDir.resolve("refs/tags");
+			if (Files.isDirectory(tags)) {
+				try (Stream<Path> loose = Files.walk(tags)) {
+					for (Path file : loose.filter(Files::isRegularFile).sorted().toList()) {
+						update(digest, commonDir, file);
+					}
+				}
+			}
+			return Optional.of(HexFormat.of().formatHex(digest.digest()));
+		} catch (IOException | RuntimeException e) {
+			log.info("Unable to fingerprint the tags in {}", commonDir, e);
+			return Optional.empty();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, Path commonDir, Path file) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		String entry = commonDir.relativize(file) + "\t" + attributes.size() + "\t" + attributes.lastModifiedTime().toInstant() + "\n";
+		digest.update(entry.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Read the tags kept for a repository, if they are still current
+	 * @param commonDir the common git directory of the repository
+	 * @param fingerprint the current {@link #fingerprint} of the tag refs
+	 * @return the tags, or empty if none are kept (or the tags have changed since)
+	 */
+	public static Optional<TagTable> load(Path commonDir, String fingerprint) {
+		Path file = commonDir.resolve(FILE);
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			if (!HEADER.equals(reader.readLine()) || !fingerprint.equals(reader.readLine())) {
+				return Optional.empty();
+			}
+			TagTable.Builder builder = TagTable.builder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				builder.add(line);
+			}
+			return Optional.of(builder.build());
+		} catch (IOException | RuntimeException e) {
+			// it is only a cache, so list them again
+			log.info("Unable to read tags from {}", file, e);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Keep the tags listed for a repository
+	 * @param commonDir the common git directory of the repository
+	 * @param fingerprint the {@link #fingerprint} of the tag refs taken before they were listed
+	 * @param lines the tags, as listed by git (with {@link TagTable#formatString()})
+	 */
+	public static void save(Path commonDir, String fingerprint, List<String> lines) {
+		Path file = commonDir.resolve(FILE);
+		try {
+			AtomicFiles.write(file, out -> {
+				out.write(HEADER + "\n");
+				out.write(fingerprint + "\n");
+				for (String line : lines) {
+					out.write(line);
+					out.write('\n');
+				}
+			});
+		} catch (IOException e) {
+			log.info("Unable to write tags to {}", file, e);
+		}
+	}
+}
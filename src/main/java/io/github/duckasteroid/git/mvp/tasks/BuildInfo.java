@@ -0,0 +1,110 @@
+package io.github.duckasteroid.git.mvp.tasks;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * A task added to projects by this plugin.
+ * It generates a properties resource with the git version information a project declares it
+ * needs (see {@link io.github.duckasteroid.git.mvp.ext.GitVersionExtension#getBuildInfoFields()}),
+ * which is added to the main resources of Java projects.
+ * <p>
+ * Only the declared fields are inputs, so a project that only embeds its version is not rebuilt
+ * for every commit. The file has no timestamp, and is only written if its content changes, so
+ * its modification time (and anything derived from it) is kept otherwise.
+ */
+@CacheableTask
+public abstract class BuildInfo extends DefaultTask {
+	/**
+	 * The standard name of this task
+	 */
+	public static final String NAME = "buildInfo";
+	/**
+	 * The default name of the generated resource
+	 */
+	public static final String DEFAULT_RESOURCE = "META-INF/build-info.properties";
+
+	/**
+	 * The build information to write: the declared fields and their values
+	 * @return the build information
+	 */
+	@Input
+	public abstract MapProperty<String, String> getInfo();
+
+	/**
+	 * The name of the resource to generate (in the output directory)
+	 * @return the resource name
+	 */
+	@Input
+	public abstract Property<String> getResourceName();
+
+	/**
+	 * The directory the resource is generated in (a resource root)
+	 * @return the output directory
+	 */
+	@OutputDirectory
+	public abstract DirectoryProperty getOutputDirectory();
+
+	/**
+	 * Runs this task and writes the resource (if it changed)
+	 */
+	@TaskAction
+	public void generate() {
+		Path resource = getOutputDirectory().get().getAsFile().toPath().resolve(getResourceName().get());
+		Map<String, String> info = getInfo().get();
+		try {
+			if (info.isEmpty()) {
+				Files.deleteIfExists(resource);
+				return;
+			}
+			byte[] content = render(info).getBytes(StandardCharsets.UTF_8);
+			if (Files.isRegularFile(resource) && Arrays.equals(content, Files.readAllBytes(resource))) {
+				getLogger().info("{} is unchanged", resource);
+				return;
+			}
+			Files.createDirectories(resource.getParent());
+			Files.write(resource, content);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write " + resource, e);
+		}
+	}
+
+	/**
+	 * The properties file content: sorted, with no timestamp, so the same information always gives
+	 * the same bytes
+	 * @param info the build information
+	 * @return the file content
+	 */
+	private static String render(Map<String, String> info) {
+		Properties properties = new Properties();
+		properties.putAll(info);
+		StringWriter out = new StringWriter();
+		try {
+			properties.store(out, null);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		// each property is on one line (line breaks in values are escaped)
+		return out.toString().lines()
+						.filter(line -> !line.startsWith("#"))
+						.sorted()
+						.collect(Collectors.joining("\n", "", "\n"));
+	}
+}
@@ -0,0 +1,77 @@
+package io.github.duckasteroid.git.mvp.tasks;
+
+import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
+import io.github.duckasteroid.git.mvp.affected.AffectedProjects;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SortedSet;
+
+/**
+ * A task added to the root project by this plugin.
+ * It lists the projects changed between two revisions (with the projects that depend on them),
+ * one project path per line - e.g. for CI to decide what to build.
+ */
+public abstract class ChangedProjects extends DefaultTask {
+	/**
+	 * The standard name of this task
+	 */
+	public static final String NAME = "changedProjects";
+
+	/**
+	 * Create the task (the revisions may move, so it always runs)
+	 */
+	public ChangedProjects() {
+		getOutputs().upToDateWhen(task -> false);
+	}
+
+	/**
+	 * The revision to compare from (e.g. "origin/main")
+	 * @return the base revision
+	 */
+	@Input
+	public abstract Property<String> getBase();
+
+	/**
+	 * The revision to compare to (e.g. "HEAD")
+	 * @return the head revision
+	 */
+	@Input
+	public abstract Property<String> getHead();
+
+	/**
+	 * Where the changed project paths are written
+	 * @return the output file
+	 */
+	@OutputFile
+	public abstract RegularFileProperty getOutputFile();
+
+	/**
+	 * Runs this task and lists the changed projects
+	 */
+	@TaskAction
+	public void listChangedProjects() {
+		AffectedProjects affected = AffectedProjects.of(getProject());
+		GitVersionProjectWrapper projectHelper = new GitVersionProjectWrapper(getProject());
+		projectHelper.requireRepository("Listing the changed projects");
+		SortedSet<String> changed = affected.between(projectHelper.getGit(), getBase().get(), getHead().get());
+		Path output = getOutputFile().get().getAsFile().toPath();
+		try {
+			Files.createDirectories(output.getParent());
+			Files.write(output, changed, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write " + output, e);
+		}
+		getLogger().lifecycle("{} of {} projects changed between {} and {}", changed.size(), affected.projects().size(), getBase().get(), getHead().get());
+		changed.forEach(path -> getLogger().lifecycle("\t{}", path));
+	}
+}
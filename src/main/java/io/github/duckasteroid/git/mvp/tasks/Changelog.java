@@ -0,0 +1,93 @@
+package io.github.duckasteroid.git.mvp.tasks;
+
+import io.github.duckasteroid.git.mvp.GitVersionBuildService;
+import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
+import io.github.duckasteroid.git.mvp.changelog.ChangelogGenerator;
+import io.github.duckasteroid.git.mvp.changelog.ChangelogProject;
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A task added to the root project by this plugin.
+ * It writes a changelog for every project using the plugin, from one walk of the git history,
+ * only writing the versions added since it last ran.
+ */
+public abstract class Changelog extends DefaultTask {
+	/**
+	 * The standard name of this task
+	 */
+	public static final String NAME = "changelog";
+
+	/**
+	 * Create the task (the history is not a declared input, so it always runs)
+	 */
+	public Changelog() {
+		getOutputs().upToDateWhen(task -> false);
+	}
+
+	/**
+	 * The projects to write changelogs for: the Gradle path of each project, to its directory
+	 * @return the project directories
+	 */
+	@Input
+	public abstract MapProperty<String, String> getProjectDirectories();
+
+	/**
+	 * Where the changelogs are written (a folder for each project)
+	 * @return the output directory
+	 */
+	@OutputDirectory
+	public abstract DirectoryProperty getOutputDirectory();
+
+	/**
+	 * How long the walk of the history may take
+	 * @return the timeout
+	 */
+	@Internal
+	public abstract Property<Duration> getCommandTimeout();
+
+	/**
+	 * Runs this task and writes the changelogs
+	 */
+	@TaskAction
+	public void writeChangelogs() {
+		GitVersionBuildService service = GitVersionBuildService.obtain(getProject());
+		Path rootDir = getProject().getRootDir().toPath();
+		List<ChangelogProject> projects = getProjectDirectories().get().entrySet().stream()
+						.map(project -> {
+							var projectHelper = new GitVersionProjectWrapper(service, project.getKey(), Path.of(project.getValue()), rootDir);
+							projectHelper.requireRepository("Writing the changelogs");
+							return new ChangelogProject(id(project.getKey()),
+											projectHelper.getGitRelativePath().toString().replace('\\', '/'),
+											projectHelper.versionTags());
+						})
+						.toList();
+		GitCommandLine git = new GitCommandLine(rootDir, service.getTagTables());
+		git.setTimeout(getCommandTimeout().get());
+		git.setScope(service.getProcesses());
+		ChangelogGenerator.Summary summary = new ChangelogGenerator(git, getOutputDirectory().get().getAsFile().toPath()).generate(projects);
+		getLogger().lifecycle("Read {} commits, wrote {} new versions for {} projects", summary.commits(), summary.written().size(), projects.size());
+		summary.written().forEach(written -> getLogger().info("\t{}", written));
+	}
+
+	/**
+	 * The folder name for a project: its Gradle path as folders (the root project is "root")
+	 * @param projectPath the Gradle path of the project
+	 * @return the project ID
+	 */
+	static String id(String projectPath) {
+		String id = projectPath.replace(':', '/').replaceAll("^/+", "");
+		return id.isEmpty() ? "root" : id;
+	}
+}
@@ -1,18 +1,16 @@
 package io.github.duckasteroid.git.mvp.tasks;
 
 import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
-import io.github.duckasteroid.git.mvp.VersionAmendment;
-import io.github.duckasteroid.git.mvp.version.source.VersionSource;
+import io.github.duckasteroid.git.mvp.explain.VersionExplanation;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.tasks.TaskAction;
 
-import java.util.List;
-
 
 
 /**
  * A task added to projects by this plugin.
- * It prints out diagnostic information about what version is determined and why
+ * It prints out diagnostic information about what version is determined and why.
+ * The {@link ExplainVersions} task reports on every project at once.
  */
 public class ExplainVersion extends DefaultTask {
     /**
@@ -26,25 +24,23 @@ public class ExplainVersion extends DefaultTask {
     @TaskAction
     public void printVersion() {
         GitVersionProjectWrapper projectHelper = new GitVersionProjectWrapper(getProject());
-        List<VersionSource> versions = projectHelper.candidateVersions();
-        String projectRepoPath = getProject().getRootDir().toPath().relativize(getProject().getProjectDir().toPath()).toString();
-        System.out.println("Project: '"+getProject().getName()+"'");
-        System.out.println("\tpath=" + projectRepoPath + "/");
-        System.out.println("\tversion=" + getProject().getVersion());
-        if (!versions.isEmpty()) {
-            System.out.println("How:");
-            System.out.println("\tsource=" + versions.get(0));
-            List<VersionAmendment> amendments = projectHelper.amendments(versions.get(0));
-            amendments.forEach(amendment -> {
-                System.out.println("\tamendment=" + amendment.description());
+        VersionExplanation explanation = VersionExplanation.explain(projectHelper, getProject().getVersion().toString());
+        getLogger().lifecycle("Project: '" + getProject().getName() + "'");
+        getLogger().lifecycle("\tpath=" + explanation.repositoryPath() + "/");
+        getLogger().lifecycle("\tversion=" + explanation.version());
+        if (explanation.chosen().isPresent()) {
+            getLogger().lifecycle("How:");
+            getLogger().lifecycle("\tsource=" + explanation.chosen().get().displayString());
+            explanation.amendments().forEach(amendment -> {
+                getLogger().lifecycle("\tamendment=" + amendment);
             });
-            System.out.println("Considered the following version sources:");
-            versions.forEach((it) -> {
-                System.out.println("\t" + it.toString());
+            getLogger().lifecycle("Considered the following version sources:");
+            explanation.candidates().forEach((it) -> {
+                getLogger().lifecycle("\t" + it.displayString());
             });
         }
         else {
-            System.out.println("\tNo version data found");
+            getLogger().lifecycle("\tNo version data found");
         }
     }
 }
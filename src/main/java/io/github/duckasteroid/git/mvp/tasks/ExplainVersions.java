@@ -0,0 +1,208 @@
+package io.github.duckasteroid.git.mvp.tasks;
+
+import io.github.duckasteroid.git.mvp.CacheStats;
+import io.github.duckasteroid.git.mvp.GitVersionBuildService;
+import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
+import io.github.duckasteroid.git.mvp.explain.VersionExplanation;
+import io.github.duckasteroid.git.mvp.ext.GitVersionExtension;
+import io.github.duckasteroid.git.mvp.version.source.VersionSourceChain;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static io.github.duckasteroid.git.mvp.JsonStrings.quote;
+
+/**
+ * A task added to the root project by this plugin.
+ * It explains the version of every project in the build (as {@link ExplainVersion} does for one),
+ * working them out in parallel through the caches the build shares, and writes a JSON report:
+ * for each project the version, the source chosen, every source considered, the amendments and
+ * how long each step took; and for the whole report how often each shared cache had the answer
+ * (a hit) or asked git (a miss). A project that cannot be explained has an <code>error</code>
+ * rather than failing the report.
+ * <p>
+ * The configuration of every project is read by the task, only the git queries are made in
+ * parallel. Each version is worked out there too (from the chosen source and its amendments,
+ * rather than taken from the project), so the timings are what working it out costs. The caches count for the whole build, so the hits and misses include those of any
+ * tasks running at the same time (the report says so).
+ */
+public abstract class ExplainVersions extends DefaultTask {
+	/**
+	 * The standard name of this task
+	 */
+	public static final String NAME = "explainVersions";
+
+	/**
+	 * Create the task (it reports on the repository as it is now, so it always runs)
+	 */
+	public ExplainVersions() {
+		getOutputs().upToDateWhen(task -> false);
+	}
+
+	/**
+	 * Where the report is written
+	 * @return the report file
+	 */
+	@OutputFile
+	public abstract RegularFileProperty getReportFile();
+
+	/**
+	 * How many projects are explained at once
+	 * @return the parallelism
+	 */
+	@Internal
+	public abstract Property<Integer> getParallelism();
+
+	private record Explained(String projectPath, VersionExplanation explanation, String error) {}
+
+	/**
+	 * A project to explain, with its configuration read (and version sources created), or the
+	 * error reading it
+	 */
+	private record Configured(GitVersionProjectWrapper helper, VersionSourceChain versionSources, String error) {}
+
+	/**
+	 * Runs this task and writes the report
+	 */
+	@TaskAction
+	public void explainAll() {
+		GitVersionBuildService service = GitVersionBuildService.obtain(getProject());
+		Map<String, long[]> before = counts(service.getCacheStats());
+		long start = System.nanoTime();
+		// the projects are read here, only git is queried in parallel
+		Map<String, Configured> configured = new LinkedHashMap<>();
+		for (Project project : getProject().getRootProject().getAllprojects()) {
+			if (project.getExtensions().findByType(GitVersionExtension.class) != null) {
+				try {
+					GitVersionProjectWrapper helper = new GitVersionProjectWrapper(project);
+					helper.readConfiguration();
+					configured.put(project.getPath(), new Configured(helper, helper.versionSources(), null));
+				} catch (RuntimeException e) {
+					getLogger().info("Unable to explain the version of {}", project.getPath(), e);
+					configured.put(project.getPath(), new Configured(null, null, String.valueOf(e)));
+				}
+			}
+		}
+		int parallelism = Math.max(1, getParallelism().get());
+		AtomicInteger threads = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+			Thread thread = new Thread(r, "git-mvp-explain-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<Explained> explained = new ArrayList<>(configured.size());
+		try {
+			Map<String, Future<VersionExplanation>> futures = new LinkedHashMap<>();
+			configured.forEach((path, project) -> futures.put(path, project.error() != null ? null : executor.submit(() ->
+							VersionExplanation.explain(project.helper(), project.versionSources()))));
+			for (Map.Entry<String, Future<VersionExplanation>> future : futures.entrySet()) {
+				if (future.getValue() == null) {
+					explained.add(new Explained(future.getKey(), null, configured.get(future.getKey()).error()));
+					continue;
+				}
+				try {
+					explained.add(new Explained(future.getKey(), future.getValue().get(), null));
+				} catch (ExecutionException e) {
+					getLogger().info("Unable to explain the version of {}", future.getKey(), e.getCause());
+					explained.add(new Explained(future.getKey(), null, String.valueOf(e.getCause())));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GradleException("Interrupted explaining versions", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+		Map<String, long[]> after = counts(service.getCacheStats());
+		Map<String, long[]> caches = new LinkedHashMap<>();
+		after.forEach((name, count) -> caches.put(name, new long[] {count[0] - before.get(name)[0], count[1] - before.get(name)[1]}));
+
+		Path report = getReportFile().get().getAsFile().toPath();
+		try {
+			Files.createDirectories(report.getParent());
+			Files.writeString(report, render(explained, caches, elapsed, parallelism), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write " + report, e);
+		}
+		getLogger().lifecycle("Explained the versions of {} projects in {} ms, see {}", explained.size(), millis(elapsed), report);
+	}
+
+	private static Map<String, long[]> counts(Map<String, CacheStats> stats) {
+		Map<String, long[]> counts = new LinkedHashMap<>();
+		stats.forEach((name, cache) -> counts.put(name, new long[] {cache.hits(), cache.misses()}));
+		return counts;
+	}
+
+	private static String render(List<Explained> explained, Map<String, long[]> caches, Duration elapsed, int parallelism) {
+		StringBuilder json = new StringBuilder("{\n");
+		json.append("  \"elapsedMs\": ").append(millis(elapsed)).append(",\n");
+		json.append("  \"parallelism\": ").append(parallelism).append(",\n");
+		json.append("  \"caches\": {");
+		json.append(caches.entrySet().stream()
+						.map(cache -> "\n    " + quote(cache.getKey()) + ": {\"hits\": " + cache.getValue()[0] + ", \"misses\": " + cache.getValue()[1] + "}")
+						.collect(Collectors.joining(",")));
+		json.append("\n  },\n");
+		json.append("  \"cachesScope\": ").append(quote("build: includes the queries of any tasks running at the same time")).append(",\n");
+		json.append("  \"projects\": [");
+		String separator = "\n";
+		for (Explained project : explained) {
+			json.append(separator).append("    {\n");
+			json.append("      \"path\": ").append(quote(project.projectPath()));
+			VersionExplanation explanation = project.explanation();
+			if (explanation == null) {
+				json.append(",\n      \"error\": ").append(quote(project.error())).append("\n    }");
+				separator = ",\n";
+				continue;
+			}
+			json.append(",\n      \"repositoryPath\": ").append(quote(explanation.repositoryPath()));
+			json.append(",\n      \"version\": ").append(quote(explanation.version()));
+			json.append(",\n      \"source\": ").append(explanation.chosen().map(ExplainVersions::candidate).orElse("null"));
+			json.append(",\n      \"candidates\": [").append(explanation.candidates().stream()
+							.map(candidate -> "\n        " + candidate(candidate))
+							.collect(Collectors.joining(","))).append(explanation.candidates().isEmpty() ? "]" : "\n      ]");
+			json.append(",\n      \"amendments\": [").append(explanation.amendments().stream()
+							.map(amendment -> quote(amendment))
+							.collect(Collectors.joining(", "))).append("]");
+			json.append(",\n      \"timingsMs\": {").append(explanation.timings().entrySet().stream()
+							.map(timing -> quote(timing.getKey()) + ": " + millis(timing.getValue()))
+							.collect(Collectors.joining(", "))).append("}");
+			json.append("\n    }");
+			separator = ",\n";
+		}
+		json.append(explained.isEmpty() ? "]\n" : "\n  ]\n");
+		return json.append("}\n").toString();
+	}
+
+	private static String candidate(VersionExplanation.Candidate candidate) {
+		return "{\"type\": " + quote(candidate.type().name()) + ", \"value\": " + quote(candidate.value())
+						+ ", \"version\": " + quote(candidate.version()) + ", \"explanation\": " + quote(candidate.explanation()) + "}";
+	}
+
+	private static String millis(Duration duration) {
+		return String.format(Locale.ROOT, "%.3f", duration.toNanos() / 1_000_000.0);
+	}
+}
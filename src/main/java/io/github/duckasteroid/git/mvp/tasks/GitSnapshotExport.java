@@ -0,0 +1,92 @@
+package io.github.duckasteroid.git.mvp.tasks;
+
+import io.github.duckasteroid.git.mvp.Git;
+import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+import io.github.duckasteroid.git.mvp.ext.GitVersionExtension;
+import io.github.duckasteroid.git.mvp.snapshot.GitSnapshot;
+import io.github.duckasteroid.git.mvp.version.source.VersionSource;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Project;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * A task added to the root project by this plugin.
+ * It captures a {@link GitSnapshot} of the answers to the git queries every project in the build
+ * needs for its version: HEAD, the branch, the tags, and each project's last commit, commit count
+ * (or conventional commit scan) since its version tag and dirty state. A build of the same tree without the repository (e.g. a
+ * container build that leaves out <code>.git</code>) then gets the same versions without git.
+ * <p>
+ * The snapshot is written to the root project directory by default (where it is looked for);
+ * it should be ignored by git, so it does not make the repository dirty.
+ */
+public abstract class GitSnapshotExport extends DefaultTask {
+	/**
+	 * The standard name of this task
+	 */
+	public static final String NAME = "gitSnapshot";
+
+	/**
+	 * Create the task (the repository changes in ways Gradle cannot see, so it always runs)
+	 */
+	public GitSnapshotExport() {
+		getOutputs().upToDateWhen(task -> false);
+	}
+
+	/**
+	 * Where the snapshot is written
+	 * @return the snapshot file
+	 */
+	@OutputFile
+	public abstract RegularFileProperty getSnapshotFile();
+
+	/**
+	 * Runs this task and writes the snapshot
+	 */
+	@TaskAction
+	public void capture() {
+		GitSnapshot snapshot = capture(getProject());
+		snapshot.write(getSnapshotFile().get().getAsFile().toPath());
+		getLogger().lifecycle("Wrote git snapshot of {} tags to {}", snapshot.tags().size(), getSnapshotFile().get().getAsFile());
+	}
+
+	/**
+	 * Capture a snapshot of the git queries for every project in a build that uses the plugin
+	 * @param project any project in the build
+	 * @return the snapshot
+	 */
+	public static GitSnapshot capture(Project project) {
+		GitVersionProjectWrapper rootHelper = new GitVersionProjectWrapper(project.getRootProject());
+		Git git = rootHelper.getGit();
+		GitSnapshot.Builder snapshot = GitSnapshot.builder()
+						.head(git.gitCommitID(false, null), git.gitCommitID(true, null))
+						.branch(git.branchName())
+						.root(rootHelper.getGitRelativePath().toString())
+						.tags(git.gitTags(null));
+		for (Project each : project.getRootProject().getAllprojects()) {
+			GitVersionExtension ext = each.getExtensions().findByType(GitVersionExtension.class);
+			if (ext == null) {
+				continue;
+			}
+			GitVersionProjectWrapper projectHelper = new GitVersionProjectWrapper(each);
+			String path = projectHelper.getGitRelativePath().toString();
+			if (!path.isEmpty()) {
+				snapshot.commit(path, git.gitCommitID(false, path), git.gitCommitID(true, path));
+			}
+			UntrackedFiles untracked = ext.getUntrackedFiles().get();
+			snapshot.dirty(path, untracked, git.gitDirty(path, untracked));
+			// the commits counted (or scanned) for the version increment (if the version is from a tag)
+			VersionSource source = projectHelper.versionSources().first().orElseThrow();
+			if (source.type() == VersionSource.Type.TAG && source.isAmendable()) {
+				if (ext.getConventionalCommits().get()) {
+					snapshot.scan(source.value(), path, git.scan(source.value(), path));
+				} else {
+					snapshot.commitCount(source.value(), path, git.gitCommitCount(source.value(), path, projectHelper.commitCounting()));
+				}
+			}
+		}
+		return snapshot.build();
+	}
+}
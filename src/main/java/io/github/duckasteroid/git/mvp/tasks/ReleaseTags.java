@@ -0,0 +1,89 @@
+package io.github.duckasteroid.git.mvp.tasks;
+
+import io.github.duckasteroid.git.mvp.GitVersionBuildService;
+import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import io.github.duckasteroid.git.mvp.ext.GitVersionExtension;
+import io.github.duckasteroid.git.mvp.release.ReleaseTag;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.TaskAction;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A task added to the root project by this plugin.
+ * It works out the next version of every project changed since its last version tag, and tags
+ * them all at HEAD in a single git transaction (one git process, and either all the tags are
+ * created or none are). A release that is already tagged is left out (it would fail the
+ * transaction for every project).
+ */
+public abstract class ReleaseTags extends DefaultTask {
+	/**
+	 * The standard name of this task
+	 */
+	public static final String NAME = "releaseTags";
+
+	/**
+	 * Only list the tags, rather than create them (the default is to create them)
+	 * @return the dry run flag
+	 */
+	@Input
+	public abstract Property<Boolean> getDryRun();
+
+	/**
+	 * How long the git command that creates the tags may run for
+	 * @return the command timeout
+	 */
+	@Input
+	public abstract Property<Duration> getCommandTimeout();
+
+	/**
+	 * Runs this task and tags the releases
+	 */
+	@TaskAction
+	public void tagReleases() {
+		GitVersionBuildService service = GitVersionBuildService.obtain(getProject());
+		GitCommandLine git = new GitCommandLine(getProject().getRootDir().toPath(), service.getTagTables());
+		git.setTimeout(getCommandTimeout().get());
+		git.setScope(service.getProcesses());
+		List<ReleaseTag> releases = new ArrayList<>();
+		for (ReleaseTag release : releases(getProject())) {
+			if (git.gitTag(release.tag()).isPresent()) {
+				getLogger().warn("{} is already tagged {}, not tagging it again", release.projectPath(), release.tag());
+			} else {
+				releases.add(release);
+			}
+		}
+		String head = git.gitCommitID(false, null);
+		Map<String, String> tags = new LinkedHashMap<>();
+		releases.forEach(release -> tags.put(release.tag(), head));
+		if (!getDryRun().get()) {
+			git.createTags(tags);
+		}
+		getLogger().lifecycle("{} {} releases at {}", getDryRun().get() ? "Would tag" : "Tagged", releases.size(), head);
+		releases.forEach(release -> getLogger().lifecycle("\t{} {}: {}", release.projectPath(), release.tag(), release.reason()));
+	}
+
+	/**
+	 * The next releases of the projects in a build (that use the plugin) changed since their last
+	 * version tag
+	 * @param project any project in the build
+	 * @return the releases (in project order)
+	 */
+	public static List<ReleaseTag> releases(Project project) {
+		List<ReleaseTag> releases = new ArrayList<>();
+		for (Project each : project.getRootProject().getAllprojects()) {
+			if (each.getExtensions().findByType(GitVersionExtension.class) != null) {
+				new GitVersionProjectWrapper(each).nextRelease().ifPresent(releases::add);
+			}
+		}
+		return releases;
+	}
+}
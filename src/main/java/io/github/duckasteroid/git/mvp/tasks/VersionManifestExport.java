@@ -0,0 +1,121 @@
+package io.github.duckasteroid.git.mvp.tasks;
+
+import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
+import io.github.duckasteroid.git.mvp.VersionAmendment;
+import io.github.duckasteroid.git.mvp.ext.GitVersionExtension;
+import io.github.duckasteroid.git.mvp.manifest.VersionManifest;
+import io.github.duckasteroid.git.mvp.version.Version;
+import io.github.duckasteroid.git.mvp.version.source.VersionSource;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Project;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A task added to the root project by this plugin.
+ * It resolves the version of every project in the build that uses the plugin and writes them to a
+ * {@link VersionManifest} (in properties and JSON form), so downstream consumers can load the
+ * versions instead of working them out again.
+ * <p>
+ * The task is cacheable: its inputs are the resolved entries of the manifest (worked out when the
+ * task graph is, from the versioning configuration of each project as well as the repository) and
+ * any version injected by the environment, so it only runs again when a version (or where it came
+ * from) changes.
+ */
+@CacheableTask
+public abstract class VersionManifestExport extends DefaultTask {
+	/**
+	 * The standard name of this task
+	 */
+	public static final String NAME = "versionManifest";
+	/**
+	 * The default file name of the properties form (in the build directory)
+	 */
+	public static final String PROPERTIES_FILE = "versions.properties";
+	/**
+	 * The default file name of the JSON form (in the build directory)
+	 */
+	public static final String JSON_FILE = "versions.json";
+	/**
+	 * Where the properties form is written by default (relative to the root project)
+	 */
+	public static final String DEFAULT_PROPERTIES_FILE = "build/" + PROPERTIES_FILE;
+
+	/**
+	 * The resolved version of each project (see {@link #resolve(Project)})
+	 * @return the entries by project path
+	 */
+	@Input
+	public abstract MapProperty<String, VersionManifest.Entry> getEntries();
+
+	/**
+	 * A version injected by the environment (e.g. by CI), which overrides git
+	 * @return the injected version, if any
+	 */
+	@Input
+	@Optional
+	public abstract Property<String> getInjectedVersion();
+
+	/**
+	 * Where the properties form of the manifest is written
+	 * @return the properties file
+	 */
+	@OutputFile
+	public abstract RegularFileProperty getPropertiesFile();
+
+	/**
+	 * Where the JSON form of the manifest is written
+	 * @return the JSON file
+	 */
+	@OutputFile
+	public abstract RegularFileProperty getJsonFile();
+
+	/**
+	 * Runs this task and writes the manifest
+	 */
+	@TaskAction
+	public void export() {
+		VersionManifest manifest = new VersionManifest(getEntries().get());
+		manifest.writeProperties(getPropertiesFile().get().getAsFile().toPath());
+		manifest.writeJson(getJsonFile().get().getAsFile().toPath());
+		getLogger().lifecycle("Wrote versions of {} projects to {}", manifest.entries().size(), getPropertiesFile().get().getAsFile());
+	}
+
+	/**
+	 * Resolve the versions of every project in a build that uses the plugin, in one pass (the tags
+	 * and other git facts are shared by the whole build). Each entry comes from one resolution, so
+	 * its version, source and amendments agree.
+	 * @param project any project in the build
+	 * @return the manifest of versions (its {@link VersionManifest#entries() entries} are the
+	 * convention for {@link #getEntries()})
+	 */
+	public static VersionManifest resolve(Project project) {
+		Map<String, VersionManifest.Entry> entries = new TreeMap<>();
+		for (Project each : project.getRootProject().getAllprojects()) {
+			GitVersionExtension ext = each.getExtensions().findByType(GitVersionExtension.class);
+			if (ext == null) {
+				continue;
+			}
+			GitVersionProjectWrapper projectHelper = new GitVersionProjectWrapper(each);
+			VersionSource source = projectHelper.versionSources().first().orElseThrow();
+			List<VersionAmendment> amendments = projectHelper.amendments(source);
+			Version version = source.version();
+			for (VersionAmendment amendment : amendments) {
+				version = amendment.amended(version);
+			}
+			entries.put(each.getPath(), new VersionManifest.Entry(version.toString(), source.displayString(),
+							amendments.stream().map(VersionAmendment::description).toList()));
+		}
+		return new VersionManifest(entries);
+	}
+}
@@ -115,6 +115,29 @@ public record MavenVersion(
 				return new MavenVersion(version.major + amount, version.minor, version.incremental, null);
 			}
 		},
+		/**
+		 * Update the minor component with the amount, and reset the incremental component (if defined)
+		 * to 0 - as for a new feature in semantic versioning.
+		 */
+		NEXT_MINOR {
+			public Version apply(MavenVersion version, Integer amount) {
+				int minor = amount;
+				if (version.minor != null) {
+					minor = version.minor + amount;
+				}
+				return new MavenVersion(version.major, minor, version.incremental == null ? null : 0, null);
+			}
+		},
+		/**
+		 * Update the major component with the amount, and reset the minor and incremental
+		 * components (if defined) to 0 - as for a breaking change in semantic versioning.
+		 */
+		NEXT_MAJOR {
+			public Version apply(MavenVersion version, Integer amount) {
+				return new MavenVersion(version.major + amount,
+								version.minor == null ? null : 0, version.incremental == null ? null : 0, null);
+			}
+		},
 		/**
 		 * Update the first component defined with the amount. Starting with incremental, then minor,
 		 * then major
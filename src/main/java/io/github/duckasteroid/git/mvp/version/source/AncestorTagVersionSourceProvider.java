@@ -0,0 +1,41 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import io.github.duckasteroid.git.mvp.Git;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Provides the git tags in the nearest tag "folder" above (or at) a path in the repository as
+ * version sources - so a tag on a folder versions every project beneath it.
+ * Tags in folders further up are the fallbacks, down to the root tags.
+ * @param git the git repository to query
+ * @param path supplies the path in the repository (e.g. of the project)
+ * @param leafPattern the pattern of the tag within its folder (e.g. "v*")
+ */
+public record AncestorTagVersionSourceProvider(Git git, Supplier<Path> path, String leafPattern) implements VersionSourceProvider {
+
+	@Override
+	public String description() {
+		return "Git tags matching '" + leafPattern + "' in the nearest folder above '" + path.get() + "'";
+	}
+
+	@Override
+	public int cost() {
+		return Cost.GIT_REFS;
+	}
+
+	@Override
+	public Optional<VersionSource> first() {
+		// asks each folder for its latest tag, rather than listing every tag
+		return git.nearestAncestorTag(path.get().toString(), leafPattern).map(VersionSource.class::cast);
+	}
+
+	@Override
+	public List<VersionSource> all() {
+		return new ArrayList<>(git.ancestorTags(path.get().toString(), leafPattern));
+	}
+}
@@ -0,0 +1,130 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
+import io.github.duckasteroid.git.mvp.ext.GitVersionExtension;
+import org.gradle.api.provider.Property;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * The version sources that come with the plugin
+ */
+public enum BuiltInVersionSources implements VersionSourceProviderFactory {
+	/**
+	 * A version injected through an environment variable (e.g. by CI)
+	 */
+	ENVIRONMENT("environment") {
+		@Override
+		public Optional<VersionSourceProvider> create(GitVersionProjectWrapper project) {
+			String variable = setting(project, GitVersionExtension::getVersionEnvironmentVariable, DEFAULT_ENVIRONMENT_VARIABLE);
+			// the environment the build service sees (which tests can replace)
+			return Optional.of(new EnvironmentVersionSourceProvider(variable, project.getService().getEnvironment()));
+		}
+	},
+	/**
+	 * A version file checked in with the project
+	 */
+	FILE("file") {
+		@Override
+		public Optional<VersionSourceProvider> create(GitVersionProjectWrapper project) {
+			String file = setting(project, GitVersionExtension::getVersionFile, DEFAULT_VERSION_FILE);
+			return Optional.of(new FileVersionSourceProvider(project.getProjectDir().resolve(file)));
+		}
+	},
+	/**
+	 * A precomputed manifest of project versions, in the root project
+	 */
+	MANIFEST("manifest") {
+		@Override
+		public Optional<VersionSourceProvider> create(GitVersionProjectWrapper project) {
+			String manifest = setting(project, GitVersionExtension::getVersionManifest, DEFAULT_VERSION_MANIFEST);
+			return Optional.of(new ManifestVersionSourceProvider(project.getRootDir().resolve(manifest), project.getProjectPath()));
+		}
+	},
+	/**
+	 * Git version tags in a "folder" matching the project path
+	 */
+	PROJECT_TAGS("projectTags") {
+		@Override
+		public Optional<VersionSourceProvider> create(GitVersionProjectWrapper project) {
+			// path is preceded by ':'
+			String path = project.getProjectPath().substring(1).trim();
+			if (path.isBlank()) {
+				return Optional.empty();
+			}
+			return Optional.of(new TagVersionSourceProvider(project.getGit(), path + "/"));
+		}
+	},
+	/**
+	 * Git version tags (vXXX) in the nearest "folder" above the project directory
+	 * (e.g. some/deep/v1.0.0 for a project in some/deep/path), down to those with no path
+	 */
+	PATH_TAGS("pathTags") {
+		@Override
+		public Optional<VersionSourceProvider> create(GitVersionProjectWrapper project) {
+			return Optional.of(new AncestorTagVersionSourceProvider(project.getGit(), project::getGitRelativePath, "v*"));
+		}
+	},
+	/**
+	 * Git version tags (vXXX) with no path (e.g. v1.0.0)
+	 */
+	TAGS("tags") {
+		@Override
+		public Optional<VersionSourceProvider> create(GitVersionProjectWrapper project) {
+			return Optional.of(new TagVersionSourceProvider(project.getGit(), "v*"));
+		}
+	},
+	/**
+	 * The short form of the last commit ID that touched the project
+	 */
+	COMMIT("commit") {
+		@Override
+		public Optional<VersionSourceProvider> create(GitVersionProjectWrapper project) {
+			return Optional.of(new CommitVersionSourceProvider(project.getGit(), project::getGitRelativePath));
+		}
+	};
+
+	/**
+	 * The default environment variable for {@link #ENVIRONMENT}
+	 */
+	public static final String DEFAULT_ENVIRONMENT_VARIABLE = "GIT_MVP_VERSION";
+	/**
+	 * The default file (relative to the project) for {@link #FILE}
+	 */
+	public static final String DEFAULT_VERSION_FILE = "version.txt";
+	/**
+	 * The default manifest (relative to the root project) for {@link #MANIFEST}
+	 */
+	public static final String DEFAULT_VERSION_MANIFEST = "versions.properties";
+	/**
+	 * The sources used if none are configured ({@link #PATH_TAGS} falls back to the same tags as {@link #TAGS})
+	 */
+	public static final List<BuiltInVersionSources> DEFAULTS = List.of(ENVIRONMENT, PROJECT_TAGS, PATH_TAGS, COMMIT);
+
+	private final String sourceName;
+
+	BuiltInVersionSources(String sourceName) {
+		this.sourceName = sourceName;
+	}
+
+	@Override
+	public String sourceName() {
+		return sourceName;
+	}
+
+	/**
+	 * Find a built-in source by name
+	 * @param name the name of the source
+	 * @return the source (if there is one with that name)
+	 */
+	public static Optional<BuiltInVersionSources> named(String name) {
+		return Arrays.stream(values()).filter(source -> source.sourceName.equals(name)).findFirst();
+	}
+
+	private static String setting(GitVersionProjectWrapper project, Function<GitVersionExtension, Property<String>> property, String fallback) {
+		return project.extension().map(property).map(Property::get).orElse(fallback);
+	}
+}
@@ -0,0 +1,30 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import io.github.duckasteroid.git.mvp.Git;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Provides the short form of the last commit ID that touched a path as a version source
+ * @param git the git repository to query
+ * @param path supplies the path (relative to the repository root), only when needed
+ */
+public record CommitVersionSourceProvider(Git git, Supplier<Path> path) implements VersionSourceProvider {
+
+	@Override
+	public String description() {
+		return "Commit ID on project @ " + path.get();
+	}
+
+	@Override
+	public int cost() {
+		return Cost.GIT_HISTORY;
+	}
+
+	@Override
+	public Optional<VersionSource> first() {
+		return Optional.of(new Commit(this::description, git.gitCommitID(true, path.get().toString())));
+	}
+}
@@ -0,0 +1,39 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Provides a version from an environment variable (e.g. injected by CI). The version is final,
+ * so it is not amended.
+ * @param variable the name of the environment variable
+ * @param environment looks up environment variables (normally {@link System#getenv(String)})
+ */
+public record EnvironmentVersionSourceProvider(String variable, Function<String, String> environment) implements VersionSourceProvider {
+
+	/**
+	 * Provide the version from the process environment
+	 * @param variable the name of the environment variable
+	 */
+	public EnvironmentVersionSourceProvider(String variable) {
+		this(variable, System::getenv);
+	}
+
+	@Override
+	public String description() {
+		return "Environment variable " + variable;
+	}
+
+	@Override
+	public int cost() {
+		return Cost.MEMORY;
+	}
+
+	@Override
+	public Optional<VersionSource> first() {
+		return Optional.ofNullable(environment.apply(variable))
+						.map(String::trim)
+						.filter(value -> !value.isEmpty())
+						.map(value -> new FixedVersionSource(VersionSource.Type.ENVIRONMENT, value, this::description, false));
+	}
+}
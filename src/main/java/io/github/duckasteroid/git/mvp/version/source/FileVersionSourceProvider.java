@@ -0,0 +1,40 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Provides a version from the first (non-blank) line of a file checked in with the project.
+ * @param file the version file
+ */
+public record FileVersionSourceProvider(Path file) implements VersionSourceProvider {
+
+	@Override
+	public String description() {
+		return "Version file " + file;
+	}
+
+	@Override
+	public int cost() {
+		return Cost.FILE;
+	}
+
+	@Override
+	public Optional<VersionSource> first() {
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+		try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+			return lines.map(String::trim)
+							.filter(line -> !line.isEmpty() && !line.startsWith("#"))
+							.findFirst()
+							.map(value -> new FixedVersionSource(VersionSource.Type.FILE, value, this::description, true));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
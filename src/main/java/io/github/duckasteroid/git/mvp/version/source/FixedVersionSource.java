@@ -0,0 +1,27 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import io.github.duckasteroid.git.mvp.version.Version;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Supplier;
+
+/**
+ * A version source that is a literal value read from outside git (an environment variable, a
+ * file or a manifest).
+ * @param type the type of source
+ * @param value the version string
+ * @param explanation where the value came from
+ * @param isAmendable whether the version may be amended, or is final
+ */
+public record FixedVersionSource(Type type, String value, Supplier<String> explanation, boolean isAmendable) implements VersionSource {
+
+	@Override
+	public Version version() {
+		return Version.parse(value);
+	}
+
+	@Override
+	public @NotNull String toString() {
+		return displayString();
+	}
+}
@@ -1,50 +1,94 @@
 package io.github.duckasteroid.git.mvp.version.source;
 
+import io.github.duckasteroid.git.mvp.tags.TagTable;
 import io.github.duckasteroid.git.mvp.version.Version;
 
+import javax.annotation.Nullable;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.function.Supplier;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
- * Represents data about a git tag
+ * Represents data about a git tag.
+ * This is a lightweight view onto a row of a {@link TagTable}, which holds the actual data.
  */
 public class GitTag implements VersionSource {
 
-	private static final Pattern PATTERN = Pattern.compile(("v(\\d+\\.\\d+(?:\\.\\d+)?(?:-[A-Z0-9]+)?)"));
 	private static final char SEPARATOR = '\u0001';
 	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd@HH:mm:ss~Z");
 
+	private final TagTable table;
+	private final int row;
 	private final Supplier<String> explanation;
-	private final String tag;
-	private final OffsetDateTime commitDate;
+	// only known for tags created with the deprecated constructor (or parse)
 	private final String subject;
 	private final String shortCommit;
-	private final String longCommit;
+
+	/**
+	 * Represents a git tag as a source of potential version information
+	 * @param table the table holding the tag data
+	 * @param row the row of the table for this tag
+	 * @param explanation An explanation of how this tag came to be used
+	 */
+	public GitTag(TagTable table, int row, Supplier<String> explanation) {
+		this(table, row, explanation, null, null);
+	}
 
 	/**
 	 * Represents a git tag as a source of potential version information
 	 * @param explanation An explanation of how this tag came to be used
 	 * @param tag the complete tag itself
 	 * @param commitDate the date of the tagged commit (if any)
-	 * @param subject //FIXME ???
+	 * @param subject the subject of the tagged commit
 	 * @param shortCommit the short commit ID
 	 * @param longCommit the long commit ID
+	 * @deprecated tags are rows of a {@link TagTable}, build one with {@link TagTable#builder()}
 	 */
-	public GitTag(Supplier<String> explanation, String tag, OffsetDateTime commitDate, String subject, String shortCommit, String longCommit) {
+	@Deprecated
+	public GitTag(Supplier<String> explanation, String tag, @Nullable OffsetDateTime commitDate, String subject,
+								String shortCommit, String longCommit) {
+		this(TagTable.builder().add(tag, commitDate, longCommit).build(), 0, explanation, subject, shortCommit);
+	}
+
+	private GitTag(TagTable table, int row, Supplier<String> explanation, @Nullable String subject, @Nullable String shortCommit) {
+		this.table = table;
+		this.row = row;
 		this.explanation = explanation;
-		this.tag = tag;
-		this.commitDate = commitDate;
 		this.subject = subject;
 		this.shortCommit = shortCommit;
-		this.longCommit = longCommit;
+	}
+
+	/**
+	 * Parse a string from git formatted using {@link #formatString()}
+	 * @param explanation an explanation for the version source (where the tag comes from)
+	 * @param formatted the formatted result from git
+	 * @return a git tag instance holding the parsed data
+	 * @deprecated list tags with {@link TagTable#formatString()} and add them to a {@link TagTable.Builder}
+	 */
+	@Deprecated
+	public static GitTag parse(Supplier<String> explanation, String formatted) {
+		String[] split = formatted.split(String.valueOf(SEPARATOR));
+		if (split.length < 5) throw new IllegalArgumentException("Invalid format: " + formatted);
+		OffsetDateTime offsetDateTime = null;
+		if (!split[1].isBlank()) {
+			offsetDateTime = OffsetDateTime.parse(split[1], DATE_FORMAT);
+		}
+		return new GitTag(explanation, split[0], offsetDateTime, split[2], split[3], split[4]);
+	}
+
+	/**
+	 * A format string used on the Git command line to get extra data about the tag
+	 * @return the format string for git
+	 * @deprecated use {@link TagTable#formatString()}
+	 */
+	@Deprecated
+	public static String formatString() {
+		return "%(refname:short)" + SEPARATOR + "%(committerdate:format:%Y-%m-%d@%H:%M:%S~%z)" + SEPARATOR + "%(subject)" + SEPARATOR + "%(objectname:short)" + SEPARATOR + "%(objectname)";
 	}
 
 	@Override
 	public String value() {
-		return tag;
+		return table.name(row);
 	}
 
 	@Override
@@ -58,41 +102,50 @@ public class GitTag implements VersionSource {
 	}
 
 	/**
-	 * Extract the version part of the tag. Currently, everything after the 'v'
-	 * @return the version string
+	 * The date of the tagged commit
+	 * @return the date, or null if git reports none (e.g. annotated tags)
 	 */
-	public String versionString() {
-		Matcher matcher = PATTERN.matcher(tag);
-		if (!matcher.find()) return tag;
-		return matcher.group(1);// Extract the version number
+	public OffsetDateTime commitDate() {
+		return table.commitDate(row);
 	}
 
-	public Version version() {
-		return Version.parse(versionString());
+	/**
+	 * The short object ID the tag points to
+	 * @return the short ID
+	 */
+	public String shortCommit() {
+		return shortCommit != null ? shortCommit : table.shortObjectId(row);
 	}
 
 	/**
-	 * Parse a string from git formatted using {@link #formatString()}
-	 * @param explanation an explanation for the version source (where the tag comes from)
-	 * @param formatted the formatted result from git
-	 * @return a git tag instance holding the parsed data
+	 * The subject of the tagged commit
+	 * @return the subject, or null if it is not known
+	 * @deprecated only known for tags created with the deprecated constructor (or {@link #parse}),
+	 * the {@link TagTable} does not hold it
 	 */
-	public static GitTag parse(Supplier<String> explanation, String formatted) {
-		String[] split = formatted.split(String.valueOf(SEPARATOR));
-		if (split.length < 5) throw new IllegalArgumentException("Invalid format: " + formatted);
-		OffsetDateTime offsetDateTime = null;
-		if (!split[1].isBlank()) {
-			offsetDateTime = OffsetDateTime.parse(split[1], DATE_FORMAT);
-		}
-		return new GitTag(explanation, split[0], offsetDateTime , split[2], split[3], split[4]);
+	@Deprecated
+	public String subject() {
+		return subject;
 	}
 
 	/**
-	 * A format string used on the Git command line to get extra data about the tag
-	 * @return the format string for git
+	 * The full object ID the tag points to
+	 * @return the long ID
 	 */
-	public static String formatString() {
-		return "%(refname:short)" + SEPARATOR + "%(committerdate:format:%Y-%m-%d@%H:%M:%S~%z)" + SEPARATOR + "%(subject)" + SEPARATOR + "%(objectname:short)" + SEPARATOR + "%(objectname)";
+	public String longCommit() {
+		return table.objectId(row);
+	}
+
+	/**
+	 * Extract the version part of the tag. Currently, everything after the 'v'
+	 * @return the version string
+	 */
+	public String versionString() {
+		return table.versionString(row);
+	}
+
+	public Version version() {
+		return table.version(row);
 	}
 
 	@Override
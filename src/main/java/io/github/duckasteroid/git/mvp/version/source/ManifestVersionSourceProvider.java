@@ -0,0 +1,37 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import io.github.duckasteroid.git.mvp.manifest.VersionManifest;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Provides a precomputed version from a manifest: a properties file mapping Gradle project paths
+ * (e.g. <code>:some:child</code>) to versions, such as a {@link VersionManifest}. The version is
+ * final, so it is not amended.
+ * @param manifest the manifest file
+ * @param projectPath the Gradle path of the project to look up
+ */
+public record ManifestVersionSourceProvider(Path manifest, String projectPath) implements VersionSourceProvider {
+
+	@Override
+	public String description() {
+		return "Version manifest " + manifest + " for " + projectPath;
+	}
+
+	@Override
+	public int cost() {
+		return Cost.FILE;
+	}
+
+	@Override
+	public Optional<VersionSource> first() {
+		return VersionManifest.read(manifest)
+						.flatMap(versions -> versions.entry(projectPath))
+						.map(entry -> new FixedVersionSource(VersionSource.Type.MANIFEST, entry.version(), () -> explain(entry), false));
+	}
+
+	private String explain(VersionManifest.Entry entry) {
+		return entry.source().isEmpty() ? description() : description() + " (from " + entry.source() + ")";
+	}
+}
@@ -0,0 +1,35 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import io.github.duckasteroid.git.mvp.Git;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Provides the git tags matching a pattern as version sources (most recent first)
+ * @param git the git repository to query
+ * @param pattern the tag pattern (e.g. "v*" or "some/path/")
+ */
+public record TagVersionSourceProvider(Git git, String pattern) implements VersionSourceProvider {
+
+	@Override
+	public String description() {
+		return "Git tags matching '" + pattern + "'";
+	}
+
+	@Override
+	public int cost() {
+		return Cost.GIT_REFS;
+	}
+
+	@Override
+	public Optional<VersionSource> first() {
+		return git.latestTag(pattern).map(VersionSource.class::cast);
+	}
+
+	@Override
+	public List<VersionSource> all() {
+		return new ArrayList<>(git.gitTags(pattern));
+	}
+}
@@ -19,7 +19,19 @@ public interface VersionSource {
 		/**
 		 * A git commit
 		 */
-		COMMIT
+		COMMIT,
+		/**
+		 * An environment variable (e.g. set by CI)
+		 */
+		ENVIRONMENT,
+		/**
+		 * A version file checked in with the project
+		 */
+		FILE,
+		/**
+		 * A precomputed manifest of project versions
+		 */
+		MANIFEST
 	}
 
 	/**
@@ -45,6 +57,15 @@ public interface VersionSource {
 	 */
 	Version version();
 
+	/**
+	 * Can the version from this source be amended (e.g. incremented or marked dirty)?
+	 * Sources that supply a final version (e.g. injected by CI) are not.
+	 * @return true if amendments apply
+	 */
+	default boolean isAmendable() {
+		return true;
+	}
+
 	/**
 	 * A display string for this version source
 	 * @return the type, value and version instance
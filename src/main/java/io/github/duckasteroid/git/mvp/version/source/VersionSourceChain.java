@@ -0,0 +1,86 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import io.github.duckasteroid.git.mvp.GitTimeoutException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An ordered chain of {@link VersionSourceProvider}s. The chain is evaluated lazily, in order,
+ * so that a {@link #first()} query stops at the first provider to supply a source - later
+ * (often more expensive) providers are never queried. A provider whose git query times out fails
+ * the chain: falling back to the next one would give a different version because git was slow.
+ */
+public class VersionSourceChain {
+	private static final Logger log = Logging.getLogger(VersionSourceChain.class);
+
+	private final List<VersionSourceProvider> providers;
+
+	/**
+	 * Create a chain of providers
+	 * @param providers the providers in order of preference
+	 */
+	public VersionSourceChain(List<VersionSourceProvider> providers) {
+		this.providers = List.copyOf(providers);
+	}
+
+	/**
+	 * Create a chain that queries the cheapest providers first
+	 * @param providers the providers in order of preference (used when they cost the same)
+	 * @return a chain ordered by {@link VersionSourceProvider#cost()}
+	 */
+	public static VersionSourceChain cheapestFirst(List<VersionSourceProvider> providers) {
+		List<VersionSourceProvider> sorted = new ArrayList<>(providers);
+		// a stable sort, so preference is kept for the same cost
+		sorted.sort(Comparator.comparingInt(VersionSourceProvider::cost));
+		return new VersionSourceChain(sorted);
+	}
+
+	/**
+	 * The providers in this chain
+	 * @return the providers in order of preference
+	 */
+	public List<VersionSourceProvider> providers() {
+		return providers;
+	}
+
+	/**
+	 * Find the preferred version source, evaluating providers only until one supplies a source
+	 * @return the preferred source (if any)
+	 */
+	public Optional<VersionSource> first() {
+		for (VersionSourceProvider provider : providers) {
+			try {
+				Optional<VersionSource> source = provider.first();
+				if (source.isPresent()) {
+					return source;
+				}
+			} catch (GitTimeoutException e) {
+				log.error("{} timed out, not falling back to the next source (it could give another version)", provider.description());
+				throw e;
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Fully evaluate every provider in the chain (e.g. for diagnostics)
+	 * @return all sources in order of preference
+	 */
+	public List<VersionSource> all() {
+		List<VersionSource> result = new ArrayList<>();
+		for (VersionSourceProvider provider : providers) {
+			try {
+				result.addAll(provider.all());
+			} catch (GitTimeoutException e) {
+				log.error("{} timed out, not skipping it (the chosen source could be another)", provider.description());
+				throw e;
+			}
+		}
+		return result;
+	}
+}
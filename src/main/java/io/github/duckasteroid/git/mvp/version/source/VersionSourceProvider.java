@@ -0,0 +1,62 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A lazy supplier of {@link VersionSource}s, one link in a {@link VersionSourceChain}.
+ * Nothing is queried until {@link #first()} or {@link #all()} is called.
+ * Providers are created for a project by a {@link VersionSourceProviderFactory}.
+ */
+public interface VersionSourceProvider {
+	/**
+	 * A description of the sources this provides
+	 * @return a description
+	 */
+	String description();
+
+	/**
+	 * The relative cost of querying this provider, cheaper providers are queried first
+	 * @return the cost (see {@link Cost} for some reference points)
+	 */
+	int cost();
+
+	/**
+	 * The preferred source from this provider, doing as little work as possible to find it
+	 * @return the preferred source (if any)
+	 */
+	Optional<VersionSource> first();
+
+	/**
+	 * All the sources from this provider, in order of preference
+	 * @return a list of sources (maybe empty, never null)
+	 */
+	default List<VersionSource> all() {
+		return first().stream().toList();
+	}
+
+	/**
+	 * Reference points for {@link #cost()}
+	 */
+	final class Cost {
+		/**
+		 * Reading something already in memory (e.g. an environment variable)
+		 */
+		public static final int MEMORY = 0;
+		/**
+		 * Reading a file
+		 */
+		public static final int FILE = 10;
+		/**
+		 * Running a git query on refs
+		 */
+		public static final int GIT_REFS = 100;
+		/**
+		 * Running a git query that walks history
+		 */
+		public static final int GIT_HISTORY = 1000;
+
+		private Cost() {
+		}
+	}
+}
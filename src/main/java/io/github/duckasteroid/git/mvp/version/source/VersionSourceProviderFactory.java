@@ -0,0 +1,27 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import io.github.duckasteroid.git.mvp.GitVersionProjectWrapper;
+
+import java.util.Optional;
+
+/**
+ * The service provider interface for sources of version information. A factory creates the
+ * {@link VersionSourceProvider} for a particular project. Factories are selected by
+ * {@link #sourceName()} in the {@link io.github.duckasteroid.git.mvp.ext.GitVersionExtension}, where
+ * custom ones can also be registered.
+ * @see BuiltInVersionSources
+ */
+public interface VersionSourceProviderFactory {
+	/**
+	 * The name used to select this factory
+	 * @return the name
+	 */
+	String sourceName();
+
+	/**
+	 * Create a provider for a project
+	 * @param project the project to provide versions for
+	 * @return the provider, or empty if this source does not apply to the project
+	 */
+	Optional<VersionSourceProvider> create(GitVersionProjectWrapper project);
+}
@@ -0,0 +1,88 @@
+package io.github.duckasteroid.git.mvp;
+
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitVersionBuildServiceTest {
+	@TempDir
+	Path rootDir;
+
+	@Test
+	void sharedByTheBuildTree() throws IOException {
+		// a composite build: the root build includes another build, in the same repository
+		GitCommandLine.withGit(List.of("init"), rootDir, true);
+		Path included = Files.createDirectories(rootDir.resolve("included"));
+		Files.writeString(rootDir.resolve("settings.gradle"), "rootProject.name = 'root'\nincludeBuild('included')\n");
+		Files.writeString(included.resolve("settings.gradle"), "rootProject.name = 'included'\n");
+		String script = """
+						plugins {
+							id 'io.github.duckasteroid.git-mvp'
+						}
+						def service = io.github.duckasteroid.git.mvp.GitVersionBuildService.obtain(project)
+						println "service of ${gradle.rootProject.name}: ${System.identityHashCode(service)}"
+						""";
+		Files.writeString(rootDir.resolve("build.gradle"), script);
+		Files.writeString(included.resolve("build.gradle"), script);
+		GitCommandLine git = new GitCommandLine(rootDir);
+		git.add(".");
+		git.commit("First");
+		git.lightTag("v1.0.0");
+
+		BuildResult result = GradleRunner.create()
+						.withProjectDir(rootDir.toFile())
+						.withPluginClasspath()
+						.withArguments("help")
+						.build();
+		Map<String, String> services = result.getOutput().lines()
+						.filter(line -> line.startsWith("service of "))
+						.map(line -> line.substring("service of ".length()).split(": "))
+						.collect(Collectors.toMap(service -> service[0], service -> service[1]));
+		assertEquals(Set.of("root", "included"), services.keySet());
+		assertEquals(services.get("root"), services.get("included"));
+	}
+
+	@Test
+	void prefetchedByProjectDirectory() {
+		Project root = ProjectBuilder.builder().withProjectDir(rootDir.toFile()).build();
+		GitVersionBuildService service = GitVersionBuildService.obtain(root);
+		// the same project path in two builds of the tree
+		Path one = rootDir.resolve("one");
+		Path two = rootDir.resolve("two");
+		service.prefetch(":", one, one);
+		service.prefetch(":", two, two);
+		assertTrue(service.prefetchedVersion(":", one).isPresent());
+		var conventions = new GitVersionProjectWrapper(service, ":", two, two).versionConfiguration();
+		assertTrue(service.takePrefetchedVersion(":", two, conventions).isPresent());
+		assertTrue(service.prefetchedVersion(":", two).isEmpty());
+		assertTrue(service.prefetchedVersion(":child", one).isEmpty());
+	}
+
+	@Test
+	void prefetchCandidatesKeptForTheNextBuild() {
+		Project root = ProjectBuilder.builder().withProjectDir(rootDir.toFile()).build();
+		GitVersionBuildService service = GitVersionBuildService.obtain(root);
+		assertTrue(PrefetchCandidates.load(rootDir).isEmpty());
+		service.addPrefetchCandidate(rootDir, ":child");
+		service.addPrefetchCandidate(rootDir, ":");
+		service.close();
+		assertEquals(Set.of(":", ":child"), PrefetchCandidates.load(rootDir));
+
+		PrefetchCandidates.save(rootDir, Set.of(":"));
+		assertEquals(Set.of(":"), PrefetchCandidates.load(rootDir));
+	}
+}
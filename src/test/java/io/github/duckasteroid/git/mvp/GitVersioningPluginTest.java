@@ -1,11 +1,25 @@
 package io.github.duckasteroid.git.mvp;
 
+import io.github.duckasteroid.git.mvp.changelog.ChangelogGenerator;
 import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import io.github.duckasteroid.git.mvp.repo.RepositoryTopology;
 import io.github.duckasteroid.git.mvp.cmd.ProcessResult;
 import io.github.duckasteroid.git.mvp.ext.GitVersionExtension;
+import io.github.duckasteroid.git.mvp.manifest.VersionManifest;
+import io.github.duckasteroid.git.mvp.tasks.BuildInfo;
+import io.github.duckasteroid.git.mvp.tasks.ChangedProjects;
+import io.github.duckasteroid.git.mvp.tasks.Changelog;
 import io.github.duckasteroid.git.mvp.tasks.ExplainVersion;
+import io.github.duckasteroid.git.mvp.tasks.ExplainVersions;
+import io.github.duckasteroid.git.mvp.tasks.GitSnapshotExport;
+import io.github.duckasteroid.git.mvp.tasks.ReleaseTags;
+import io.github.duckasteroid.git.mvp.tasks.VersionManifestExport;
+import io.github.duckasteroid.git.mvp.version.source.BuiltInVersionSources;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.internal.impldep.com.google.common.base.Predicates;
 import org.gradle.testfixtures.ProjectBuilder;
@@ -17,8 +31,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -45,6 +63,8 @@ class GitVersioningPluginTest {
 		ProjectBuilder builder = ProjectBuilder.builder();
 		createTestFile(gitRepo, "root.txt", "Test file for the root project");
 		this.parent = builder.withName("test-parent").withProjectDir(gitRepo.toFile()).build();
+		// only the repository, not the CI environment the tests run in
+		GitVersionBuildService.obtain(parent).setEnvironment(variable -> null);
 
 		Path child1Path = gitRepo.resolve("child1");
 		Files.createDirectories(child1Path);
@@ -89,6 +109,239 @@ class GitVersioningPluginTest {
 		}
 	}
 
+	@Test
+	void verifyChangelogTask() throws IOException {
+		git.lightTag("child1/v2.0.0-CHILD1");
+		applyPluginToAllProjects();
+
+		Changelog changelog = (Changelog) parent.getTasks().getByName(Changelog.NAME);
+		assertNull(parent.getChildProjects().get("child1").getTasks().findByName(Changelog.NAME));
+		assertEquals(Set.of(":", ":child1", ":child2"), changelog.getProjectDirectories().get().keySet());
+
+		changelog.writeChangelogs();
+		Path output = changelog.getOutputDirectory().get().getAsFile().toPath();
+		String child1 = Files.readString(output.resolve("child1").resolve(ChangelogGenerator.CHANGELOG_FILE));
+		assertTrue(child1.contains("## 2.0.0-CHILD1 (child1/v2.0.0-CHILD1)\n\n- Initial commit"), child1);
+	}
+
+	@Test
+	void verifyChangedProjects() throws IOException {
+		git.lightTag("base");
+		Project child1 = parent.getChildProjects().get("child1");
+		Project child2 = parent.getChildProjects().get("child2");
+		child2.getConfigurations().create("custom");
+		child2.getDependencies().add("custom", child2.getDependencies().project(Map.of("path", ":child1")));
+		createTestFile(child1.getProjectDir().toPath(), "test.txt", "Changed child1");
+		git.commit("Change child1");
+
+		applyPluginToAllProjects();
+		GitVersionExtension ext = parent.getExtensions().getByType(GitVersionExtension.class);
+		assertEquals(Set.of(":child1", ":child2"), ext.changedProjects("base", "HEAD"));
+		assertFalse(ext.getChangedProjects().isPresent());
+		ext.getChangeBase().set("base");
+		assertEquals(Set.of(":child1", ":child2"), ext.getChangedProjects().get());
+
+		ChangedProjects task = (ChangedProjects) parent.getTasks().getByName(ChangedProjects.NAME);
+		task.listChangedProjects();
+		assertEquals(List.of(":child1", ":child2"), Files.readAllLines(task.getOutputFile().get().getAsFile().toPath()));
+	}
+
+	@Test
+	void verifyVersionManifest() throws IOException {
+		git.lightTag("v1.0.0");
+		git.lightTag("child1/v2.0.0");
+
+		applyPluginToAllProjects();
+		VersionManifestExport task = (VersionManifestExport) parent.getTasks().getByName(VersionManifestExport.NAME);
+		task.export();
+		Path properties = task.getPropertiesFile().get().getAsFile().toPath();
+		VersionManifest manifest = VersionManifest.read(properties).orElseThrow();
+		assertEquals("1.0.0", manifest.version(":").orElseThrow());
+		assertEquals("2.0.0", manifest.version(":child1").orElseThrow());
+		assertEquals("1.0.0", manifest.version(":child2").orElseThrow());
+		assertTrue(manifest.entry(":child1").orElseThrow().source().contains("child1/v2.0.0"));
+		assertTrue(Files.isRegularFile(task.getJsonFile().get().getAsFile().toPath()));
+
+		// the entries are inputs, so the versioning configuration is too
+		Project child2 = parent.getChildProjects().get("child2");
+		GitVersionExtension child2Ext = child2.getExtensions().getByType(GitVersionExtension.class);
+		child2Ext.getVersionSources().set(List.of("commit"));
+		child2Ext.update();
+		assertNotEquals(manifest.entry(":child2").orElseThrow(), task.getEntries().get().get(":child2"));
+		assertEquals(manifest.entry(":child1").orElseThrow(), task.getEntries().get().get(":child1"));
+
+		// a local change (or commit) changes the entries
+		createTestFile(gitRepo.resolve("child1"), "change.txt", "A change");
+		assertEquals("2.0.0-dirty", task.getEntries().get().get(":child1").version());
+
+		// the manifest can be read back as a version source
+		Project child1 = parent.getChildProjects().get("child1");
+		GitVersionExtension ext = child1.getExtensions().getByType(GitVersionExtension.class);
+		ext.getVersionManifest().set(parent.getRootDir().toPath().relativize(properties).toString());
+		ext.getVersionSources().set(List.of("manifest"));
+		ext.update();
+		assertEquals("2.0.0", child1.getVersion().toString());
+	}
+
+	@Test
+	void verifyExplainVersions() throws IOException {
+		git.lightTag("v1.0.0");
+		git.lightTag("child1/v2.0.0");
+
+		applyPluginToAllProjects();
+		assertNull(parent.getChildProjects().get("child1").getTasks().findByName(ExplainVersions.NAME));
+		ExplainVersions task = (ExplainVersions) parent.getTasks().getByName(ExplainVersions.NAME);
+		task.getParallelism().set(2);
+		task.explainAll();
+		String report = Files.readString(task.getReportFile().get().getAsFile().toPath());
+		assertTrue(report.contains("\"path\": \":child1\",\n      \"repositoryPath\": \"child1\",\n      \"version\": \"2.0.0\""), report);
+		assertTrue(report.contains("\"path\": \":child2\""), report);
+		assertTrue(report.contains("\"value\": \"child1/v2.0.0\""), report);
+		assertTrue(report.contains("\"sources\": "), report);
+		assertTrue(report.contains("\"tags\": {\"hits\": "), report);
+		assertTrue(report.contains("\"cachesScope\": \"build"), report);
+	}
+
+	@Test
+	void verifyConfigurationReadUpFront() throws IOException {
+		git.lightTag("child1/v2.0.0");
+		applyPluginToAllProjects();
+		Project child1 = parent.getChildProjects().get("child1");
+		GitVersionProjectWrapper helper = new GitVersionProjectWrapper(child1);
+		helper.readConfiguration();
+		// later changes to the extension are not seen
+		child1.getExtensions().getByType(GitVersionExtension.class).getDirtyQualifier().set("later");
+		createTestFile(gitRepo.resolve("child1"), "local.txt", "Uncommitted");
+		assertEquals("2.0.0-dirty", helper.gitVersion());
+		assertEquals("2.0.0-later", new GitVersionProjectWrapper(child1).gitVersion());
+	}
+
+	@Test
+	void verifyGitSnapshot(@TempDir Path copy) throws IOException {
+		git.lightTag("v1.0.0");
+		git.lightTag("child1/v2.0.0");
+		git.newBranch("feature");
+		createTestFile(gitRepo.resolve("child1"), "feature.txt", "A feature");
+		git.add(".");
+		git.commit("A feature");
+
+		applyPluginToAllProjects();
+		// the versions are worked out when configured (before the snapshot file is written)
+		Map<String, String> versions = new HashMap<>();
+		parent.getAllprojects().forEach(project -> versions.put(project.getPath(), project.getVersion().toString()));
+		GitSnapshotExport task = (GitSnapshotExport) parent.getTasks().getByName(GitSnapshotExport.NAME);
+		task.capture();
+
+		// the same tree, without the repository
+		try (var files = Files.walk(gitRepo)) {
+			for (Path file : files.filter(Files::isRegularFile).toList()) {
+				Path relative = gitRepo.relativize(file);
+				if (!relative.startsWith(".git")) {
+					Files.createDirectories(copy.resolve(relative).getParent());
+					Files.copy(file, copy.resolve(relative));
+				}
+			}
+		}
+		ProjectBuilder builder = ProjectBuilder.builder();
+		Project offline = builder.withName("test-parent").withProjectDir(copy.toFile()).build();
+		GitVersionBuildService.obtain(offline).setEnvironment(variable -> null);
+		builder.withName("child1").withProjectDir(copy.resolve("child1").toFile()).withParent(offline).build();
+		builder.withName("child2").withProjectDir(copy.resolve("some/deep/path/child2").toFile()).withParent(offline).build();
+		offline.getAllprojects().forEach(project -> project.getPluginManager().apply(GitVersioningPlugin.class));
+
+		for (Project project : parent.getAllprojects()) {
+			assertEquals(versions.get(project.getPath()), offline.project(project.getPath()).getVersion().toString(), project.getPath());
+		}
+		assertEquals("2.0.1", offline.project(":child1").getVersion().toString());
+	}
+
+	@Test
+	void verifyReleaseTags() throws IOException {
+		git.lightTag("v1.0.0");
+		git.lightTag("child1/v2.0.0");
+		// tags are ordered by commit date (in seconds), so the release must be later
+		Instant released = git.gitTag("child1/v2.0.0").orElseThrow().commitDate().toInstant().plusSeconds(60);
+		createTestFile(gitRepo.resolve("child1"), "change.txt", "A change");
+		git.add(".");
+		git.commit("Change child1", released);
+
+		applyPluginToAllProjects();
+		ReleaseTags task = (ReleaseTags) parent.getTasks().getByName(ReleaseTags.NAME);
+		task.getDryRun().set(true);
+		task.tagReleases();
+		assertTrue(git.gitTags("child1/v2.0.1").isEmpty());
+
+		// child2 has not changed since v1.0.0 (but the root project has)
+		task.getDryRun().set(false);
+		task.tagReleases();
+		assertEquals(List.of("child1/v2.0.1"), git.gitTags("child1/v2.0.1").stream().map(tag -> tag.value()).toList());
+		assertEquals(List.of("v1.0.1"), git.gitTags("v1.0.1").stream().map(tag -> tag.value()).toList());
+
+		Project child1 = parent.getChildProjects().get("child1");
+		child1.getExtensions().getByType(GitVersionExtension.class).update();
+		assertEquals("2.0.1", child1.getVersion().toString());
+		assertTrue(ReleaseTags.releases(parent).isEmpty());
+	}
+
+	@Test
+	void verifyReleaseTagsInProjectNamespace() throws IOException {
+		git.lightTag("v1.0.0");
+		// child2 is in some/deep/path/child2, but versioned from its project path
+		git.lightTag("child2/v3.0.0");
+		Instant released = git.gitTag("child2/v3.0.0").orElseThrow().commitDate().toInstant().plusSeconds(60);
+		createTestFile(gitRepo.resolve("some/deep/path/child2"), "change.txt", "A change");
+		git.add(".");
+		git.commit("Change child2", released);
+
+		applyPluginToAllProjects();
+		ReleaseTags task = (ReleaseTags) parent.getTasks().getByName(ReleaseTags.NAME);
+		task.getDryRun().set(false);
+		task.tagReleases();
+		assertTrue(git.gitTag("child2/v3.0.1").isPresent());
+		assertTrue(git.gitTag("some/deep/path/child2/v3.0.1").isEmpty());
+
+		Project child2 = parent.getChildProjects().get("child2");
+		child2.getExtensions().getByType(GitVersionExtension.class).update();
+		assertEquals("3.0.1", child2.getVersion().toString());
+		assertTrue(ReleaseTags.releases(parent).stream().noneMatch(release -> release.projectPath().equals(":child2")));
+	}
+
+	@Test
+	void verifyBuildInfo() throws IOException {
+		git.lightTag("child1/v2.0.0");
+		Project child1 = parent.getChildProjects().get("child1");
+		child1.getPluginManager().apply("java");
+		applyPluginToAllProjects();
+
+		GitVersionExtension ext = child1.getExtensions().getByType(GitVersionExtension.class);
+		BuildInfo task = (BuildInfo) child1.getTasks().getByName(BuildInfo.NAME);
+		// in the main resources
+		SourceSet main = child1.getExtensions().getByType(SourceSetContainer.class).getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+		assertTrue(main.getResources().getSrcDirs().contains(task.getOutputDirectory().get().getAsFile()));
+
+		// nothing declared, nothing written
+		task.generate();
+		Path resource = task.getOutputDirectory().get().getAsFile().toPath().resolve(BuildInfo.DEFAULT_RESOURCE);
+		assertFalse(Files.exists(resource));
+
+		ext.getBuildInfoFields().set(List.of("version"));
+		assertEquals(Map.of("version", "2.0.0"), task.getInfo().get());
+		task.generate();
+		assertEquals(List.of("version=2.0.0"), Files.readAllLines(resource));
+
+		// the same content leaves the file alone
+		FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+		Files.setLastModifiedTime(resource, past);
+		task.generate();
+		assertEquals(past, Files.getLastModifiedTime(resource));
+
+		ext.getBuildInfoFields().set(List.of("version", "commit"));
+		task.generate();
+		assertEquals(List.of("commit=" + initialCommitID.substring(0, 7), "version=2.0.0"), Files.readAllLines(resource));
+
+		assertThrows(InvalidUserDataException.class, () -> ext.buildInfo(List.of("unknown")));
+	}
+
 	@Test
 	void verifyCommitIDVersions() {
 		applyPluginToAllProjects();
@@ -115,6 +368,42 @@ class GitVersioningPluginTest {
 		assertEquals("3.0.0-CHILD2", parent.getChildProjects().get("child2").getVersion().toString());
 	}
 
+	@Test
+	void verifySubmoduleProject(@TempDir Path libRepo) throws IOException {
+		GitCommandLine.withGit(List.of("init"), libRepo, true);
+		GitCommandLine lib = new GitCommandLine(libRepo);
+		createTestFile(libRepo, "lib.txt", "Test file for the library");
+		lib.add(".");
+		lib.commit("Library commit");
+		lib.lightTag("v4.0.0");
+		GitCommandLine.withGit(List.of("-c", "protocol.file.allow=always", "submodule", "add", libRepo.toString(), "modules/lib"), gitRepo, true);
+		git.commit("Add library");
+		git.lightTag("v1.0.0");
+		Project libProject = ProjectBuilder.builder().withName("lib").withProjectDir(gitRepo.resolve("modules/lib").toFile()).withParent(parent).build();
+
+		applyPluginToAllProjects();
+		// the project in the submodule is versioned from the tags of its own repository
+		assertEquals("4.0.0", libProject.getVersion().toString());
+		assertEquals("1.0.0", parent.getVersion().toString());
+		GitVersionProjectWrapper wrapper = new GitVersionProjectWrapper(libProject);
+		assertEquals(RepositoryTopology.Kind.SUBMODULE, wrapper.topology().kind());
+		assertEquals(Path.of(""), wrapper.getGitRelativePath());
+
+		// the root repository only sees a new commit of the submodule
+		GitCommandLine module = new GitCommandLine(libProject.getProjectDir().toPath());
+		createTestFile(libProject.getProjectDir().toPath(), "lib.txt", "Changed library");
+		module.add("lib.txt");
+		module.commit("Change library");
+		git.add("modules/lib");
+		git.commit("Update library");
+		GitVersionExtension ext = parent.getExtensions().getByType(GitVersionExtension.class);
+		assertEquals(Set.of(":lib"), ext.changedProjects("v1.0.0", "HEAD"));
+		createTestFile(gitRepo, "root.txt", "Changed root");
+		git.add("root.txt");
+		git.commit("Change root");
+		assertEquals(Set.of(":", ":lib"), ext.changedProjects("v1.0.0", "HEAD"));
+	}
+
 	@Test
 	void verifySubprojectHeavyTags() {
 		// first lets define some tags matching the project structures
@@ -128,6 +417,119 @@ class GitVersioningPluginTest {
 		assertEquals("3.0.0-CHILD2", parent.getChildProjects().get("child2").getVersion().toString());
 	}
 
+	@Test
+	void verifyAncestorFolderTags() {
+		git.lightTag("v1.0.0-ROOT");
+		git.lightTag("some/deep/v2.0.0-DEEP");
+
+		applyPluginToAllProjects();
+		// child2 is in some/deep/path/child2
+		assertEquals("2.0.0-DEEP", parent.getChildProjects().get("child2").getVersion().toString());
+		assertEquals("1.0.0-ROOT", parent.getChildProjects().get("child1").getVersion().toString());
+		assertEquals("1.0.0-ROOT", parent.getVersion().toString());
+	}
+
+	@Test
+	void verifyPrefetchedVersions() {
+		git.lightTag("v1.0.0-ROOT");
+		git.lightTag("child1/v2.0.0-CHILD1");
+
+		// as the settings plugin would, before the projects are configured
+		GitVersionBuildService service = GitVersionBuildService.obtain(parent);
+		parent.getAllprojects().forEach(project ->
+						service.prefetch(project.getPath(), project.getProjectDir().toPath(), gitRepo));
+		Project child1 = parent.getChildProjects().get("child1");
+		assertTrue(service.prefetchedVersion(child1.getPath(), child1.getProjectDir().toPath()).isPresent());
+		// not if the project is somewhere else
+		assertTrue(service.prefetchedVersion(child1.getPath(), gitRepo).isEmpty());
+
+		applyPluginToAllProjects();
+		assertEquals("1.0.0-ROOT", parent.getVersion().toString());
+		assertEquals("2.0.0-CHILD1", child1.getVersion().toString());
+		assertEquals("1.0.0-ROOT", parent.getChildProjects().get("child2").getVersion().toString());
+	}
+
+	@Test
+	void verifyPrefetchedVersionsNotUsedIfConfigured() throws IOException {
+		git.lightTag("v1.0.0-ROOT");
+		git.lightTag("child1/v2.0.0-CHILD1");
+		createTestFile(gitRepo.resolve("some/deep/path/child2"), "local.txt", "Uncommitted");
+
+		// as the settings plugin would, before the projects are configured
+		GitVersionBuildService service = GitVersionBuildService.obtain(parent);
+		parent.getAllprojects().forEach(project ->
+						service.prefetch(project.getPath(), project.getProjectDir().toPath(), gitRepo));
+		applyPluginToAllProjects();
+		Project child1 = parent.getChildProjects().get("child1");
+		Project child2 = parent.getChildProjects().get("child2");
+		// as a build script would, after the plugin is applied
+		child1.getExtensions().getByType(GitVersionExtension.class).getVersionSources().set(List.of("tags"));
+		child2.getExtensions().getByType(GitVersionExtension.class).getDirtyQualifier().set("local");
+
+		assertEquals("1.0.0-ROOT", child1.getVersion().toString());
+		assertEquals("1.0.0-local", child2.getVersion().toString());
+		assertEquals("1.0.0-dirty", parent.getVersion().toString());
+	}
+
+	@Test
+	void verifyEnvironmentVersion() {
+		git.lightTag("child1/v2.0.0");
+		// the environment the build service sees, not the one the tests run in
+		GitVersionBuildService.obtain(parent).setEnvironment(Map.of(BuiltInVersionSources.DEFAULT_ENVIRONMENT_VARIABLE, "9.9.9")::get);
+		applyPluginToAllProjects();
+		assertEquals("9.9.9", parent.getChildProjects().get("child1").getVersion().toString());
+	}
+
+	@Test
+	void verifyConfiguredVersionSources() throws IOException {
+		createTestFile(gitRepo.resolve("child1"), "version.txt", "5.0.0");
+		git.add(".");
+		git.commit("Add a version file");
+		git.lightTag("v1.0.0-ROOT");
+
+		applyPluginToAllProjects();
+		Project child1 = parent.getChildProjects().get("child1");
+		assertEquals("1.0.0-ROOT", child1.getVersion().toString());
+
+		// the version file is cheaper than tags, so comes first
+		GitVersionExtension ext = child1.getExtensions().getByType(GitVersionExtension.class);
+		ext.getVersionSources().set(List.of("tags", "file"));
+		ext.update();
+		assertEquals("5.0.0", child1.getVersion().toString());
+	}
+
+	@Test
+	void verifyLazyProviders() throws IOException {
+		git.lightTag("child1/v2.0.0-CHILD1");
+		applyPluginToAllProjects();
+
+		Project child1 = parent.getChildProjects().get("child1");
+		GitVersionExtension ext = child1.getExtensions().getByType(GitVersionExtension.class);
+		assertEquals("2.0.0-CHILD1", ext.getVersion().get());
+		assertEquals("master", ext.getBranch().get());
+		assertTrue(initialCommitID.startsWith(ext.getCommitId().get()));
+		assertFalse(ext.getDirty().get());
+
+		// remembered, until updated
+		createTestFile(gitRepo.resolve("child1"), "dirty.txt", "Makes child1 dirty");
+		assertFalse(ext.getDirty().get());
+		ext.update();
+		assertTrue(ext.getDirty().get());
+		assertEquals(ext.getVersion().get(), child1.getVersion().toString());
+	}
+
+	@Test
+	void verifyVersionConfiguredAfterApply() throws IOException {
+		git.lightTag("child1/v2.0.0");
+		createTestFile(gitRepo.resolve("child1"), "dirty.txt", "Makes child1 dirty");
+		applyPluginToAllProjects();
+
+		// as a build script would, after the plugins block
+		Project child1 = parent.getChildProjects().get("child1");
+		child1.getExtensions().getByType(GitVersionExtension.class).getDirtyQualifier().set("local");
+		assertEquals("2.0.0-local", child1.getVersion().toString());
+	}
+
 	@Test
 	void verifyDirtyQualifierOnMaster() throws IOException {
 		// make child2 files dirty
@@ -153,6 +555,24 @@ class GitVersioningPluginTest {
 		assertTrue(child2version.endsWith("-TEST"));
 	}
 
+	@Test
+	void verifyConventionalCommitIncrements() throws IOException {
+		git.lightTag("child1/v2.0.0");
+		git.newBranch("feature");
+		createTestFile(gitRepo.resolve("child1"), "feature.txt", "A feature");
+		git.add(".");
+		git.commit("feat: a new feature");
+
+		applyPluginToAllProjects();
+		Project child1 = parent.getChildProjects().get("child1");
+		assertEquals("2.0.1", child1.getVersion().toString());
+
+		GitVersionExtension ext = child1.getExtensions().getByType(GitVersionExtension.class);
+		ext.getConventionalCommits().set(true);
+		ext.update();
+		assertEquals("2.1.0", child1.getVersion().toString());
+	}
+
 	@Test
 	void verifyDirtyQualifierOnAutoIncrementedBranch() throws IOException {
 		// switch branch
@@ -0,0 +1,77 @@
+package io.github.duckasteroid.git.mvp.affected;
+
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AffectedProjectsTest {
+	@TempDir
+	Path gitRepo;
+
+	private final AffectedProjects affected = new AffectedProjects(
+					Map.of(":", "", ":core", "libs/core", ":core:extra", "libs/core/extra", ":app", "app", ":tool", "tools/tool"),
+					Map.of(":app", Set.of(":core"), ":tool", Set.of(":app"), ":core:extra", Set.of()));
+
+	@Test
+	void deepestProjectOwnsPath() {
+		assertEquals(Set.of(":core:extra"), affected.affectedBy(List.of("libs/core/extra/src/A.java")));
+		assertEquals(Set.of(":"), affected.affectedBy(List.of("settings.gradle", "libs/README.md")));
+		// not a sibling with a longer name
+		assertEquals(Set.of(":"), affected.affectedBy(List.of("libs/core-old/B.java")));
+		assertTrue(affected.affectedBy(List.of()).isEmpty());
+	}
+
+	@Test
+	void dependentsIncluded() {
+		assertEquals(Set.of(":core", ":app", ":tool"), affected.affectedBy(List.of("libs/core/build.gradle")));
+		assertEquals(Set.of(":tool"), affected.affectedBy(List.of("tools/tool/Main.java")));
+	}
+
+	@Test
+	void submoduleCommitAffectsItsProjects() {
+		AffectedProjects modules = new AffectedProjects(
+						Map.of(":", "", ":lib", "modules/lib", ":lib:core", "modules/lib/core", ":app", "app"),
+						Map.of(":app", Set.of(":lib:core")),
+						Set.of("modules/lib"));
+		assertEquals(Set.of(":lib", ":lib:core", ":app"), modules.affectedBy(List.of("modules/lib")));
+		assertEquals(Set.of(":"), modules.affectedBy(List.of(".gitmodules")));
+		// not a submodule, so only its owner
+		assertEquals(Set.of(":"), modules.affectedBy(List.of("modules/other")));
+	}
+
+	@Test
+	void betweenRevisions() throws IOException {
+		GitCommandLine.withGit(List.of("init"), gitRepo, true);
+		GitCommandLine git = new GitCommandLine(gitRepo);
+		write("libs/core/Core.java", "core");
+		write("tools/tool/Tool.java", "tool");
+		git.add(".");
+		git.commit("Initial commit");
+		git.lightTag("base");
+
+		write("tools/tool/Tool.java", "changed tool");
+		// renamed, so both the old and new paths change
+		Files.createDirectories(gitRepo.resolve("app"));
+		GitCommandLine.withGit(List.of("mv", "libs/core/Core.java", "app/Core.java"), gitRepo, true);
+		git.commit("Move core to app");
+
+		assertEquals(List.of("app/Core.java", "libs/core/Core.java", "tools/tool/Tool.java"), git.changedPaths("base", "HEAD"));
+		assertEquals(Set.of(":app", ":core", ":tool"), affected.between(git, "base", "HEAD"));
+		assertTrue(affected.between(git, "HEAD", "HEAD").isEmpty());
+	}
+
+	private void write(String path, String content) throws IOException {
+		Path file = gitRepo.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+}
@@ -0,0 +1,125 @@
+package io.github.duckasteroid.git.mvp.changelog;
+
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangelogGeneratorTest {
+	@TempDir
+	Path gitRepo;
+
+	@TempDir
+	Path output;
+
+	GitCommandLine git;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		GitCommandLine.withGit(List.of("init"), gitRepo, true);
+		git = new GitCommandLine(gitRepo);
+		change("root.txt", "Root file");
+		change("child1/file.txt", "Child 1");
+		change("lib/child2/file.txt", "Child 2");
+		git.add(".");
+		git.commit("Initial commit");
+	}
+
+	private void change(String path, String content) throws IOException {
+		Path file = gitRepo.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+
+	private void commit(String path, String message) throws IOException {
+		change(path, message);
+		git.add(".");
+		git.commit(message);
+	}
+
+	private List<ChangelogProject> projects() {
+		return List.of(
+						new ChangelogProject("root", "", git.gitTags("v*")),
+						new ChangelogProject("child1", "child1", git.gitTags("child1/")),
+						new ChangelogProject("child2", "lib/child2", git.gitTags("lib/")));
+	}
+
+	private String changelog(String project) throws IOException {
+		return Files.readString(output.resolve(project).resolve(ChangelogGenerator.CHANGELOG_FILE));
+	}
+
+	@Test
+	void commitsBucketedByProjectAndVersion() throws IOException {
+		commit("child1/file.txt", "Child 1 feature");
+		git.lightTag("child1/v1.0.0");
+		commit("lib/child2/file.txt", "Child 2 feature");
+		git.lightTag("lib/v2.0.0");
+		commit("child1/file.txt", "Child 1 fix");
+		commit("root.txt", "Root change");
+
+		ChangelogGenerator.Summary summary = new ChangelogGenerator(git, output).generate(projects());
+		assertEquals(5, summary.commits());
+		assertEquals(List.of("child1: child1_v1.0.0.md", "child2: lib_v2.0.0.md"), summary.written());
+
+		String child1 = changelog("child1");
+		assertTrue(child1.contains("## Unreleased"));
+		int fix = child1.indexOf("- Child 1 fix");
+		int release = child1.indexOf("## 1.0.0 (child1/v1.0.0)");
+		int feature = child1.indexOf("- Child 1 feature");
+		assertTrue(fix > 0 && release > fix && feature > release, child1);
+		assertFalse(child1.contains("Child 2"));
+		assertFalse(child1.contains("Root change"));
+
+		String child2 = changelog("child2");
+		assertFalse(child2.contains("## Unreleased"));
+		assertTrue(child2.contains("- Child 2 feature"));
+		assertTrue(changelog("root").contains("- Root change"));
+	}
+
+	@Test
+	void onlyNewVersionsWritten() throws IOException {
+		commit("child1/file.txt", "Child 1 feature");
+		git.lightTag("child1/v1.0.0");
+		new ChangelogGenerator(git, output).generate(projects());
+
+		// a version written before is left alone
+		Path fragment = output.resolve("child1").resolve(ChangelogGenerator.VERSIONS_DIR).resolve("child1_v1.0.0.md");
+		Files.writeString(fragment, "## 1.0.0 (kept)\n");
+
+		commit("child1/file.txt", "Child 1 second feature");
+		git.lightTag("child1/v1.1.0");
+		ChangelogGenerator.Summary summary = new ChangelogGenerator(git, output).generate(List.of(projects().get(1)));
+		assertEquals(List.of("child1: child1_v1.1.0.md"), summary.written());
+		// stopped at the version written before
+		assertEquals(2, summary.commits());
+		String child1 = changelog("child1");
+		assertTrue(child1.contains("## 1.1.0 (child1/v1.1.0)\n\n- Child 1 second feature"), child1);
+		assertTrue(child1.contains("## 1.0.0 (kept)"), child1);
+		assertTrue(child1.indexOf("1.1.0") < child1.indexOf("1.0.0"));
+	}
+
+	@Test
+	void projectsWithoutVersionsResumed() throws IOException {
+		commit("child1/file.txt", "Child 1 feature");
+		git.lightTag("child1/v1.0.0");
+		assertEquals(2, new ChangelogGenerator(git, output).generate(projects()).commits());
+
+		commit("root.txt", "Root change");
+		ChangelogGenerator.Summary summary = new ChangelogGenerator(git, output).generate(projects());
+		// stopped where the last walk started (root and child2 have no versions)
+		assertEquals(2, summary.commits());
+		String root = changelog("root");
+		assertTrue(root.contains("## Unreleased\n\n- Root change (") && root.contains("- Initial commit ("), root);
+		assertTrue(root.indexOf("Root change") < root.indexOf("Initial commit"), root);
+		assertEquals(1, root.split("Initial commit", -1).length - 1, root);
+		assertTrue(changelog("child2").contains("- Initial commit ("));
+		assertTrue(changelog("child1").contains("- Child 1 feature"));
+	}
+}
@@ -1,6 +1,14 @@
 package io.github.duckasteroid.git.mvp.cmd;
 
 import io.github.duckasteroid.git.mvp.Change;
+import io.github.duckasteroid.git.mvp.CommitCounting;
+import io.github.duckasteroid.git.mvp.GitException;
+import io.github.duckasteroid.git.mvp.GitTimeoutException;
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+import io.github.duckasteroid.git.mvp.history.CommitCountCache;
+import io.github.duckasteroid.git.mvp.history.FirstParentChainCache;
+import io.github.duckasteroid.git.mvp.tags.TagTableCache;
+import io.github.duckasteroid.git.mvp.tags.TagTableStore;
 import io.github.duckasteroid.git.mvp.version.source.GitTag;
 import io.github.duckasteroid.git.mvp.version.Version;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,7 +20,10 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -171,6 +182,73 @@ class GitCommandLineTest {
 		assertFalse(git.gitDirty("test/other"));
 	}
 
+	@Test
+	void gitDirtyUntrackedFiles() throws IOException {
+		// lots of untracked (e.g. generated) files
+		Path generated = Files.createDirectories(gitRepositoryPath.resolve("test/example/generated"));
+		for (int i = 0; i < 100; i++) {
+			Files.writeString(generated.resolve("file" + i + ".txt"), "Generated " + i, StandardOpenOption.CREATE);
+		}
+		assertTrue(git.gitDirty("test/example", UntrackedFiles.NORMAL));
+		assertFalse(git.gitDirty("test/example", UntrackedFiles.NO));
+		assertFalse(git.gitDirty("test/other", UntrackedFiles.NORMAL));
+	}
+
+	@Test
+	void gitTimeout() {
+		// hash-object waits forever for input we never send
+		List<String> stuck = List.of("hash-object", "--stdin");
+		ProcessResult result = GitCommandLine.withGit(stuck, gitRepositoryPath, false, Duration.ofMillis(200));
+		assertTrue(result.isTimedOut());
+		assertEquals(ProcessResult.Termination.TIMED_OUT, result.getTermination());
+
+		GitTimeoutException timeout = assertThrows(GitTimeoutException.class,
+						() -> GitCommandLine.withGit(stuck, gitRepositoryPath, true, Duration.ofMillis(200)));
+		assertEquals(Duration.ofMillis(200), timeout.getTimeout());
+
+		// a quick command is unaffected
+		result = GitCommandLine.withGit(List.of("status"), gitRepositoryPath, true, Duration.ofMillis(5000));
+		assertEquals(ProcessResult.Termination.EXITED, result.getTermination());
+	}
+
+	@Test
+	void streamConsumerMayRunGit() {
+		// more nested streams than there are permits, each consumer running git
+		assertEquals(ProcessLimiter.INSTANCE.getLimit() + 1, nestedStreams(ProcessLimiter.INSTANCE.getLimit() + 1));
+	}
+
+	private int nestedStreams(int depth) {
+		if (depth == 0) {
+			return 0;
+		}
+		int[] nested = new int[1];
+		GitCommandLine.streamGit(List.of("rev-parse", "HEAD"), gitRepositoryPath, ProcessResult.DEFAULT_TIMEOUT, line -> {
+			nested[0] = nestedStreams(depth - 1) + 1;
+			return true;
+		});
+		return nested[0];
+	}
+
+	@Test
+	void gitCancelScope() throws Exception {
+		// hash-object waits forever for input we never send
+		ProcessWatchdog.Scope build = ProcessWatchdog.INSTANCE.newScope();
+		ProcessWatchdog.Scope otherBuild = ProcessWatchdog.INSTANCE.newScope();
+		Process cancelled = new ProcessBuilder("git", "hash-object", "--stdin").directory(gitRepositoryPath.toFile()).start();
+		Process other = new ProcessBuilder("git", "hash-object", "--stdin").directory(gitRepositoryPath.toFile()).start();
+		try (ProcessWatchdog.Watch watch = ProcessWatchdog.INSTANCE.watch(cancelled, Duration.ofMinutes(1), build);
+				 ProcessWatchdog.Watch otherWatch = ProcessWatchdog.INSTANCE.watch(other, Duration.ofMinutes(1), otherBuild)) {
+			build.cancel();
+			cancelled.waitFor();
+			assertEquals(ProcessResult.Termination.CANCELLED, watch.termination());
+			// the other build's git is left alone
+			assertTrue(other.isAlive());
+			assertEquals(ProcessResult.Termination.EXITED, otherWatch.termination());
+		} finally {
+			other.destroyForcibly();
+		}
+	}
+
 	@Test
 	void gitBranchName() {
 		assertEquals("master", git.branchName());
@@ -200,4 +278,141 @@ class GitCommandLineTest {
 
 	}
 
-}
\ No newline at end of file
+	@Test
+	void gitCommitCountFirstParent() throws IOException {
+		String main = git.branchName();
+		git.lightTag("v1.0.0");
+		git.newBranch("feature");
+		for (int i = 0; i < 3; i++) {
+			Files.writeString(gitRepositoryPath.resolve("test/example/file.txt"), "Feature " + i);
+			git.commit("Feature " + i);
+		}
+		git.lightTag("feature/v1.1.0");
+		GitCommandLine.withGit(List.of("checkout", main), gitRepositoryPath, true);
+		GitCommandLine.withGit(List.of("merge", "--no-ff", "-m", "Merge feature", "feature"), gitRepositoryPath, true);
+		Files.writeString(gitRepositoryPath.resolve("test/other/file.txt"), "Other change");
+		git.commit("Other change");
+
+		assertEquals(3, git.gitCommitCount("v1.0.0", "test/example", CommitCounting.ALL));
+		assertEquals(5, git.gitCommitCount("v1.0.0", "", CommitCounting.ALL));
+		// the merge counts once
+		assertEquals(1, git.gitCommitCount("v1.0.0", "test/example", CommitCounting.FIRST_PARENT));
+		assertEquals(0, git.gitCommitCount("v1.0.0", "test/exam", CommitCounting.FIRST_PARENT));
+		assertEquals(2, git.gitCommitCount("v1.0.0", "test", CommitCounting.FIRST_PARENT));
+		assertEquals(2, git.gitCommitCount("v1.0.0", null, CommitCounting.FIRST_PARENT));
+		// the same as git counts them (the feature tag is not on the chain, so git is asked)
+		for (String tag : List.of("v1.0.0", "feature/v1.1.0")) {
+			for (String path : List.of("test/example", "test/other")) {
+				int expected = Integer.parseInt(GitCommandLine.withGit(List.of("rev-list", "--count", "--first-parent", tag + "..HEAD", "--", path),
+								gitRepositoryPath, true).output().findFirst().orElseThrow());
+				assertEquals(expected, git.gitCommitCount(tag, path, CommitCounting.FIRST_PARENT), tag + " " + path);
+			}
+		}
+	}
+
+	@Test
+	void worktreesShareTagsButNotHead(@TempDir Path worktreeParent) throws IOException {
+		git.lightTag("v1.0.0");
+		Path worktree = worktreeParent.resolve("linked");
+		GitCommandLine.withGit(List.of("worktree", "add", "-b", "linked", worktree.toString()), gitRepositoryPath, true);
+		assertEquals(Optional.of(worktree), GitCommandLine.gitRootDir(worktree.resolve("test").toFile()));
+
+		TagTableCache tagTables = new TagTableCache();
+		FirstParentChainCache chains = new FirstParentChainCache();
+		CommitCountCache counts = new CommitCountCache();
+		GitCommandLine main = new GitCommandLine(gitRepositoryPath, tagTables, chains, counts);
+		GitCommandLine linked = new GitCommandLine(worktree, tagTables, chains, counts);
+		// later than the first commit, so the tags sort by date (not by name, on a tie)
+		Instant later = Instant.now().plus(Duration.ofHours(1));
+		for (int i = 0; i < 2; i++) {
+			Files.writeString(worktree.resolve("test/example/file.txt"), "Linked " + i);
+			linked.add("test");
+			linked.commit("Linked " + i, later.plusSeconds(i));
+		}
+
+		// each worktree counts from its own HEAD
+		for (CommitCounting counting : CommitCounting.values()) {
+			assertEquals(0, main.gitCommitCount("v1.0.0", "test/example", counting), counting.name());
+			assertEquals(2, linked.gitCommitCount("v1.0.0", "test/example", counting), counting.name());
+		}
+
+		// the tags are kept in the common git directory (once listed), for the next build of either
+		assertEquals(List.of("v1.0.0"), linked.gitTags(null).stream().map(GitTag::value).toList());
+		Path tags = gitRepositoryPath.resolve(".git").resolve(TagTableStore.FILE);
+		assertTrue(Files.isRegularFile(tags));
+		GitCommandLine next = new GitCommandLine(worktree, new TagTableCache(), null, null);
+		assertEquals(List.of("v1.0.0"), next.gitTags(null).stream().map(GitTag::value).toList());
+		// until they change
+		linked.lightTag("v1.1.0");
+		next = new GitCommandLine(gitRepositoryPath, new TagTableCache(), null, null);
+		assertEquals(List.of("v1.1.0", "v1.0.0"), next.gitTags(null).stream().map(GitTag::value).toList());
+	}
+
+	@Test
+	void createTagsInOneTransaction() {
+		String head = git.gitCommitID(false, null);
+		git.createTags(Map.of("test/example/v1.0.0", head, "test/other/v2.0.0", head));
+		assertEquals(List.of("test/example/v1.0.0", "test/other/v2.0.0"), git.gitTags(null).stream().map(GitTag::value).toList());
+
+		// one tag exists already, so none are created
+		assertThrows(GitException.class, () -> git.createTags(Map.of("test/v3.0.0", head, "test/other/v2.0.0", head)));
+		assertTrue(git.gitTags("test/v*").isEmpty());
+	}
+
+	@Test
+	void gitLatestTag() {
+		assertTrue(git.latestTag(null).isEmpty());
+		git.lightTag("v1.0.0");
+		git.lightTag("test/v2.0.0");
+
+		Optional<GitTag> latest = git.latestTag("v*");
+		assertTrue(latest.isPresent());
+		assertEquals("v1.0.0", latest.get().value());
+
+		latest = git.latestTag("test/");
+		assertTrue(latest.isPresent());
+		assertEquals("test/v2.0.0", latest.get().value());
+
+		assertTrue(git.latestTag("other/").isEmpty());
+	}
+
+	@Test
+	void gitNearestAncestorTag() {
+		git.lightTag("v1.0.0");
+		git.lightTag("test/v2.0.0");
+		git.lightTag("test/example/deeper/v3.0.0");
+
+		TagTableCache tagTables = new TagTableCache();
+		GitCommandLine cached = new GitCommandLine(gitRepositoryPath, tagTables, null, null);
+		assertEquals("test/v2.0.0", cached.nearestAncestorTag("test/example", "v*").orElseThrow().value());
+		assertEquals("v1.0.0", cached.nearestAncestorTag("other", "v*").orElseThrow().value());
+		assertEquals("v1.0.0", cached.nearestAncestorTag("", "v*").orElseThrow().value());
+		assertTrue(cached.nearestAncestorTag("test", "x*").isEmpty());
+		// found without listing every tag (as all the ancestor tags are)
+		Path commonDir = gitRepositoryPath.resolve(".git");
+		assertTrue(tagTables.peek(commonDir).isEmpty());
+		assertEquals("test/v2.0.0", cached.ancestorTags("test/example", "v*").get(0).value());
+		assertTrue(tagTables.peek(commonDir).isPresent());
+		assertEquals("test/v2.0.0", cached.nearestAncestorTag("test/example", "v*").orElseThrow().value());
+	}
+
+	@Test
+	void gitTagByName() {
+		git.lightTag("v1.0.0");
+		git.lightTag("v1.0.0-RC1");
+		git.lightTag("test/v1.0.0");
+
+		TagTableCache tagTables = new TagTableCache();
+		GitCommandLine cached = new GitCommandLine(gitRepositoryPath, tagTables, null, null);
+		assertEquals("v1.0.0", cached.gitTag("v1.0.0").orElseThrow().value());
+		assertEquals("test/v1.0.0", cached.gitTag("test/v1.0.0").orElseThrow().value());
+		assertTrue(cached.gitTag("v2.0.0").isEmpty());
+		assertTrue(cached.gitTag("test").isEmpty());
+		// found without listing every tag
+		Path commonDir = gitRepositoryPath.resolve(".git");
+		assertTrue(tagTables.peek(commonDir).isEmpty());
+		cached.tagTable();
+		assertEquals("v1.0.0-RC1", cached.gitTag("v1.0.0-RC1").orElseThrow().value());
+		assertTrue(tagTables.peek(commonDir).isPresent());
+	}
+}
@@ -0,0 +1,97 @@
+package io.github.duckasteroid.git.mvp.cmd;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+	private static final int THREADS = 8;
+
+	@Test
+	void concurrentRequestsShareWork() throws Exception {
+		SingleFlight<String, Integer> flight = new SingleFlight<>();
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			Future<Integer> first = executor.submit(() -> flight.run("key", () -> {
+				started.countDown();
+				await(release);
+				return runs.incrementAndGet();
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			List<Future<Integer>> others = new ArrayList<>();
+			for (int i = 1; i < THREADS; i++) {
+				others.add(executor.submit(() -> flight.run("key", runs::incrementAndGet)));
+			}
+			// give the others time to join the flight
+			Thread.sleep(100);
+			release.countDown();
+			assertEquals(1, (int) first.get());
+			for (Future<Integer> other : others) {
+				assertEquals(1, (int) other.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, runs.get());
+		assertEquals(0, flight.inFlight());
+		// nothing remembered once done
+		assertEquals(2, (int) flight.run("key", runs::incrementAndGet));
+	}
+
+	@Test
+	void failuresShared() {
+		SingleFlight<String, Integer> flight = new SingleFlight<>();
+		assertThrows(IllegalStateException.class, () -> flight.run("key", () -> {
+			throw new IllegalStateException("Failed");
+		}));
+		assertEquals(0, flight.inFlight());
+	}
+
+	@Test
+	void processesLimited() throws Exception {
+		ProcessLimiter limiter = new ProcessLimiter(2);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger most = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> tasks = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				tasks.add(executor.submit(() -> {
+					try (ProcessLimiter.Permit permit = limiter.acquire()) {
+						most.accumulateAndGet(running.incrementAndGet(), Math::max);
+						Thread.sleep(20);
+						running.decrementAndGet();
+					}
+					return null;
+				}));
+			}
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertTrue(most.get() <= 2);
+		assertEquals(2, limiter.available());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
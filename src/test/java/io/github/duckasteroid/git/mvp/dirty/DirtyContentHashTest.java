@@ -0,0 +1,109 @@
+package io.github.duckasteroid.git.mvp.dirty;
+
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirtyContentHashTest {
+	@TempDir
+	Path first;
+
+	@TempDir
+	Path second;
+
+	private static GitCommandLine repository(Path path) throws IOException {
+		GitCommandLine.withGit(List.of("init"), path, true);
+		GitCommandLine git = new GitCommandLine(path);
+		Files.createDirectories(path.resolve("child"));
+		Files.writeString(path.resolve("child/file.txt"), "Hello World");
+		Files.writeString(path.resolve("root.txt"), "Root file");
+		git.add(".");
+		git.commit("Initial commit");
+		return git;
+	}
+
+	private static Optional<String> hash(GitCommandLine git, Path path, String pattern, UntrackedFiles untracked) {
+		return new DirtyContentHash(git, path, new FileDigestCache()).hash(pattern, untracked);
+	}
+
+	@Test
+	void sameChangesSameHash() throws IOException {
+		GitCommandLine firstGit = repository(first);
+		GitCommandLine secondGit = repository(second);
+		assertTrue(hash(firstGit, first, null, UntrackedFiles.NORMAL).isEmpty());
+
+		Files.writeString(first.resolve("child/file.txt"), "Changed");
+		Files.writeString(second.resolve("child/file.txt"), "Changed");
+		Optional<String> hash = hash(firstGit, first, null, UntrackedFiles.NORMAL);
+		assertTrue(hash.isPresent());
+		assertEquals(DirtyContentHash.LENGTH, hash.get().length());
+		assertEquals(hash, hash(secondGit, second, null, UntrackedFiles.NORMAL));
+
+		// different changes
+		Files.writeString(second.resolve("child/file.txt"), "Changed again");
+		assertNotEquals(hash, hash(secondGit, second, null, UntrackedFiles.NORMAL));
+	}
+
+	@Test
+	void untrackedAndPathRestricted() throws IOException {
+		GitCommandLine git = repository(first);
+		Files.createDirectories(first.resolve("child/new"));
+		Files.writeString(first.resolve("child/new/untracked.txt"), "New file");
+		assertTrue(hash(git, first, null, UntrackedFiles.NO).isEmpty());
+		Optional<String> untracked = hash(git, first, null, UntrackedFiles.NORMAL);
+		assertTrue(untracked.isPresent());
+
+		// the content of the untracked files counts (not just the directory)
+		Files.writeString(first.resolve("child/new/untracked.txt"), "Other content");
+		assertNotEquals(untracked, hash(git, first, null, UntrackedFiles.NORMAL));
+
+		// changes outside the path are ignored
+		Optional<String> child = hash(git, first, "child", UntrackedFiles.NORMAL);
+		Files.writeString(first.resolve("root.txt"), "Changed");
+		assertEquals(child, hash(git, first, "child", UntrackedFiles.NORMAL));
+		assertNotEquals(hash(git, first, null, UntrackedFiles.NORMAL), hash(git, first, "child", UntrackedFiles.NORMAL));
+		// deleted files count too
+		Files.delete(first.resolve("root.txt"));
+		assertTrue(hash(git, first, "root.txt", UntrackedFiles.NO).isPresent());
+	}
+
+	@Test
+	void digestsRememberedUntilModified() throws IOException {
+		FileDigestCache cache = new FileDigestCache();
+		byte[] content = new byte[(int) FileDigestCache.MAP_THRESHOLD * 3];
+		Arrays.fill(content, (byte) 'x');
+		Path large = Files.write(first.resolve("large.bin"), content);
+		Instant past = Instant.now().minus(1, ChronoUnit.HOURS);
+		Files.setLastModifiedTime(large, FileTime.from(past));
+
+		byte[] expected = FileDigestCache.newDigest().digest(content);
+		assertArrayEquals(expected, cache.digest(large));
+		assertEquals(1, cache.size());
+		assertArrayEquals(expected, cache.digest(large));
+
+		// same size, but modified
+		content[0] = 'y';
+		Files.write(large, content);
+		Files.setLastModifiedTime(large, FileTime.from(past.plusSeconds(60)));
+		assertFalse(MessageDigest.isEqual(expected, cache.digest(large)));
+
+		// recently modified files are not remembered (they may change again unnoticed)
+		Path recent = Files.writeString(first.resolve("recent.txt"), "Recent");
+		cache.digest(recent);
+		assertEquals(1, cache.size());
+	}
+}
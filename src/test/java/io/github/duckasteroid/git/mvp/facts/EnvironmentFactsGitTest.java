@@ -0,0 +1,63 @@
+package io.github.duckasteroid.git.mvp.facts;
+
+import io.github.duckasteroid.git.mvp.Git;
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnvironmentFactsGitTest {
+	@TempDir
+	Path gitRepositoryPath;
+
+	GitCommandLine git;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		GitCommandLine.withGit(List.of("init"), gitRepositoryPath, true);
+		git = new GitCommandLine(gitRepositoryPath);
+		Files.writeString(gitRepositoryPath.resolve("file.txt"), "Hello World");
+		git.add(".");
+		git.commit("Initial commit");
+		// as CI often checks out
+		GitCommandLine.withGit(List.of("checkout", "--detach"), gitRepositoryPath, true);
+	}
+
+	private Git withEnvironment(Map<String, String> environment) {
+		EnvironmentFacts facts = new EnvironmentFacts(environment::get, EnvironmentFacts.DEFAULT_BRANCH_VARIABLES, EnvironmentFacts.DEFAULT_COMMIT_VARIABLES);
+		return new EnvironmentFactsGit(git, () -> facts);
+	}
+
+	@Test
+	void branchFromEnvironment() {
+		assertEquals("HEAD", git.branchName());
+		assertEquals("feature/ci", withEnvironment(Map.of("GITHUB_REF_NAME", "feature/ci")).branchName());
+		// pull request source branch is preferred
+		assertEquals("feature/pr", withEnvironment(Map.of("GITHUB_REF_NAME", "1/merge", "GITHUB_HEAD_REF", "feature/pr")).branchName());
+		// prefixes are removed
+		assertEquals("develop", withEnvironment(Map.of("GIT_BRANCH", "origin/develop")).branchName());
+		assertEquals("main", withEnvironment(Map.of("BUILD_SOURCEBRANCH", "refs/heads/main")).branchName());
+		// falls back to git
+		assertEquals("HEAD", withEnvironment(Map.of()).branchName());
+	}
+
+	@Test
+	void headCommitFromEnvironment() {
+		String sha = "0123456789abcdef0123456789abcdef01234567";
+		Git ci = withEnvironment(Map.of("CI_COMMIT_SHA", sha));
+		assertEquals(sha, ci.gitCommitID(false, null));
+		assertEquals("0123456", ci.gitCommitID(true, ""));
+		// a path still needs git
+		assertEquals(git.gitCommitID(true, "file.txt"), ci.gitCommitID(true, "file.txt"));
+		// falls back to git
+		assertEquals(git.gitCommitID(false, null), withEnvironment(Map.of()).gitCommitID(false, null));
+	}
+}
@@ -0,0 +1,141 @@
+package io.github.duckasteroid.git.mvp.history;
+
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import io.github.duckasteroid.git.mvp.tags.TagTableCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitCountCacheTest {
+	@TempDir
+	Path gitRepo;
+
+	GitCommandLine git;
+
+	// the revisions counted by git
+	final List<List<String>> counted = new ArrayList<>();
+
+	final CommitCountCache.Counter counter = new CommitCountCache.Counter() {
+		@Override
+		public int count(List<String> revisions, String path) {
+			counted.add(revisions);
+			return revList(revisions, path);
+		}
+
+		@Override
+		public boolean isAncestor(String ancestor, String descendant) {
+			return GitCommandLine.withGit(List.of("merge-base", "--is-ancestor", ancestor, descendant), gitRepo, false).getExitCode() == 0;
+		}
+	};
+
+	@BeforeEach
+	void setUp() throws IOException {
+		GitCommandLine.withGit(List.of("init"), gitRepo, true);
+		git = new GitCommandLine(gitRepo);
+		Files.createDirectories(gitRepo.resolve("child"));
+		commit("child/file.txt", "Initial commit");
+		git.lightTag("v1.0.0");
+	}
+
+	private void commit(String file, String message) throws IOException {
+		Files.writeString(gitRepo.resolve(file), message);
+		git.add(".");
+		git.commit(message);
+	}
+
+	private int revList(List<String> revisions, String path) {
+		List<String> args = new ArrayList<>(List.of("rev-list", "--count"));
+		args.addAll(revisions);
+		if (!path.isEmpty()) {
+			args.addAll(List.of("--", path));
+		}
+		return Integer.parseInt(GitCommandLine.withGit(args, gitRepo, true).output().findFirst().orElseThrow());
+	}
+
+	private int count(CommitCountCache cache, String path) {
+		String tagObject = git.gitTags("v1.0.0").get(0).longCommit();
+		return cache.count(gitRepo.resolve(".git"), gitRepo.resolve(".git"), tagObject, path, () -> git.gitCommitID(false, null), counter);
+	}
+
+	@Test
+	void countsOnlyNewCommits() throws IOException {
+		CommitCountCache cache = new CommitCountCache();
+		commit("child/file.txt", "One");
+		commit("other.txt", "Two");
+		assertEquals(1, count(cache, "child"));
+		assertEquals(2, count(cache, ""));
+		// the same HEAD is not counted again
+		assertEquals(1, count(cache, "child"));
+		assertEquals(2, counted.size());
+
+		commit("child/file.txt", "Three");
+		cache.headChanged(gitRepo.resolve(".git"));
+		counted.clear();
+		assertEquals(2, count(cache, "child"));
+		assertEquals(3, count(cache, ""));
+		// only the new commit was counted
+		for (List<String> revisions : counted) {
+			assertEquals(3, revisions.size());
+			assertTrue(revisions.get(1).startsWith("^"), revisions.toString());
+		}
+		assertEquals(revList(List.of("v1.0.0..HEAD"), "child"), count(cache, "child"));
+	}
+
+	@Test
+	void countsAgainAfterHistoryIsRewritten() throws IOException {
+		CommitCountCache cache = new CommitCountCache();
+		commit("child/file.txt", "One");
+		commit("child/file.txt", "Two");
+		assertEquals(2, count(cache, "child"));
+
+		// the old HEAD is no longer an ancestor
+		GitCommandLine.withGit(List.of("reset", "--hard", "HEAD~2"), gitRepo, true);
+		commit("other.txt", "Three");
+		cache.headChanged(gitRepo.resolve(".git"));
+		counted.clear();
+		assertEquals(0, count(cache, "child"));
+		assertEquals(List.of(2), counted.stream().map(List::size).toList());
+	}
+
+	@Test
+	void savedForTheNextBuild() throws IOException {
+		CommitCountCache cache = new CommitCountCache();
+		commit("child/file.txt", "One");
+		assertEquals(1, count(cache, "child"));
+		cache.save();
+		assertTrue(Files.isRegularFile(gitRepo.resolve(".git").resolve(CommitCountCache.FILE)));
+		// the saved file does not make the repository dirty
+		assertFalse(git.gitDirty(null, UntrackedFiles.ALL));
+
+		commit("child/file.txt", "Two");
+		CommitCountCache next = new CommitCountCache();
+		counted.clear();
+		assertEquals(2, count(next, "child"));
+		assertEquals(1, counted.size());
+		assertEquals(3, counted.get(0).size());
+	}
+
+	@Test
+	void usedByTheCommandLine() throws IOException {
+		CommitCountCache cache = new CommitCountCache();
+		GitCommandLine cached = new GitCommandLine(gitRepo, new TagTableCache(), null, cache);
+		commit("child/file.txt", "One");
+		assertEquals(1, cached.gitCommitCount("v1.0.0", "child"));
+		commit("other.txt", "Two");
+		// a commit made through the command line moves HEAD on
+		Files.writeString(gitRepo.resolve("child/file.txt"), "Three");
+		cached.add(".");
+		cached.commit("Three");
+		assertEquals(2, cached.gitCommitCount("v1.0.0", "child"));
+		assertEquals(3, cached.gitCommitCount("v1.0.0", ""));
+	}
+}
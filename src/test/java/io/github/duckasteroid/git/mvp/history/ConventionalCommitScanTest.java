@@ -0,0 +1,90 @@
+package io.github.duckasteroid.git.mvp.history;
+
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import io.github.duckasteroid.git.mvp.history.ConventionalCommitScan.Bump;
+import io.github.duckasteroid.git.mvp.version.Version;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConventionalCommitScanTest {
+	@TempDir
+	Path gitRepo;
+
+	GitCommandLine git;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		GitCommandLine.withGit(List.of("init"), gitRepo, true);
+		git = new GitCommandLine(gitRepo);
+		Files.createDirectories(gitRepo.resolve("child"));
+		Files.writeString(gitRepo.resolve("child/file.txt"), "Initial");
+		git.add(".");
+		git.commit("Initial commit");
+		git.lightTag("v1.2.3");
+	}
+
+	private void commit(String file, String message) throws IOException {
+		Files.writeString(gitRepo.resolve(file), message);
+		git.add(".");
+		git.commit(message);
+	}
+
+	@Test
+	void messages() {
+		assertEquals(Bump.INCREMENTAL, ConventionalCommitScan.bumpFor("fix: a bug", ""));
+		assertEquals(Bump.INCREMENTAL, ConventionalCommitScan.bumpFor("Some change", ""));
+		assertEquals(Bump.MINOR, ConventionalCommitScan.bumpFor("feat: a feature", ""));
+		assertEquals(Bump.MINOR, ConventionalCommitScan.bumpFor("feat(parser): a feature", ""));
+		assertEquals(Bump.MAJOR, ConventionalCommitScan.bumpFor("feat!: a breaking feature", ""));
+		assertEquals(Bump.MAJOR, ConventionalCommitScan.bumpFor("refactor(api)!: breaking", ""));
+		assertEquals(Bump.MAJOR, ConventionalCommitScan.bumpFor("fix: a bug", "Details\n\nBREAKING CHANGE: the API changed"));
+		assertEquals(Bump.INCREMENTAL, ConventionalCommitScan.bumpFor("fix: a bug", "not a BREAKING CHANGE: footer"));
+	}
+
+	@Test
+	void increments() {
+		Version version = Version.parse("1.2.3");
+		assertEquals("1.2.3", ConventionalCommitScan.Result.NONE.apply(version).toString());
+		assertEquals("1.2.5", new ConventionalCommitScan.Result(2, Bump.INCREMENTAL).apply(version).toString());
+		assertEquals("1.3.0", new ConventionalCommitScan.Result(2, Bump.MINOR).apply(version).toString());
+		assertEquals("2.0.0", new ConventionalCommitScan.Result(2, Bump.MAJOR).apply(version).toString());
+		assertEquals("2.0", new ConventionalCommitScan.Result(2, Bump.MAJOR).apply(Version.parse("1.2")).toString());
+	}
+
+	@Test
+	void scanSinceTag() throws IOException {
+		assertEquals(ConventionalCommitScan.Result.NONE, ConventionalCommitScan.scan(git, "v1.2.3", null));
+		commit("child/file.txt", "fix: a bug");
+		commit("root.txt", "feat: a root feature");
+		assertEquals(new ConventionalCommitScan.Result(2, Bump.MINOR), ConventionalCommitScan.scan(git, "v1.2.3", null));
+		// only the commits in the path
+		assertEquals(new ConventionalCommitScan.Result(1, Bump.INCREMENTAL), ConventionalCommitScan.scan(git, "v1.2.3", "child"));
+	}
+
+	@Test
+	void scanStopsAtBreakingChange() throws IOException {
+		commit("child/file.txt", "fix: a bug");
+		commit("child/file.txt", "fix: another bug\n\nBREAKING CHANGE: the file changed");
+		commit("child/file.txt", "feat: a feature");
+		ConventionalCommitScan.Result result = ConventionalCommitScan.scan(git, "v1.2.3", "child");
+		assertEquals(Bump.MAJOR, result.bump());
+		// the oldest commit is never read
+		assertEquals(2, result.commits());
+
+		List<HistoryCommit> history = new ArrayList<>();
+		git.walkHistory(null, null, false, history::add);
+		assertEquals(4, history.size());
+		assertEquals("the file changed", history.get(1).body().substring("BREAKING CHANGE: ".length()));
+		assertEquals(List.of("v1.2.3"), history.get(3).tags());
+		assertTrue(history.get(3).paths().isEmpty());
+	}
+}
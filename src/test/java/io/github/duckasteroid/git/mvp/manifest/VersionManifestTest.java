@@ -0,0 +1,64 @@
+package io.github.duckasteroid.git.mvp.manifest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionManifestTest {
+
+	private final VersionManifest manifest = new VersionManifest(Map.of(
+					":child1", new VersionManifest.Entry("2.0.1", "TAG 'child1/v2.0.0' interpreted as version=2.0.0",
+									List.of("Increment version", "Add 'dirty' qualifier")),
+					":", new VersionManifest.Entry("1.0.0", "TAG \"v1.0.0\"\tquoted", List.of())));
+
+	@Test
+	void propertiesRoundTrip(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("versions.properties");
+		manifest.writeProperties(file);
+		VersionManifest read = VersionManifest.read(file).orElseThrow();
+		assertEquals(manifest.entries(), read.entries());
+		assertEquals("2.0.1", read.version(":child1").orElseThrow());
+		assertTrue(read.version(":child2").isEmpty());
+
+		// the same versions give the same file
+		byte[] first = Files.readAllBytes(file);
+		manifest.writeProperties(file);
+		assertArrayEquals(first, Files.readAllBytes(file));
+	}
+
+	@Test
+	void plainManifest(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("versions.properties");
+		Files.writeString(file, "\\:=1.0.0\n\\:child1=2.0.0\n");
+		VersionManifest read = VersionManifest.read(file).orElseThrow();
+		assertEquals(new VersionManifest.Entry("2.0.0", "", List.of()), read.entry(":child1").orElseThrow());
+		assertTrue(VersionManifest.read(dir.resolve("missing.properties")).isEmpty());
+	}
+
+	@Test
+	void json(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("versions.json");
+		manifest.writeJson(file);
+		assertEquals("""
+						{
+						  ":": {
+						    "version": "1.0.0",
+						    "source": "TAG \\"v1.0.0\\"\\tquoted",
+						    "amendments": []
+						  },
+						  ":child1": {
+						    "version": "2.0.1",
+						    "source": "TAG 'child1/v2.0.0' interpreted as version=2.0.0",
+						    "amendments": ["Increment version", "Add 'dirty' qualifier"]
+						  }
+						}
+						""", Files.readString(file));
+	}
+}
@@ -0,0 +1,167 @@
+package io.github.duckasteroid.git.mvp.notes;
+
+import io.github.duckasteroid.git.mvp.CommitCounting;
+import io.github.duckasteroid.git.mvp.ForwardingGit;
+import io.github.duckasteroid.git.mvp.Git;
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import io.github.duckasteroid.git.mvp.history.ConventionalCommitScan;
+import io.github.duckasteroid.git.mvp.history.HistoryCommit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionNotesTest {
+	@TempDir
+	Path dir;
+
+	Path remote;
+	Path repo;
+	GitCommandLine git;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		remote = dir.resolve("remote.git");
+		repo = dir.resolve("repo");
+		GitCommandLine.withGit(List.of("init", "--bare", remote.toString()), dir, true);
+		GitCommandLine.withGit(List.of("init", repo.toString()), dir, true);
+		git = new GitCommandLine(repo);
+		Files.createDirectories(repo.resolve("child"));
+		commit("child/file.txt", "Initial commit");
+		git.lightTag("v1.0.0");
+		commit("child/file.txt", "feat: one");
+		commit("other.txt", "fix: two");
+	}
+
+	private void commit(String file, String message) throws IOException {
+		Files.writeString(repo.resolve(file), message);
+		git.add(".");
+		git.commit(message);
+	}
+
+	private static VersionNotes.Store store(GitCommandLine git) {
+		return new VersionNotes.Store() {
+			@Override
+			public Optional<String> read(String commit) {
+				return git.readNote(VersionNotes.REF, commit);
+			}
+
+			@Override
+			public void write(String commit, String note) {
+				git.writeNote(VersionNotes.REF, commit, note);
+			}
+		};
+	}
+
+	/**
+	 * A git that must not walk the history
+	 */
+	private static Git noHistory(Git git) {
+		return new ForwardingGit(git) {
+			@Override
+			public int gitCommitCount(String tag, String path, CommitCounting counting) {
+				throw new AssertionError("Counted commits since " + tag);
+			}
+
+			@Override
+			public void walkHistory(@Nullable String range, @Nullable String path, boolean withPaths, Predicate<HistoryCommit> visitor) {
+				throw new AssertionError("Walked " + range);
+			}
+
+			@Override
+			public void walkCommits(@Nullable String range, @Nullable String path, Predicate<HistoryCommit> visitor) {
+				throw new AssertionError("Walked " + range);
+			}
+		};
+	}
+
+	@Test
+	void renderAndParse() {
+		Map<String, String> facts = new TreeMap<>();
+		facts.put("count\tabc\tchild\tALL", "3");
+		facts.put("scan\tabc\t", "2\tMINOR");
+		String note = VersionNotes.render(facts);
+		assertEquals("git-mvp-notes\t1\ncount\tabc\tchild\tALL\t3\nscan\tabc\t\t2\tMINOR\n", note);
+
+		Map<String, String> parsed = new TreeMap<>();
+		VersionNotes.parse(note + "unknown\tfact\n", parsed);
+		assertEquals(facts, parsed);
+
+		parsed.clear();
+		VersionNotes.parse("some other note", parsed);
+		assertTrue(parsed.isEmpty());
+	}
+
+	@Test
+	void disabled() {
+		VersionNotes notes = new VersionNotes();
+		NotesGit notesGit = new NotesGit(git, notes, store(git), () -> false);
+		assertEquals(1, notesGit.gitCommitCount("v1.0.0", "child"));
+		notes.save();
+		assertTrue(git.readNote(VersionNotes.REF, git.gitCommitID(false, null)).isEmpty());
+	}
+
+	@Test
+	void sharedThroughTheRemote() {
+		VersionNotes notes = new VersionNotes();
+		NotesGit notesGit = new NotesGit(git, notes, store(git), () -> true);
+		assertEquals(1, notesGit.gitCommitCount("v1.0.0", "child"));
+		assertEquals(2, notesGit.gitCommitCount("v1.0.0", null, CommitCounting.ALL));
+		assertEquals(new ConventionalCommitScan.Result(1, ConventionalCommitScan.Bump.MINOR), notesGit.scan("v1.0.0", "child"));
+		notes.save();
+		String head = git.gitCommitID(false, null);
+		assertTrue(git.readNote(VersionNotes.REF, head).isPresent());
+
+		GitCommandLine.withGit(List.of("push", remote.toString(), "HEAD:refs/heads/main", "--tags", VersionNotes.REF), repo, true);
+		Path clone = dir.resolve("clone");
+		GitCommandLine.withGit(List.of("clone", "--branch", "main", remote.toString(), clone.toString()), dir, true);
+		GitCommandLine.withGit(List.of("fetch", "origin", "+" + VersionNotes.REF + ":" + VersionNotes.REF), clone, true);
+
+		// the clone gets the same answers without walking the history
+		GitCommandLine cloneGit = new GitCommandLine(clone);
+		NotesGit cloned = new NotesGit(noHistory(cloneGit), new VersionNotes(), store(cloneGit), () -> true);
+		assertEquals(1, cloned.gitCommitCount("v1.0.0", "child"));
+		assertEquals(2, cloned.gitCommitCount("v1.0.0", ""));
+		assertEquals(new ConventionalCommitScan.Result(1, ConventionalCommitScan.Bump.MINOR), cloned.scan("v1.0.0", "child"));
+	}
+
+	@Test
+	void mergedWithNotesWrittenSince() {
+		VersionNotes first = new VersionNotes();
+		VersionNotes second = new VersionNotes();
+		NotesGit one = new NotesGit(git, first, store(git), () -> true);
+		NotesGit two = new NotesGit(git, second, store(git), () -> true);
+		assertEquals(1, one.gitCommitCount("v1.0.0", "child"));
+		assertEquals(1, two.gitCommitCount("v1.0.0", "other.txt"));
+		first.save();
+		second.save();
+
+		NotesGit read = new NotesGit(noHistory(git), new VersionNotes(), store(git), () -> true);
+		assertEquals(1, read.gitCommitCount("v1.0.0", "child"));
+		assertEquals(1, read.gitCommitCount("v1.0.0", "other.txt"));
+	}
+
+	@Test
+	void movedTagIsCountedAgain() throws IOException {
+		VersionNotes notes = new VersionNotes();
+		NotesGit notesGit = new NotesGit(git, notes, store(git), () -> true);
+		assertEquals(1, notesGit.gitCommitCount("v1.0.0", "child"));
+		notes.save();
+
+		GitCommandLine.withGit(List.of("tag", "-f", "v1.0.0", "HEAD~1"), repo, true);
+		GitCommandLine moved = new GitCommandLine(repo);
+		NotesGit again = new NotesGit(moved, new VersionNotes(), store(moved), () -> true);
+		assertEquals(0, again.gitCommitCount("v1.0.0", "child"));
+	}
+}
@@ -0,0 +1,73 @@
+package io.github.duckasteroid.git.mvp.repo;
+
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests we find the same repository layout as git itself, without running it
+ */
+class RepositoryLocatorTest {
+	@TempDir
+	Path gitRepositoryPath;
+
+	GitCommandLine git;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		GitCommandLine.withGit(List.of("init"), gitRepositoryPath, true);
+		git = new GitCommandLine(gitRepositoryPath);
+		Path nested = Files.createDirectories(gitRepositoryPath.resolve("some/deep/path"));
+		Files.writeString(nested.resolve("file.txt"), "Hello World");
+		git.add(".");
+		git.commit("Initial commit");
+	}
+
+	@Test
+	void locateOutsideGit(@TempDir Path notGitDir) {
+		assertTrue(RepositoryLocator.locate(notGitDir).isEmpty());
+	}
+
+	@Test
+	void locateMainRepository() {
+		Optional<RepositoryTopology> topology = RepositoryLocator.locate(gitRepositoryPath.resolve("some/deep/path"));
+		assertTrue(topology.isPresent());
+		assertEquals(gitRepositoryPath, topology.get().workTree());
+		assertEquals(gitRepositoryPath.resolve(".git"), topology.get().gitDir());
+		assertEquals(topology.get().gitDir(), topology.get().commonDir());
+		assertEquals(RepositoryTopology.Kind.MAIN, topology.get().kind());
+		assertEquals(Path.of("some/deep/path"), topology.get().relativize(gitRepositoryPath.resolve("some/deep/path")));
+		// the same as git reports
+		assertEquals(GitCommandLine.gitRootDir(gitRepositoryPath.resolve("some/deep/path").toFile()), topology.map(RepositoryTopology::workTree));
+	}
+
+	@Test
+	void locateLinkedWorktree(@TempDir Path worktreeParent) {
+		Path worktree = worktreeParent.resolve("linked");
+		GitCommandLine.withGit(List.of("worktree", "add", "-b", "linked", worktree.toString()), gitRepositoryPath, true);
+
+		Optional<RepositoryTopology> topology = RepositoryLocator.locate(worktree.resolve("some/deep"));
+		assertTrue(topology.isPresent());
+		assertEquals(worktree, topology.get().workTree());
+		assertEquals(gitRepositoryPath.resolve(".git/worktrees/linked"), topology.get().gitDir());
+		assertEquals(gitRepositoryPath.resolve(".git"), topology.get().commonDir());
+		assertTrue(topology.get().isLinkedWorktree());
+	}
+
+	@Test
+	void topologyIsCached() {
+		RepositoryLocator locator = new RepositoryLocator();
+		Optional<RepositoryTopology> first = locator.topology(gitRepositoryPath);
+		assertTrue(first.isPresent());
+		assertSame(first.get(), locator.topology(gitRepositoryPath).get());
+	}
+}
@@ -0,0 +1,84 @@
+package io.github.duckasteroid.git.mvp.snapshot;
+
+import io.github.duckasteroid.git.mvp.UntrackedFiles;
+import io.github.duckasteroid.git.mvp.cmd.GitCommandLine;
+import io.github.duckasteroid.git.mvp.history.ConventionalCommitScan;
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitSnapshotTest {
+
+	@Test
+	void roundTrip(@TempDir Path repo) throws IOException {
+		GitCommandLine.withGit(List.of("init"), repo, true);
+		GitCommandLine git = new GitCommandLine(repo);
+		Files.createDirectories(repo.resolve("lib"));
+		Files.writeString(repo.resolve("lib/a.txt"), "a");
+		git.add(".");
+		git.commit("First");
+		git.lightTag("v1.0.0");
+		git.annotatedTag("lib/v2.0.0", "Lib release");
+		Files.writeString(repo.resolve("lib/b.txt"), "b");
+		git.add(".");
+		git.commit("feat: Second");
+
+		GitSnapshot snapshot = GitSnapshot.builder()
+						.head(git.gitCommitID(false, null), git.gitCommitID(true, null))
+						.branch(git.branchName())
+						.tags(git.gitTags(null))
+						.commit("lib", git.gitCommitID(false, "lib"), git.gitCommitID(true, "lib"))
+						.commitCount("lib/v2.0.0", "lib", git.gitCommitCount("lib/v2.0.0", "lib"))
+						.scan("lib/v2.0.0", "lib", git.scan("lib/v2.0.0", "lib"))
+						.dirty("lib", UntrackedFiles.NORMAL, true)
+						.build();
+		Path file = repo.resolve("out").resolve(GitSnapshot.DEFAULT_FILE);
+		snapshot.write(file);
+
+		SnapshotGit offline = new SnapshotGit(GitSnapshot.read(file).orElseThrow(), repo);
+		assertEquals(git.gitCommitID(false, null), offline.gitCommitID(false, null));
+		assertEquals(git.gitCommitID(true, "lib"), offline.gitCommitID(true, "lib"));
+		// not captured, so HEAD
+		assertEquals(git.gitCommitID(true, null), offline.gitCommitID(true, "other"));
+		assertEquals(git.branchName(), offline.branchName());
+		assertEquals(1, offline.gitCommitCount("lib/v2.0.0", "lib"));
+		// not captured, so the version would look released
+		assertThrows(IllegalStateException.class, () -> offline.gitCommitCount("v1.0.0", "lib"));
+		assertEquals(new ConventionalCommitScan.Result(1, ConventionalCommitScan.Bump.MINOR), offline.scan("lib/v2.0.0", "lib"));
+		assertThrows(IllegalStateException.class, () -> offline.scan("v1.0.0", "lib"));
+		GradleException noHistory = assertThrows(GradleException.class, () -> offline.walkHistory(null, "lib", false, commit -> true));
+		assertEquals("Walking the commit history needs the git repository, the git snapshot only has the versions of the projects",
+						noHistory.getMessage());
+		GradleException noChanges = assertThrows(GradleException.class, () -> offline.changedPaths("v1.0.0", "HEAD"));
+		assertEquals("Listing the changes between revisions needs the git repository, the git snapshot only has the versions of the projects",
+						noChanges.getMessage());
+		assertTrue(offline.gitDirty("lib", UntrackedFiles.NORMAL));
+		assertFalse(offline.gitDirty("lib", UntrackedFiles.NO));
+
+		List<GitTag> expected = git.gitTags(null);
+		List<GitTag> actual = offline.gitTags(null);
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).value(), actual.get(i).value());
+			assertEquals(expected.get(i).longCommit(), actual.get(i).longCommit());
+			assertEquals(expected.get(i).commitDate(), actual.get(i).commitDate());
+		}
+		assertEquals("lib/v2.0.0", offline.latestTag("lib/").orElseThrow().value());
+		assertEquals("v1.0.0", offline.ancestorTags("other/path", "v*").get(0).value());
+	}
+
+	@Test
+	void notASnapshot(@TempDir Path dir) throws IOException {
+		assertTrue(GitSnapshot.read(dir.resolve(GitSnapshot.DEFAULT_FILE)).isEmpty());
+		Path file = Files.writeString(dir.resolve(GitSnapshot.DEFAULT_FILE), "something else\n");
+		assertThrows(IllegalArgumentException.class, () -> GitSnapshot.read(file));
+	}
+}
@@ -0,0 +1,137 @@
+package io.github.duckasteroid.git.mvp.tags;
+
+import io.github.duckasteroid.git.mvp.version.MavenVersion;
+import io.github.duckasteroid.git.mvp.version.SimpleStringVersion;
+import io.github.duckasteroid.git.mvp.version.source.GitTag;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagTableTest {
+	private static final Supplier<String> EXPLANATION = () -> "test";
+	private static final String OID_A = "a".repeat(40);
+	private static final String OID_B = "b".repeat(40);
+
+	private final TagTable table = TagTable.builder()
+					// deliberately not in name order
+					.add(line("refs/tags/v1.0.0", "1700000000 +0100", OID_A))
+					.add(line("refs/tags/child1/v2.0.0-CHILD1", "1700000300 +0000", OID_B))
+					.add(line("refs/tags/v1.1", "1700000200 -0530", OID_B))
+					.add(line("refs/tags/child10/v9.0.0", "1700000400 +0000", OID_A))
+					.add(line("refs/tags/v1/not-a-version", "1700000500 +0000", OID_A))
+					.add(line("refs/tags/annotated", "", OID_A))
+					.build();
+
+	private static String line(String ref, String date, String oid) {
+		return ref + '\u0001' + date + '\u0001' + oid;
+	}
+
+	private static List<String> names(List<GitTag> tags) {
+		return tags.stream().map(GitTag::value).toList();
+	}
+
+	@Test
+	void allTagsMostRecentFirst() {
+		assertEquals(6, table.size());
+		assertEquals(List.of("v1/not-a-version", "child10/v9.0.0", "child1/v2.0.0-CHILD1", "v1.1", "v1.0.0", "annotated"),
+						names(table.matching(null, EXPLANATION)));
+	}
+
+	@Test
+	void prefixLookups() {
+		// a folder does not match a longer sibling folder
+		assertEquals(List.of("child1/v2.0.0-CHILD1"), names(table.matching("child1/", EXPLANATION)));
+		assertEquals(List.of("child1/v2.0.0-CHILD1"), names(table.matching("child1", EXPLANATION)));
+		assertTrue(table.matching("child", EXPLANATION).isEmpty());
+		assertTrue(table.matching("missing/", EXPLANATION).isEmpty());
+	}
+
+	@Test
+	void nearestNamespaces() {
+		TagTable folders = TagTable.builder()
+						.add(line("refs/tags/v1.0.0", "1700000000 +0000", OID_A))
+						.add(line("refs/tags/some/deep/v2.0", "1700000100 +0000", OID_A))
+						.add(line("refs/tags/some/deep/v2.1", "1700000200 +0000", OID_B))
+						.add(line("refs/tags/some/deep/path/notes", "1700000300 +0000", OID_B))
+						.add(line("refs/tags/some/other/v3.0", "1700000400 +0000", OID_B))
+						.build();
+		TagNamespaces namespaces = folders.namespaces();
+		assertSame(namespaces, folders.namespaces());
+		// nearest folder first, most recent first within it
+		assertEquals(List.of("some/deep/v2.1", "some/deep/v2.0", "v1.0.0"),
+						names(namespaces.nearest("some/deep/path/child2", "v*", namespace -> EXPLANATION)));
+		assertEquals(List.of("some/deep/path/notes", "some/deep/v2.1", "some/deep/v2.0", "v1.0.0"),
+						names(namespaces.nearest("some/deep/path", null, namespace -> EXPLANATION)));
+		assertEquals(List.of("v1.0.0"), names(namespaces.nearest("elsewhere", "v*", namespace -> EXPLANATION)));
+		assertEquals(List.of("v1.0.0"), names(namespaces.nearest("", "v*", namespace -> EXPLANATION)));
+		assertEquals("some/deep", namespaces.nearest("some/deep/x", "v*", namespace -> () -> namespace).get(0).explanation().get());
+	}
+
+	@Test
+	void globLookups() {
+		// wildcards do not match '/'
+		assertEquals(List.of("v1.1", "v1.0.0"), names(table.matching("v*", EXPLANATION)));
+		assertEquals(List.of("child10/v9.0.0", "child1/v2.0.0-CHILD1"), names(table.matching("child*/v*", EXPLANATION)));
+	}
+
+	@Test
+	void latest() {
+		Optional<GitTag> latest = table.latest("v*", EXPLANATION);
+		assertTrue(latest.isPresent());
+		assertEquals("v1.1", latest.get().value());
+		assertSame(EXPLANATION, latest.get().explanation());
+		assertTrue(table.latest("nothing*", EXPLANATION).isEmpty());
+	}
+
+	@Test
+	void tagData() {
+		GitTag tag = table.latest("v1.0.0", EXPLANATION).orElseThrow();
+		assertEquals(OID_A, tag.longCommit());
+		assertEquals("aaaaaaa", tag.shortCommit());
+		assertEquals(OffsetDateTime.of(2023, 11, 14, 23, 13, 20, 0, ZoneOffset.ofHours(1)), tag.commitDate());
+		assertEquals(ZoneOffset.ofHoursMinutes(-5, -30), table.latest("v1.1", EXPLANATION).orElseThrow().commitDate().getOffset());
+		assertNull(table.latest("annotated", EXPLANATION).orElseThrow().commitDate());
+	}
+
+	@Test
+	void versions() {
+		assertEquals(new MavenVersion(1, 0, 0, null), table.latest("v1.0.0", EXPLANATION).orElseThrow().version());
+		assertEquals(new MavenVersion(1, 1, null, null), table.latest("v1.1", EXPLANATION).orElseThrow().version());
+		assertEquals(new MavenVersion(2, 0, 0, "CHILD1"), table.latest("child1/", EXPLANATION).orElseThrow().version());
+		assertEquals(new SimpleStringVersion("annotated"), table.latest("annotated", EXPLANATION).orElseThrow().version());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	void deprecatedGitTag() {
+		OffsetDateTime date = OffsetDateTime.of(2023, 11, 14, 23, 13, 20, 0, ZoneOffset.ofHours(1));
+		GitTag tag = GitTag.parse(EXPLANATION, String.join("\u0001", "child1/v2.0.0-CHILD1", "2023-11-14@23:13:20~+0100",
+						"Release child", "bbbbbbbbb", OID_B));
+		assertEquals("child1/v2.0.0-CHILD1", tag.value());
+		assertEquals(date, tag.commitDate());
+		assertEquals("Release child", tag.subject());
+		assertEquals("bbbbbbbbb", tag.shortCommit());
+		assertEquals(OID_B, tag.longCommit());
+		assertEquals(new MavenVersion(2, 0, 0, "CHILD1"), tag.version());
+		assertTrue(GitTag.formatString().contains("%(subject)"));
+
+		GitTag annotated = new GitTag(EXPLANATION, "annotated", null, "Annotated", "aaaaaaa", OID_A);
+		assertNull(annotated.commitDate());
+		assertEquals(new SimpleStringVersion("annotated"), annotated.version());
+		// tags from a table have no subject
+		assertNull(table.latest("v1.0.0", EXPLANATION).orElseThrow().subject());
+	}
+
+	@Test
+	void empty() {
+		assertEquals(0, TagTable.empty().size());
+		assertTrue(TagTable.empty().matching(null, EXPLANATION).isEmpty());
+		assertTrue(TagTable.empty().latest("v*", EXPLANATION).isEmpty());
+	}
+}
@@ -0,0 +1,116 @@
+package io.github.duckasteroid.git.mvp.version.source;
+
+import io.github.duckasteroid.git.mvp.GitTimeoutException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionSourceChainTest {
+	// the names of the providers queried (in order)
+	private final List<String> queried = new ArrayList<>();
+
+	private VersionSourceProvider provider(String name, int cost, String value) {
+		return new VersionSourceProvider() {
+			@Override
+			public String description() {
+				return name;
+			}
+
+			@Override
+			public int cost() {
+				return cost;
+			}
+
+			@Override
+			public Optional<VersionSource> first() {
+				queried.add(name);
+				return Optional.ofNullable(value)
+								.map(v -> new FixedVersionSource(VersionSource.Type.FILE, v, this::description, true));
+			}
+		};
+	}
+
+	@Test
+	void timeoutFailsTheChain() {
+		VersionSourceProvider slow = new VersionSourceProvider() {
+			@Override
+			public String description() {
+				return "slow";
+			}
+
+			@Override
+			public int cost() {
+				return 10;
+			}
+
+			@Override
+			public Optional<VersionSource> first() {
+				throw new GitTimeoutException(List.of("git", "log"), Duration.ofMillis(1));
+			}
+		};
+		VersionSourceChain chain = VersionSourceChain.cheapestFirst(List.of(slow, provider("fallback", 100, "1.0")));
+		assertThrows(GitTimeoutException.class, chain::first);
+		assertThrows(GitTimeoutException.class, chain::all);
+		assertTrue(queried.isEmpty());
+	}
+
+	@Test
+	void cheapestFirstAndShortCircuit() {
+		VersionSourceChain chain = VersionSourceChain.cheapestFirst(List.of(
+						provider("expensive", 100, "3.0"),
+						provider("cheap-empty", 0, null),
+						provider("cheap", 10, "1.0"),
+						provider("also-cheap", 10, "2.0")));
+		assertEquals("1.0", chain.first().orElseThrow().value());
+		assertEquals(List.of("cheap-empty", "cheap"), queried);
+
+		queried.clear();
+		assertEquals(List.of("1.0", "2.0", "3.0"), chain.all().stream().map(VersionSource::value).toList());
+		assertEquals(List.of("cheap-empty", "cheap", "also-cheap", "expensive"), queried);
+	}
+
+	@Test
+	void environment() {
+		VersionSourceProvider provider = new EnvironmentVersionSourceProvider("CI_VERSION", Map.of("CI_VERSION", " 1.2.3 ")::get);
+		VersionSource source = provider.first().orElseThrow();
+		assertEquals(VersionSource.Type.ENVIRONMENT, source.type());
+		assertEquals("1.2.3", source.version().toString());
+		assertFalse(source.isAmendable());
+
+		assertTrue(new EnvironmentVersionSourceProvider("CI_VERSION", Map.of("CI_VERSION", "")::get).first().isEmpty());
+		assertTrue(new EnvironmentVersionSourceProvider("CI_VERSION", Map.<String, String>of()::get).first().isEmpty());
+	}
+
+	@Test
+	void versionFile(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("version.txt");
+		assertTrue(new FileVersionSourceProvider(file).first().isEmpty());
+		Files.writeString(file, "# the version\n\n2.0.1-SNAPSHOT\n");
+		VersionSource source = new FileVersionSourceProvider(file).first().orElseThrow();
+		assertEquals(VersionSource.Type.FILE, source.type());
+		assertEquals("2.0.1-SNAPSHOT", source.value());
+		assertTrue(source.isAmendable());
+	}
+
+	@Test
+	void manifest(@TempDir Path dir) throws IOException {
+		Path manifest = dir.resolve("versions.properties");
+		Files.writeString(manifest, "\\:=1.0.0\n\\:child1=2.0.0\n");
+		VersionSource source = new ManifestVersionSourceProvider(manifest, ":child1").first().orElseThrow();
+		assertEquals(VersionSource.Type.MANIFEST, source.type());
+		assertEquals("2.0.0", source.value());
+		assertFalse(source.isAmendable());
+		assertEquals("1.0.0", new ManifestVersionSourceProvider(manifest, ":").first().orElseThrow().value());
+		assertTrue(new ManifestVersionSourceProvider(manifest, ":child2").first().isEmpty());
+	}
+}